@@ -0,0 +1,2 @@
+-- HTML alternative for outbox emails rendered from an .html template (NULL = text only)
+ALTER TABLE email_outbox ADD COLUMN html_body TEXT;
@@ -0,0 +1,19 @@
+-- Add denormalized list_price to product for SQL-side price filtering and
+-- keyset pagination of the public listing (GET /api/products/page).
+-- The application also backfills NULL rows at startup.
+
+ALTER TABLE product ADD COLUMN list_price DOUBLE COMMENT 'Price of the primary (lowest id) variant';
+
+UPDATE product p
+SET p.list_price = COALESCE((
+    SELECT v.price FROM product_variants v
+    WHERE v.product_id = p.id
+    ORDER BY v.id
+    LIMIT 1
+), 0)
+WHERE p.list_price IS NULL;
+
+-- Keyset indexes: every listing order is (key, id) over active products
+ALTER TABLE product ADD INDEX idx_active_price_id (is_active, list_price, id);
+ALTER TABLE product ADD INDEX idx_active_name_id (is_active, name, id);
+ALTER TABLE product ADD INDEX idx_active_category (is_active, category);
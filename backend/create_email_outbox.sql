@@ -0,0 +1,20 @@
+-- Customer emails queued in the same transaction as the order change they report.
+-- Background workers send PENDING rows once next_attempt_at has passed, retrying
+-- with exponential backoff; rows that exhaust their attempts are left FAILED.
+
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    kind VARCHAR(40) NOT NULL,
+    order_id BIGINT,
+    recipient_email VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT,
+    status VARCHAR(20) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(6) NOT NULL,
+    locked_until DATETIME(6),
+    last_error VARCHAR(500),
+    created_at DATETIME(6) NOT NULL,
+    sent_at DATETIME(6),
+    INDEX idx_outbox_status_next (status, next_attempt_at)
+);
@@ -0,0 +1,11 @@
+-- Content-addressed uploads: one row per distinct file (SHA-256 of its bytes),
+-- stored under uploads/<ab>/<cd>/<hash>.<ext>. ref_count counts the uploads that
+-- resolved to it; the file is removed when it drops to zero.
+
+CREATE TABLE IF NOT EXISTS media_blobs (
+    hash VARCHAR(64) PRIMARY KEY,
+    path VARCHAR(120) NOT NULL,
+    size BIGINT NOT NULL,
+    ref_count INT NOT NULL,
+    created_at DATETIME(6) NOT NULL
+);
@@ -0,0 +1,17 @@
+-- Stock held for customers between Razorpay order creation and payment verification.
+-- HELD rows count against available stock until they expire (RELEASED by the
+-- sweeper) or the payment is confirmed (CONFIRMED, stock decremented).
+
+CREATE TABLE IF NOT EXISTS stock_reservations (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    product_id BIGINT NOT NULL,
+    variant_id BIGINT NOT NULL,
+    quantity INT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    razorpay_order_id VARCHAR(100),
+    created_at DATETIME(6) NOT NULL,
+    expires_at DATETIME(6) NOT NULL,
+    INDEX idx_reservation_status_expiry (status, expires_at),
+    INDEX idx_reservation_user_status (user_id, status)
+);
@@ -0,0 +1,100 @@
+// k6 load profile for comparing execution modes (see compare.sh).
+// Each iteration does what a shopper on the way to checkout does: catalog, cart, order review,
+// and with PAYMENT=1 a Razorpay create-order (a real HTTPS call; needs Razorpay test keys).
+//
+// With PRODUCT_ID set, an "order" scenario runs alongside: ORDER_VUS shoppers (each its own
+// user, loadtest+order-<vu>@..., with one address and cash on delivery) add one unit of the
+// product's first variant, review and place the order, so stock row locks, holds and order
+// writes are under load too. Give the variant enough stock; every order takes one unit.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e EMAIL=loadtest@example.com checkout.js
+//   k6 run -e PRODUCT_ID=1 -e ORDER_VUS=20 checkout.js
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const EMAIL = encodeURIComponent(__ENV.EMAIL || 'loadtest@example.com');
+const PAYMENT = __ENV.PAYMENT === '1';
+const PRODUCT_ID = __ENV.PRODUCT_ID ? Number(__ENV.PRODUCT_ID) : null;
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+function ramp(vus) {
+  return {
+    executor: 'ramping-vus',
+    startVUs: 0,
+    stages: [
+      { duration: __ENV.RAMP || '30s', target: vus },
+      { duration: __ENV.DURATION || '2m', target: vus },
+      { duration: '10s', target: 0 },
+    ],
+    gracefulRampDown: '10s',
+  };
+}
+
+const scenarios = { checkout: Object.assign(ramp(Number(__ENV.VUS || 400)), { exec: 'browse' }) };
+if (PRODUCT_ID) {
+  scenarios.order = Object.assign(ramp(Number(__ENV.ORDER_VUS || 20)), { exec: 'placeOrder' });
+}
+
+export const options = {
+  scenarios,
+  summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+function get(path, name) {
+  const res = http.get(`${BASE_URL}${path}`, { tags: { name } });
+  check(res, { [`${name} not 5xx`]: (r) => r.status > 0 && r.status < 500 });
+}
+
+// The variant ordered by the order scenario
+export function setup() {
+  if (!PRODUCT_ID) return {};
+  const product = http.get(`${BASE_URL}/api/products/${PRODUCT_ID}`);
+  if (product.status !== 200 || !product.json('variants.0.id')) {
+    throw new Error(`Product ${PRODUCT_ID} not found or has no variants`);
+  }
+  return { variantId: product.json('variants.0.id') };
+}
+
+export function browse() {
+  get('/api/products', 'catalog');
+  get(`/api/cart?email=${EMAIL}`, 'cart');
+  get(`/api/checkout/review?email=${EMAIL}`, 'review');
+  if (PAYMENT) {
+    const res = http.post(`${BASE_URL}/api/payments/razorpay/create-order?email=${EMAIL}`, null,
+      { tags: { name: 'create-order' } });
+    check(res, { 'create-order not 5xx': (r) => r.status > 0 && r.status < 500 });
+  }
+}
+
+// Address and checkout selection are made once per shopper (per VU)
+let orderEmail = null;
+
+function orderSetup(email) {
+  const address = http.post(`${BASE_URL}/api/addresses?email=${email}`, JSON.stringify({
+    name: 'Load Test', phone: '9999999999', street: '1 Test Street', city: 'Udupi',
+    state: 'Karnataka', pincode: '576101', addressType: 'Home', default: true,
+  }), { headers: JSON_HEADERS, tags: { name: 'address' } });
+  if (!check(address, { 'address saved': (r) => r.status === 200 })) return false;
+  const selection = http.post(`${BASE_URL}/api/checkout/selection?email=${email}`, JSON.stringify({
+    addressId: address.json('id'), deliveryOption: 'standard', paymentMethod: 'cod',
+  }), { headers: JSON_HEADERS, tags: { name: 'selection' } });
+  return check(selection, { 'selection saved': (r) => r.status === 200 });
+}
+
+export function placeOrder(data) {
+  const email = encodeURIComponent(`loadtest+order-${__VU}@example.com`);
+  const add = http.post(`${BASE_URL}/api/cart/add?email=${email}`,
+    JSON.stringify({ productId: PRODUCT_ID, variantId: data.variantId, quantity: 1 }),
+    { headers: JSON_HEADERS, tags: { name: 'cart-add' } });
+  if (!check(add, { 'cart-add ok': (r) => r.status === 200 })) return;
+  if (orderEmail !== email) {
+    // The cart add above created the user if it was new
+    if (!orderSetup(email)) return;
+    orderEmail = email;
+  }
+  get(`/api/checkout/review?email=${email}`, 'review');
+  const order = http.post(`${BASE_URL}/api/checkout/place-order?email=${email}`, null,
+    { tags: { name: 'place-order' } });
+  check(order, { 'order placed': (r) => r.status === 200 });
+}
@@ -0,0 +1,60 @@
+#!/bin/bash
+
+# Runs the same k6 load (checkout.js) against the app in platform-thread and then in
+# virtual-thread mode, and prints throughput and latency for both side by side.
+#
+# Needs k6, jq, curl, a built jar (./mvnw clean package -DskipTests) and the database of
+# the active profile. Everything else (DB_POOL_SIZE, TOMCAT_MAX_THREADS, EMAIL, VUS,
+# DURATION, PAYMENT, PRODUCT_ID, ORDER_VUS) is passed through unchanged, so both runs see
+# the same settings.
+#
+#   cd backend && loadtest/compare.sh
+
+set -e
+
+JAR="${JAR:-target/avira-udupu-0.0.1-SNAPSHOT.jar}"
+PORT="${PORT:-8080}"
+OUT="${OUT:-loadtest/results}"
+BASE_URL="http://localhost:$PORT"
+
+if [ ! -f "$JAR" ]; then
+    echo "❌ JAR file not found: $JAR (build it with ./mvnw clean package -DskipTests)"
+    exit 1
+fi
+mkdir -p "$OUT"
+
+for mode in platform virtual; do
+    if [ "$mode" = virtual ]; then virtual=true; else virtual=false; fi
+    echo "▶ Starting app with VIRTUAL_THREADS=$virtual"
+    VIRTUAL_THREADS=$virtual java -jar "$JAR" --server.port="$PORT" > "$OUT/app-$mode.log" 2>&1 &
+    app=$!
+    trap 'kill $app 2>/dev/null' EXIT
+
+    for _ in $(seq 1 120); do
+        curl -sf "$BASE_URL/api/health" > /dev/null && break
+        sleep 1
+    done
+    if ! curl -sf "$BASE_URL/api/health" > /dev/null; then
+        echo "❌ App did not come up, see $OUT/app-$mode.log"
+        exit 1
+    fi
+
+    k6 run --quiet -e BASE_URL="$BASE_URL" --summary-export "$OUT/$mode.json" loadtest/checkout.js
+
+    kill $app
+    wait $app 2>/dev/null || true
+    trap - EXIT
+done
+
+echo
+printf '%-10s %12s %10s %10s %10s %10s\n' mode 'req/s' 'p50 ms' 'p95 ms' 'p99 ms' failed
+for mode in platform virtual; do
+    jq -r --arg mode "$mode" '[$mode,
+        (.metrics.http_reqs.rate | . * 10 | round / 10),
+        (.metrics.http_req_duration["p(50)"] | round),
+        (.metrics.http_req_duration["p(95)"] | round),
+        (.metrics.http_req_duration["p(99)"] | round),
+        ((.metrics.http_req_failed.value // 0) * 1000 | round / 10 | tostring + "%")] | @tsv' "$OUT/$mode.json" \
+        | awk -F'\t' '{ printf "%-10s %12s %10s %10s %10s %10s\n", $1, $2, $3, $4, $5, $6 }'
+done
+echo "Full k6 summaries: $OUT/platform.json, $OUT/virtual.json"
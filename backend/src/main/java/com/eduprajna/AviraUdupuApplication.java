@@ -6,11 +6,13 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import com.eduprajna.entity.User;
 import com.eduprajna.service.UserService;
 
 @SpringBootApplication
+@EnableScheduling
 public class AviraUdupuApplication {
 	
 	private static final Logger logger = LoggerFactory.getLogger(AviraUdupuApplication.class);
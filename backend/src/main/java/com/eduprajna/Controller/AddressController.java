@@ -21,17 +21,17 @@ public class AddressController {
         this.userService = userService;
     }
 
-    // In a real app, resolve current user from JWT; here via email param
+    // The caller comes from the bearer token; the email param is the fallback for clients without one
     @GetMapping
-    public ResponseEntity<?> list(@RequestParam("email") String email) {
-        return userService.findByEmail(email)
+    public ResponseEntity<?> list(@RequestParam(value = "email", required = false) String email) {
+        return userService.resolveCaller(email)
                 .<ResponseEntity<?>>map(user -> ResponseEntity.ok(addressService.getUserAddresses(user)))
                 .orElseGet(() -> ResponseEntity.status(404).body(Map.of("message", "User not found")));
     }
 
     @PostMapping
-    public ResponseEntity<?> create(@RequestParam("email") String email, @Valid @RequestBody Address body) {
-        return userService.findByEmail(email)
+    public ResponseEntity<?> create(@RequestParam(value = "email", required = false) String email, @Valid @RequestBody Address body) {
+        return userService.resolveCaller(email)
                 .<ResponseEntity<?>>map(user -> {
                     body.setId(null);
                     body.setUser(user);
@@ -42,8 +42,8 @@ public class AddressController {
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Object> update(@RequestParam("email") String email, @PathVariable Long id, @Valid @RequestBody Address body) {
-        return userService.findByEmail(email)
+    public ResponseEntity<Object> update(@RequestParam(value = "email", required = false) String email, @PathVariable Long id, @Valid @RequestBody Address body) {
+        return userService.resolveCaller(email)
             .<ResponseEntity<Object>>map(user ->
                 addressService.findById(id)
                     .<ResponseEntity<Object>>map(existing -> {
@@ -67,8 +67,8 @@ public class AddressController {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Object> delete(@RequestParam("email") String email, @PathVariable Long id) {
-        return userService.findByEmail(email)
+    public ResponseEntity<Object> delete(@RequestParam(value = "email", required = false) String email, @PathVariable Long id) {
+        return userService.resolveCaller(email)
             .<ResponseEntity<Object>>map(user ->
                 addressService.findById(id)
                     .<ResponseEntity<Object>>map(existing -> {
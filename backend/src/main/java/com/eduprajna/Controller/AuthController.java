@@ -3,10 +3,11 @@
 import java.util.Map;
 import java.util.Optional;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -14,6 +15,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.eduprajna.entity.User;
+import com.eduprajna.exception.TooManyRequestsException;
+import com.eduprajna.service.AccessTokenService;
+import com.eduprajna.service.AuthRateLimiter;
+import com.eduprajna.service.PasswordHasher;
 import com.eduprajna.service.UserService;
 
 @RestController
@@ -27,14 +32,19 @@ public class AuthController {
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
     
     private final UserService userService;
-    private final PasswordEncoder passwordEncoder;
-    public AuthController(UserService userService, PasswordEncoder passwordEncoder) {
+    private final PasswordHasher passwordHasher;
+    private final AccessTokenService accessTokens;
+    private final AuthRateLimiter rateLimiter;
+    public AuthController(UserService userService, PasswordHasher passwordHasher, AccessTokenService accessTokens,
+                          AuthRateLimiter rateLimiter) {
         this.userService = userService;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHasher = passwordHasher;
+        this.accessTokens = accessTokens;
+        this.rateLimiter = rateLimiter;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody Map<String, String> body) {
+    public ResponseEntity<?> login(@RequestBody Map<String, String> body, HttpServletRequest request) {
         try {
             logger.debug("Login attempt for email: {}", body.get("email"));
             
@@ -45,39 +55,38 @@ public class AuthController {
                 logger.warn("Missing email or password in login request");
                 return ResponseEntity.badRequest().body("Email and password are required");
             }
+            rateLimiter.acquire(request.getRemoteAddr(), email);
             
             Optional<User> userOpt = userService.findByEmail(email);
             if (userOpt.isPresent()) {
                 User user = userOpt.get();
                 String stored = user.getPasswordHash();
 
-                boolean isMatch = false;
-                if (stored != null) {
-                    // Support both legacy plain-text passwords and new bcrypt hashes
-                    if (stored.startsWith("$2")) {
-                        isMatch = passwordEncoder.matches(password, stored);
-                    } else {
-                        isMatch = stored.equals(password);
-                        // Optionally migrate to bcrypt on successful legacy login
-                        if (isMatch) {
-                            user.setPasswordHash(passwordEncoder.encode(password));
-                            userService.save(user);
-                        }
-                    }
+                // Support both legacy plain-text passwords and new bcrypt hashes
+                boolean isMatch = passwordHasher.matches(password, stored);
+                // Optionally migrate to bcrypt on successful legacy login
+                if (isMatch && PasswordHasher.isLegacy(stored)) {
+                    user.setPasswordHash(passwordHasher.encode(password));
+                    userService.save(user);
                 }
 
                 if (isMatch) {
                     logger.info("Successful login for user: {}", email);
+                    // Sent back as "Authorization: Bearer <token>" instead of ?email= on later calls
                     return ResponseEntity.ok(Map.of(
                         "id", user.getId(),
                         "name", user.getName(),
                         "email", user.getEmail(),
-                        "role", user.getRole()
+                        "role", user.getRole(),
+                        "token", accessTokens.issue(user),
+                        "expiresAt", accessTokens.expiresAt()
                     ));
                 }
             }
             logger.warn("Invalid credentials for email: {}", email);
             return ResponseEntity.status(401).body("Invalid credentials");
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error during login for email: {}", body.get("email"), e);
             return ResponseEntity.status(500).body("Internal server error during login");
@@ -85,7 +94,7 @@ public class AuthController {
     }
     
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody Map<String, String> body) {
+    public ResponseEntity<?> register(@RequestBody Map<String, String> body, HttpServletRequest request) {
         try {
             logger.debug("Registration attempt for email: {}", body.get("email"));
             
@@ -93,12 +102,12 @@ public class AuthController {
             String email = body.get("email");
             String password = body.get("password");
             String phone = body.get("phone");
-            String role = body.getOrDefault("role", "customer");
 
             if (name == null || email == null || password == null) {
                 logger.warn("Missing required fields in registration request");
                 return ResponseEntity.badRequest().body("Name, email, and password are required");
             }
+            rateLimiter.acquire(request.getRemoteAddr(), email);
 
             // Check if user already exists
             if (userService.findByEmail(email).isPresent()) {
@@ -109,9 +118,10 @@ public class AuthController {
             User user = new User();
             user.setName(name);
             user.setEmail(email);
-            user.setPasswordHash(passwordEncoder.encode(password));
+            user.setPasswordHash(passwordHasher.encode(password));
             user.setPhone(phone);
-            user.setRole(role);
+            // Never taken from the request: a "role" in the body would let anyone sign up as admin
+            user.setRole("customer");
             
             User savedUser = userService.save(user);
             logger.info("User registered successfully: {}", email);
@@ -120,6 +130,8 @@ public class AuthController {
                 "message", "User registered successfully",
                 "userId", savedUser.getId()
             ));
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error during registration for email: {}", body.get("email"), e);
             return ResponseEntity.status(500).body("Internal server error during registration");
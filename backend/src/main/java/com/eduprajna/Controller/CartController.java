@@ -19,6 +19,7 @@ import com.eduprajna.dto.CartItemDTO;
 import com.eduprajna.entity.CartItem;
 import com.eduprajna.entity.User;
 import com.eduprajna.service.CartService;
+import com.eduprajna.service.AuthenticatedUser;
 import com.eduprajna.service.UserService;
 
 @RestController
@@ -36,7 +37,7 @@ public class CartController {
     }
 
     private User requireUser(String email) { 
-        return userService.findByEmail(email)
+        return userService.resolveCaller(email)
             .orElseThrow(() -> new RuntimeException("User not found: " + email)); 
     }
     
@@ -62,11 +63,11 @@ public class CartController {
     }
 
     @GetMapping
-    public ResponseEntity<?> getCart(@RequestParam("email") String email) {
+    public ResponseEntity<?> getCart(@RequestParam(value = "email", required = false) String email) {
         try {
             logger.debug("Getting cart for user: {}", email);
             
-            if (email == null || email.trim().isEmpty()) {
+            if ((email == null || email.trim().isEmpty()) && AuthenticatedUser.current() == null) {
                 logger.warn("Empty email provided for cart request");
                 return ResponseEntity.badRequest().body("Email is required");
             }
@@ -97,11 +98,11 @@ public class CartController {
     }
 
     @PostMapping("/add")
-    public ResponseEntity<?> addToCart(@RequestParam("email") String email, @RequestBody Map<String, Object> body) {
+    public ResponseEntity<?> addToCart(@RequestParam(value = "email", required = false) String email, @RequestBody Map<String, Object> body) {
         try {
             logger.debug("Adding item to cart for user: {}", email);
             
-            if (email == null || email.trim().isEmpty()) {
+            if ((email == null || email.trim().isEmpty()) && AuthenticatedUser.current() == null) {
                 return ResponseEntity.badRequest().body("Email is required");
             }
             
@@ -174,11 +175,11 @@ public class CartController {
     }
 
     @PostMapping("/update")
-    public ResponseEntity<?> updateQuantity(@RequestParam("email") String email, @RequestBody Map<String, Object> body) {
+    public ResponseEntity<?> updateQuantity(@RequestParam(value = "email", required = false) String email, @RequestBody Map<String, Object> body) {
         try {
             logger.debug("Updating cart quantity for user: {}", email);
             
-            if (email == null || email.trim().isEmpty()) {
+            if ((email == null || email.trim().isEmpty()) && AuthenticatedUser.current() == null) {
                 return ResponseEntity.badRequest().body("Email is required");
             }
             
@@ -232,11 +233,11 @@ public class CartController {
     }
 
     @PostMapping("/remove")
-    public ResponseEntity<?> remove(@RequestParam("email") String email, @RequestBody Map<String, Object> body) {
+    public ResponseEntity<?> remove(@RequestParam(value = "email", required = false) String email, @RequestBody Map<String, Object> body) {
         try {
             logger.debug("Removing item from cart for user: {}", email);
             
-            if (email == null || email.trim().isEmpty()) {
+            if ((email == null || email.trim().isEmpty()) && AuthenticatedUser.current() == null) {
                 return ResponseEntity.badRequest().body("Email is required");
             }
             
@@ -7,6 +7,7 @@ import com.eduprajna.repository.AddressRepository;
 import com.eduprajna.repository.CheckoutSelectionRepository;
 import com.eduprajna.service.CartService;
 import com.eduprajna.service.OrderService;
+import com.eduprajna.service.AuthenticatedUser;
 import com.eduprajna.service.UserService;
 
 import org.slf4j.Logger;
@@ -14,6 +15,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -54,10 +56,10 @@ public class CheckoutController {
      * Helper method to validate and get user by email
      */
     private User requireUser(String email) { 
-        if (email == null || email.trim().isEmpty()) {
+        if ((email == null || email.trim().isEmpty()) && AuthenticatedUser.current() == null) {
             throw new IllegalArgumentException("Email is required");
         }
-        return userService.findByEmail(email)
+        return userService.resolveCaller(email)
             .orElseThrow(() -> new RuntimeException("User not found: " + email)); 
     }
 
@@ -66,7 +68,7 @@ public class CheckoutController {
      * This endpoint is called at each step of the checkout process
      */
     @PostMapping("/selection")
-    public ResponseEntity<?> saveSelection(@RequestParam("email") String email, @RequestBody Map<String, Object> body) {
+    public ResponseEntity<?> saveSelection(@RequestParam(value = "email", required = false) String email, @RequestBody Map<String, Object> body) {
         try {
             logger.debug("Saving checkout selection for user: {}", email);
             
@@ -161,7 +163,7 @@ public class CheckoutController {
      * This endpoint is called before placing the order to show final review
      */
     @GetMapping("/review")
-    public ResponseEntity<?> review(@RequestParam("email") String email) {
+    public ResponseEntity<?> review(@RequestParam(value = "email", required = false) String email) {
         try {
             logger.debug("Getting order review for user: {}", email);
             
@@ -257,7 +259,7 @@ public class CheckoutController {
      */
     @PostMapping("/place-order")
     @Transactional
-    public ResponseEntity<?> placeOrder(@RequestParam("email") String email) {
+    public ResponseEntity<?> placeOrder(@RequestParam(value = "email", required = false) String email) {
         try {
             logger.debug("Placing order for user: {}", email);
             
@@ -296,9 +298,12 @@ public class CheckoutController {
             
         } catch (IllegalArgumentException e) {
             logger.error("Invalid request for user: {}", email, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return ResponseEntity.badRequest().body(e.getMessage());
         } catch (RuntimeException e) {
+            // e.g. insufficient stock: undo any stock already taken and still answer 400
             logger.error("Error placing order for user: {}", email, e);
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (Exception e) {
             logger.error("Unexpected error placing order for user: {}", email, e);
@@ -25,7 +25,7 @@ public class DebugController {
 
     @GetMapping("/products")
     public List<Map<String, Object>> listProducts() {
-        return productRepository.findAll().stream()
+        return productRepository.findAllWithVariants().stream()
             .map(this::toSummary)
             .collect(Collectors.toList());
     }
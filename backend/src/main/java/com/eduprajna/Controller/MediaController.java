@@ -0,0 +1,88 @@
+package com.eduprajna.Controller;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.eduprajna.service.LegacyUploadMigrator;
+import com.eduprajna.service.MediaGarbageCollector;
+import com.eduprajna.service.StorageService;
+
+/**
+ * Admin view of the upload directory.
+ */
+@RestController
+@RequestMapping("/api/admin/media")
+@CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"}, allowCredentials = "true")
+public class MediaController {
+    private static final Logger logger = LoggerFactory.getLogger(MediaController.class);
+    private static final int MAX_PAGE_SIZE = 500;
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private LegacyUploadMigrator migrator;
+
+    @Autowired
+    private MediaGarbageCollector garbageCollector;
+
+    /**
+     * Stored files with size and mtime, in path order.
+     * Pass the returned nextCursor back as ?cursor= to get the following page.
+     */
+    @GetMapping
+    public ResponseEntity<?> list(@RequestParam(required = false) String cursor,
+                                  @RequestParam(defaultValue = "100") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        try {
+            return ResponseEntity.ok(storageService.list(cursor, pageSize));
+        } catch (IOException e) {
+            logger.error("Could not list uploads: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Could not list uploads"));
+        }
+    }
+
+    /**
+     * Move up to {@code limit} flat legacy uploads into the sharded layout. Repeat until
+     * the response says hasMore=false.
+     */
+    @PostMapping("/migrate")
+    public ResponseEntity<?> migrate(@RequestParam(defaultValue = "500") int limit) {
+        try {
+            return ResponseEntity.ok(migrator.migrate(Math.max(1, limit)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Legacy upload migration failed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Delete uploads no product image or cart line refers to (past the grace period). Defaults to a
+     * dry run that only reports what would be deleted; pass dryRun=false to delete.
+     */
+    @PostMapping("/gc")
+    public ResponseEntity<?> collectGarbage(@RequestParam(defaultValue = "true") boolean dryRun) {
+        try {
+            return ResponseEntity.ok(garbageCollector.collect(dryRun));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            logger.error("Media GC failed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package com.eduprajna.Controller;
 
 import com.eduprajna.dto.OrderDTO;
+import com.eduprajna.dto.OrderStatusBatchRequest;
 import com.eduprajna.entity.Order;
 import com.eduprajna.entity.User;
 import com.eduprajna.service.OrderService;
+import com.eduprajna.service.AuthenticatedUser;
 import com.eduprajna.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,8 +13,10 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +29,10 @@ import java.util.stream.Collectors;
 public class OrdersController {
     private static final Logger logger = LoggerFactory.getLogger(OrdersController.class);
     
+    private static final List<String> VALID_STATUSES = List.of("pending", "processing", "shipped", "delivered", "cancelled");
+    // Upper bound on orders per bulk status request
+    private static final int MAX_BATCH_SIZE = 500;
+    
     private final OrderService orderService;
     private final UserService userService;
 
@@ -39,15 +47,15 @@ public class OrdersController {
      * @return List of user's orders or error message
      */
     @GetMapping("/user")
-    public ResponseEntity<?> getUserOrders(@RequestParam("email") String email) {
+    public ResponseEntity<?> getUserOrders(@RequestParam(value = "email", required = false) String email) {
         try {
             logger.debug("Getting orders for user: {}", email);
             
-            if (email == null || email.trim().isEmpty()) {
+            if ((email == null || email.trim().isEmpty()) && AuthenticatedUser.current() == null) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Email is required"));
             }
             
-            User user = userService.findByEmail(email)
+            User user = userService.resolveCaller(email)
                 .orElseThrow(() -> new RuntimeException("User not found with email: " + email));
             
             List<Order> orders = orderService.getUserOrders(user);
@@ -115,9 +123,8 @@ public class OrdersController {
             }
             
             // Validate status values
-            List<String> validStatuses = List.of("pending", "processing", "shipped", "delivered", "cancelled");
-            if (!validStatuses.contains(newStatus.toLowerCase())) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Invalid status. Valid statuses: " + validStatuses));
+            if (!VALID_STATUSES.contains(newStatus.toLowerCase())) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid status. Valid statuses: " + VALID_STATUSES));
             }
             
             Order updatedOrder = orderService.updateStatus(orderId, newStatus.toLowerCase());
@@ -138,6 +145,48 @@ public class OrdersController {
         }
     }
 
+    /**
+     * Update the status of many orders at once (admin only), e.g. a fulfilment run
+     * marking a day's parcels as shipped. Status emails are queued with the update and
+     * sent in batches by the email outbox.
+     * @param request order ids and the new status
+     * @return ids updated and ids not found
+     */
+    @PostMapping("/admin/status")
+    public ResponseEntity<?> updateStatuses(@RequestBody OrderStatusBatchRequest request) {
+        try {
+            List<Long> orderIds = request.getOrderIds();
+            if (orderIds == null || orderIds.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "orderIds is required"));
+            }
+            if (orderIds.size() > MAX_BATCH_SIZE) {
+                return ResponseEntity.badRequest().body(Map.of("error", "At most " + MAX_BATCH_SIZE + " orders per request"));
+            }
+            String newStatus = request.getStatus();
+            if (newStatus == null || !VALID_STATUSES.contains(newStatus.trim().toLowerCase())) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid status. Valid statuses: " + VALID_STATUSES));
+            }
+            
+            Set<Long> requested = new LinkedHashSet<>(orderIds);
+            requested.remove(null);
+            List<Order> updated = orderService.updateStatuses(requested, newStatus.trim().toLowerCase());
+            
+            List<Long> updatedIds = updated.stream().map(Order::getId).collect(Collectors.toList());
+            requested.removeAll(updatedIds);
+            logger.info("Bulk updated {} orders to {}", updatedIds.size(), newStatus);
+            
+            return ResponseEntity.ok(Map.of(
+                "status", newStatus.trim().toLowerCase(),
+                "updated", updatedIds,
+                "notFound", List.copyOf(requested)));
+            
+        } catch (Exception e) {
+            logger.error("Error bulk updating order status", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Internal server error"));
+        }
+    }
+
     /**
      * Get a specific order by ID
      * @param orderId ID of the order
@@ -1,6 +1,9 @@
 package com.eduprajna.Controller;
 
+import com.eduprajna.exception.TooManyRequestsException;
+import com.eduprajna.service.AuthRateLimiter;
 import com.eduprajna.service.PasswordResetService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -23,6 +26,9 @@ public class PasswordResetController {
     
     @Autowired
     private PasswordResetService passwordResetService;
+
+    @Autowired
+    private AuthRateLimiter rateLimiter;
     
     /**
      * POST /api/password/forgot
@@ -107,7 +113,7 @@ public class PasswordResetController {
      * Response: { "success": true/false, "message": "..." }
      */
     @PostMapping("/reset")
-    public ResponseEntity<?> resetPassword(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> resetPassword(@RequestBody Map<String, String> request, HttpServletRequest httpRequest) {
         try {
             String token = request.get("token");
             String newPassword = request.get("newPassword");
@@ -126,6 +132,7 @@ public class PasswordResetController {
                 return ResponseEntity.badRequest()
                     .body(createErrorResponse("Password must be at least 6 characters long"));
             }
+            rateLimiter.acquire(httpRequest.getRemoteAddr(), null);
             
             boolean success = passwordResetService.resetPassword(token, newPassword);
             
@@ -140,6 +147,8 @@ public class PasswordResetController {
                 response.put("message", "Failed to reset password. Token may be invalid or expired.");
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error in resetPassword endpoint", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -155,7 +164,7 @@ public class PasswordResetController {
      * Response: { "success": true/false, "message": "..." }
      */
     @PostMapping("/send-credentials")
-    public ResponseEntity<?> sendForgottenCredentials(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> sendForgottenCredentials(@RequestBody Map<String, String> request, HttpServletRequest httpRequest) {
         try {
             String email = request.get("email");
             
@@ -164,6 +173,7 @@ public class PasswordResetController {
                     .body(createErrorResponse("Email is required"));
             }
             
+            rateLimiter.acquire(httpRequest.getRemoteAddr(), email);
             boolean success = passwordResetService.sendForgottenCredentials(email);
             
             Map<String, Object> response = new HashMap<>();
@@ -178,6 +188,8 @@ public class PasswordResetController {
                 response.put("message", "Email not found in our system or failed to send email");
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
+        } catch (TooManyRequestsException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("Error in sendForgottenCredentials endpoint", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
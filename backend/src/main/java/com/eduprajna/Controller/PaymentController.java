@@ -19,6 +19,8 @@ import com.eduprajna.entity.User;
 import com.eduprajna.repository.OrderRepository;
 import com.eduprajna.service.OrderService;
 import com.eduprajna.service.RazorpayService;
+import com.eduprajna.service.StockReservationService;
+import com.eduprajna.service.AuthenticatedUser;
 import com.eduprajna.service.UserService;
 
 @RestController
@@ -34,6 +36,7 @@ public class PaymentController {
     private final com.eduprajna.service.CartService cartService;
     private final com.eduprajna.repository.CheckoutSelectionRepository selectionRepo;
     private final com.eduprajna.repository.AddressRepository addressRepo;
+    private final StockReservationService stockReservationService;
 
     @Value("${razorpay.keyId:}")
     private String razorpayKeyId;
@@ -41,7 +44,8 @@ public class PaymentController {
     public PaymentController(RazorpayService razorpayService, OrderService orderService, UserService userService, OrderRepository orderRepo,
                              com.eduprajna.service.CartService cartService,
                              com.eduprajna.repository.CheckoutSelectionRepository selectionRepo,
-                             com.eduprajna.repository.AddressRepository addressRepo) {
+                             com.eduprajna.repository.AddressRepository addressRepo,
+                             StockReservationService stockReservationService) {
         this.razorpayService = razorpayService;
         this.orderService = orderService;
         this.userService = userService;
@@ -49,16 +53,17 @@ public class PaymentController {
         this.cartService = cartService;
         this.selectionRepo = selectionRepo;
         this.addressRepo = addressRepo;
+        this.stockReservationService = stockReservationService;
     }
 
     @PostMapping("/create-order")
-    public ResponseEntity<?> createOrder(@RequestParam("email") String email) {
+    public ResponseEntity<?> createOrder(@RequestParam(value = "email", required = false) String email) {
         try {
-            if (email == null || email.trim().isEmpty()) {
+            if ((email == null || email.trim().isEmpty()) && AuthenticatedUser.current() == null) {
                 return ResponseEntity.badRequest().body("Email is required");
             }
 
-            User user = userService.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
+            User user = userService.resolveCaller(email).orElseThrow(() -> new RuntimeException("User not found"));
 
             // Get checkout selection
             com.eduprajna.entity.CheckoutSelection selection = selectionRepo.findByUser(user).orElse(null);
@@ -107,7 +112,26 @@ public class PaymentController {
 
             String receipt = "receipt_" + System.currentTimeMillis() + "_" + user.getId();
 
-            Map<String, Object> created = razorpayService.createOrder(amountPaise, "INR", receipt);
+            // Hold the cart's stock while the customer is on the payment page
+            java.time.LocalDateTime reservedUntil;
+            try {
+                reservedUntil = stockReservationService.reserve(user);
+            } catch (IllegalStateException e) {
+                return ResponseEntity.status(409).body(e.getMessage());
+            }
+
+            Map<String, Object> created;
+            try {
+                created = razorpayService.createOrder(amountPaise, "INR", receipt);
+            } catch (Exception e) {
+                stockReservationService.release(user);
+                throw e;
+            }
+            // Keeps the holds for the length of the Razorpay checkout
+            java.time.LocalDateTime heldUntil = stockReservationService.attachRazorpayOrder(user, String.valueOf(created.get("id")));
+            if (heldUntil != null) {
+                reservedUntil = heldUntil;
+            }
 
             Map<String, Object> resp = new HashMap<>();
             resp.put("key", razorpayKeyId);
@@ -116,6 +140,9 @@ public class PaymentController {
             resp.put("currency", created.get("currency"));
             resp.put("receipt", created.get("receipt"));
             resp.put("total", total);
+            if (reservedUntil != null) {
+                resp.put("reservedUntil", reservedUntil.toString());
+            }
 
             return ResponseEntity.ok(resp);
 
@@ -133,7 +160,7 @@ public class PaymentController {
             String rzpOrderId = body.get("razorpay_order_id");
             String rzpSignature = body.get("razorpay_signature");
 
-            if (email == null || rzpPaymentId == null || rzpOrderId == null || rzpSignature == null) {
+            if ((email == null && AuthenticatedUser.current() == null) || rzpPaymentId == null || rzpOrderId == null || rzpSignature == null) {
                 logger.warn("Payment verification: Missing required fields for email: {}", email);
                 return ResponseEntity.badRequest().body(Map.of("error", "Missing required fields"));
             }
@@ -150,21 +177,17 @@ public class PaymentController {
             }
 
             // Place the application order using online payment method (doesn't require cart)
-            User user = userService.findByEmail(email).orElseThrow(() -> new RuntimeException("User not found"));
-            Order placed = orderService.placeOrderForOnlinePayment(user);
-
-            // Update order with payment data
-            placed.setRazorpayOrderId(rzpOrderId);
-            placed.setRazorpayPaymentId(rzpPaymentId);
-            placed.setPaymentStatus("paid");
-            placed.setStatus("paid");
-            Order updated = orderRepo.save(placed);
+            User user = userService.resolveCaller(email).orElseThrow(() -> new RuntimeException("User not found"));
+            // Records the payment on the order; lines that ran out of stock meanwhile
+            // leave it as a backorder instead of failing after the capture
+            Order placed = orderService.placeOrderForOnlinePayment(user, rzpOrderId, rzpPaymentId);
             
-            logger.info("Order placed successfully for user: {}, orderId: {}", email, updated.getId());
+            logger.info("Order placed successfully for user: {}, orderId: {}, status: {}", email, placed.getId(), placed.getStatus());
 
             Map<String, Object> resp = new HashMap<>();
-            resp.put("order", updated);
+            resp.put("order", placed);
             resp.put("success", true);
+            resp.put("backorder", "backorder".equals(placed.getStatus()));
             return ResponseEntity.ok(resp);
 
         } catch (Exception e) {
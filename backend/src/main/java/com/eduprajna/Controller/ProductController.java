@@ -9,8 +9,6 @@ import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -24,12 +22,14 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.eduprajna.entity.Product;
 import com.eduprajna.entity.ProductVariant;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.eduprajna.service.ImageIngestion;
 import com.eduprajna.service.ProductService;
 import com.eduprajna.service.StorageService;
 
@@ -41,9 +41,14 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    private static final String[] IMAGE_SLOTS = { "mainImage", "subImage1", "subImage2", "subImage3" };
+
     @Autowired
     private StorageService storageService;
 
+    @Autowired
+    private ImageIngestion imageIngestion;
+
     @GetMapping
     public ResponseEntity<List<Product>> getAll() {
         return ResponseEntity.ok(productService.getAll());
@@ -58,44 +63,17 @@ public class ProductController {
     }
 
     @PostMapping(consumes = { "multipart/form-data" })
-    public ResponseEntity<Product> create(
+    public ResponseEntity<?> create(
             @RequestPart("product") Product p,
             @RequestParam(required = false) Map<String, MultipartFile> allFiles,
             @RequestPart(value = "variants", required = false) String variantsJson) throws IOException {
-        // Handle variants if provided
-        if (variantsJson != null && !variantsJson.isBlank()) {
-            List<ProductVariant> variants = new ObjectMapper().readValue(variantsJson,
-                    new TypeReference<List<ProductVariant>>() {
-                    });
-            for (int i = 0; i < variants.size(); i++) {
-                ProductVariant variant = variants.get(i);
-
-                if (allFiles != null) {
-                    MultipartFile variantMainImage = allFiles.get("variant_" + i + "_mainImage");
-                    MultipartFile variantSubImage1 = allFiles.get("variant_" + i + "_subImage1");
-                    MultipartFile variantSubImage2 = allFiles.get("variant_" + i + "_subImage2");
-                    MultipartFile variantSubImage3 = allFiles.get("variant_" + i + "_subImage3");
-
-                    if (variantMainImage != null && !variantMainImage.isEmpty()) {
-                        variant.setMainImage(storageService.store(variantMainImage));
-                    }
-                    if (variantSubImage1 != null && !variantSubImage1.isEmpty()) {
-                        variant.setSubImage1(storageService.store(variantSubImage1));
-                    }
-                    if (variantSubImage2 != null && !variantSubImage2.isEmpty()) {
-                        variant.setSubImage2(storageService.store(variantSubImage2));
-                    }
-                    if (variantSubImage3 != null && !variantSubImage3.isEmpty()) {
-                        variant.setSubImage3(storageService.store(variantSubImage3));
-                    }
-                }
-
-                p.addVariant(variant);
-            }
+        Map<String, String> stored;
+        try {
+            stored = addVariants(p, variantsJson, allFiles);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
-
-        Product saved = productService.save(p);
-        return ResponseEntity.ok(saved);
+        return ResponseEntity.ok(saveOrDiscard(p, stored));
     }
 
     @PutMapping(value = "/{id}", consumes = { "application/json" })
@@ -151,50 +129,64 @@ public class ProductController {
     }
 
     @PutMapping(value = "/{id}", consumes = { "multipart/form-data" })
-    public ResponseEntity<Product> updateMultipart(
+    public ResponseEntity<?> updateMultipart(
             @PathVariable Long id,
             @RequestPart("product") Product p,
             @RequestParam(required = false) Map<String, MultipartFile> allFiles,
             @RequestPart(value = "variants", required = false) String variantsJson) throws IOException {
         p.setId(id);
-
-        // Handle variants if provided
+        // Existing variants are replaced when variants are provided
         if (variantsJson != null && !variantsJson.isBlank()) {
-            List<ProductVariant> variants = new ObjectMapper().readValue(variantsJson,
-                    new TypeReference<List<ProductVariant>>() {
-                    });
-            // Clear existing variants
             p.getVariants().clear();
+        }
+        Map<String, String> stored;
+        try {
+            stored = addVariants(p, variantsJson, allFiles);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.ok(saveOrDiscard(p, stored));
+    }
 
-            // Add new variants
+    // Adds the variants from the JSON part to the product, storing their images
+    // (variant_<i>_mainImage, variant_<i>_subImage1..3) in parallel. Returns the stored urls.
+    private Map<String, String> addVariants(Product p, String variantsJson, Map<String, MultipartFile> allFiles)
+            throws IOException {
+        if (variantsJson == null || variantsJson.isBlank()) return Map.of();
+        List<ProductVariant> variants = new ObjectMapper().readValue(variantsJson,
+                new TypeReference<List<ProductVariant>>() {
+                });
+        Map<String, MultipartFile> parts = new HashMap<>();
+        if (allFiles != null) {
             for (int i = 0; i < variants.size(); i++) {
-                ProductVariant variant = variants.get(i);
-
-                if (allFiles != null) {
-                    MultipartFile variantMainImage = allFiles.get("variant_" + i + "_mainImage");
-                    MultipartFile variantSubImage1 = allFiles.get("variant_" + i + "_subImage1");
-                    MultipartFile variantSubImage2 = allFiles.get("variant_" + i + "_subImage2");
-                    MultipartFile variantSubImage3 = allFiles.get("variant_" + i + "_subImage3");
-
-                    if (variantMainImage != null && !variantMainImage.isEmpty()) {
-                        variant.setMainImage(storageService.store(variantMainImage));
-                    }
-                    if (variantSubImage1 != null && !variantSubImage1.isEmpty()) {
-                        variant.setSubImage1(storageService.store(variantSubImage1));
-                    }
-                    if (variantSubImage2 != null && !variantSubImage2.isEmpty()) {
-                        variant.setSubImage2(storageService.store(variantSubImage2));
-                    }
-                    if (variantSubImage3 != null && !variantSubImage3.isEmpty()) {
-                        variant.setSubImage3(storageService.store(variantSubImage3));
-                    }
+                for (String slot : IMAGE_SLOTS) {
+                    String key = "variant_" + i + "_" + slot;
+                    MultipartFile part = allFiles.get(key);
+                    if (part != null) parts.put(key, part);
                 }
-
-                p.addVariant(variant);
             }
         }
+        Map<String, String> stored = imageIngestion.storeAll(parts);
+        for (int i = 0; i < variants.size(); i++) {
+            ProductVariant variant = variants.get(i);
+            String prefix = "variant_" + i + "_";
+            if (stored.containsKey(prefix + "mainImage")) variant.setMainImage(stored.get(prefix + "mainImage"));
+            if (stored.containsKey(prefix + "subImage1")) variant.setSubImage1(stored.get(prefix + "subImage1"));
+            if (stored.containsKey(prefix + "subImage2")) variant.setSubImage2(stored.get(prefix + "subImage2"));
+            if (stored.containsKey(prefix + "subImage3")) variant.setSubImage3(stored.get(prefix + "subImage3"));
+            p.addVariant(variant);
+        }
+        return stored;
+    }
 
-        return ResponseEntity.ok(productService.save(p));
+    // Saves the product; if that fails, the images stored for it are removed again
+    private Product saveOrDiscard(Product p, Map<String, String> stored) {
+        try {
+            return productService.save(p);
+        } catch (RuntimeException e) {
+            imageIngestion.discard(stored.values());
+            throw e;
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -236,26 +228,23 @@ public class ProductController {
 
     // Serve uploaded images via API so frontend can display them
     @GetMapping("/images/{filename:.+}")
-    public ResponseEntity<Resource> getImage(@PathVariable String filename) throws IOException {
-        // If filename contains path separators, extract just the filename
-        if (filename.contains("/")) {
-            filename = filename.substring(filename.lastIndexOf('/') + 1);
-        }
-        Resource resource = storageService.loadAsResource(filename);
-        MediaType contentType = storageService.probeMediaType(filename);
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CACHE_CONTROL, "max-age=86400, public")
-                .contentType(contentType)
-                .body(resource);
+    public ResponseEntity<Resource> getImage(@PathVariable String filename,
+            @RequestParam(value = "w", required = false) Integer width, ServletWebRequest webRequest) throws IOException {
+        return UploadResponses.serve(storageService, filename, width, webRequest);
+    }
+
+    @GetMapping("/images/{shard1:[0-9a-f]{2}}/{shard2:[0-9a-f]{2}}/{filename:.+}")
+    public ResponseEntity<Resource> getShardedImage(@PathVariable String shard1, @PathVariable String shard2,
+            @PathVariable String filename, @RequestParam(value = "w", required = false) Integer width,
+            ServletWebRequest webRequest) throws IOException {
+        return UploadResponses.serve(storageService, shard1 + "/" + shard2 + "/" + filename, width, webRequest);
     }
 
-    // List all stored image filenames (or absolute URLs)
+    // List stored images as API URLs, a page at a time (see /api/admin/media for sizes and the cursor)
     @GetMapping("/images")
-    public ResponseEntity<List<String>> listImages() {
-        List<String> files = storageService.listAll();
-        // Convert filenames to API URLs for convenience
-        List<String> urls = files.stream()
-                .map(name -> "/api/admin/products/images/" + name)
+    public ResponseEntity<List<String>> listImages(@RequestParam(required = false) String cursor) throws IOException {
+        List<String> urls = storageService.list(cursor, 500).items.stream()
+                .map(item -> "/api/admin/products/images/" + item.path)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(urls);
     }
@@ -3,7 +3,10 @@ package com.eduprajna.Controller;
 import com.eduprajna.dto.PasswordUpdateRequest;
 import com.eduprajna.dto.ProfileDTO;
 import com.eduprajna.entity.User;
+import com.eduprajna.service.AuthRateLimiter;
+import com.eduprajna.service.PasswordHasher;
 import com.eduprajna.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,21 +18,27 @@ import java.util.Map;
 @CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"}, allowCredentials = "true")
 public class ProfileController {
     private final UserService userService;
-    public ProfileController(UserService userService) { this.userService = userService; }
+    private final PasswordHasher passwordHasher;
+    private final AuthRateLimiter rateLimiter;
+    public ProfileController(UserService userService, PasswordHasher passwordHasher, AuthRateLimiter rateLimiter) {
+        this.userService = userService;
+        this.passwordHasher = passwordHasher;
+        this.rateLimiter = rateLimiter;
+    }
 
-    // In a real app, derive email/userId from JWT. Here we accept email param for simplicity.
+    // The caller comes from the bearer token; the email param is the fallback for clients without one
     @GetMapping("/profile")
-    public ResponseEntity<?> getProfile(@RequestParam("email") String email) {
-        return userService.findByEmail(email)
+    public ResponseEntity<?> getProfile(@RequestParam(value = "email", required = false) String email) {
+        return userService.resolveCaller(email)
                 .<ResponseEntity<?>>map(user -> ResponseEntity.ok(toProfileDTO(user)))
                 .orElseGet(() -> ResponseEntity.status(404).body(Map.of("message", "User not found")));
     }
 
     @PutMapping("/profile")
-    public ResponseEntity<?> updateProfile(@RequestParam("email") String email,
+    public ResponseEntity<?> updateProfile(@RequestParam(value = "email", required = false) String email,
                                           @RequestBody Map<String, Object> profileData) {
         try {
-            java.util.Optional<User> userOpt = userService.findByEmail(email);
+            java.util.Optional<User> userOpt = userService.resolveCaller(email);
             if (userOpt.isEmpty()) {
                 return ResponseEntity.status(404).body(Map.of("message", "User not found"));
             }
@@ -79,14 +88,16 @@ public class ProfileController {
     }
 
     @PostMapping("/password")
-    public ResponseEntity<?> updatePassword(@RequestParam("email") String email,
-                                            @Valid @RequestBody PasswordUpdateRequest req) {
-        return userService.findByEmail(email).map(user -> {
-            // For demo: compare plain text. In production, verify hash.
-            if (user.getPasswordHash() == null || !user.getPasswordHash().equals(req.getCurrentPassword())) {
+    public ResponseEntity<?> updatePassword(@RequestParam(value = "email", required = false) String email,
+                                            @Valid @RequestBody PasswordUpdateRequest req,
+                                            HttpServletRequest request) {
+        return userService.resolveCaller(email).map(user -> {
+            rateLimiter.acquire(request.getRemoteAddr(), user.getEmail());
+            // Accepts both bcrypt hashes and legacy plain-text passwords
+            if (!passwordHasher.matches(req.getCurrentPassword(), user.getPasswordHash())) {
                 return ResponseEntity.status(400).body(Map.of("message", "Current password is incorrect"));
             }
-            user.setPasswordHash(req.getNewPassword());
+            user.setPasswordHash(passwordHasher.encode(req.getNewPassword()));
             // Optionally track last password change if field exists (not in entity now)
             userService.save(user);
             return ResponseEntity.ok(Map.of("message", "Password updated successfully"));
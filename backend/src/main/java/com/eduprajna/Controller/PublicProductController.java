@@ -1,7 +1,9 @@
 package com.eduprajna.Controller;
 
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.LongPredicate;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -12,136 +14,134 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.eduprajna.dto.FacetResultDTO;
+import com.eduprajna.dto.ProductPageDTO;
+import com.eduprajna.dto.ProductSummaryDTO;
+import com.eduprajna.dto.SuggestionDTO;
 import com.eduprajna.entity.Product;
+import com.eduprajna.service.CatalogService;
+import com.eduprajna.service.ProductFacetIndex;
 import com.eduprajna.service.ProductService;
+import com.eduprajna.service.ProductSuggester;
 
 @RestController
 @RequestMapping("/api/products")
 @CrossOrigin(origins = {"http://localhost:3000", "http://127.0.0.1:3000"}, allowCredentials = "true")
 public class PublicProductController {
     
+    private static final int MAX_PAGE_SIZE = 100;
+
+    @Autowired
+    private CatalogService catalogService;
+
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductSuggester productSuggester;
+
+    @Autowired
+    private ProductFacetIndex productFacetIndex;
+
     /**
      * Get all active products for public consumption
-     * Supports filtering by category, search, and other parameters
+     * Supports filtering by category, search, and other parameters.
+     * subcategory/fabric/color/inStock/price take facet values (see /facets) and may repeat.
+     * Returns compact summaries; the full product with variants is at /{id}.
+     * Served from the in-memory catalog snapshot; no database access.
      */
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts(
+    public ResponseEntity<List<ProductSummaryDTO>> getAllProducts(
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String sort,
             @RequestParam(required = false) Boolean featured,
             @RequestParam(required = false) Double minPrice,
-            @RequestParam(required = false) Double maxPrice
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) List<String> subcategory,
+            @RequestParam(required = false) List<String> fabric,
+            @RequestParam(required = false) List<String> color,
+            @RequestParam(required = false) List<String> inStock,
+            @RequestParam(required = false) List<String> price
     ) {
-        // Get all active products
-        List<Product> products = productService.getAll().stream()
-                .filter(p -> p.getIsActive() != null && p.getIsActive()) // Only active products
-                .collect(Collectors.toList());
-
-        // Apply category filter
-        if (category != null && !category.trim().isEmpty()) {
-            products = products.stream()
-                    .filter(p -> {
-                        String productCategory = p.getCategory();
-                        if (productCategory == null) return false;
-                        
-                        // Case-insensitive matching with multiple strategies
-                        String categoryLower = category.toLowerCase().trim();
-                        String productCategoryLower = productCategory.toLowerCase().trim();
-                        
-                        // Direct match
-                        if (productCategoryLower.equals(categoryLower)) return true;
-                        
-                        // Handle URL-encoded spaces and hyphens
-                        String normalizedCategory = categoryLower.replace("%20", " ").replace("-", " ").replace("_", " ");
-                        String normalizedProductCategory = productCategoryLower.replace("-", " ").replace("_", " ");
-                        
-                        if (normalizedProductCategory.equals(normalizedCategory)) return true;
-                        
-                        // Partial matching
-                        return normalizedProductCategory.contains(normalizedCategory) || 
-                               normalizedCategory.contains(normalizedProductCategory);
-                    })
-                    .collect(Collectors.toList());
-        }
+        Map<String, List<String>> selected = facetSelection(null, subcategory, fabric, color, inStock, price);
+        LongPredicate facetFilter = selected.isEmpty() ? null : productFacetIndex.matcher(selected);
+        return ResponseEntity.ok(catalogService.list(category, search, sort, minPrice, maxPrice, facetFilter));
+    }
 
-        // Apply search filter
-        if (search != null && !search.trim().isEmpty()) {
-            String searchLower = search.toLowerCase().trim();
-            products = products.stream()
-                    .filter(p -> {
-                        String name = p.getName() != null ? p.getName().toLowerCase() : "";
-                        String description = p.getDescription() != null ? p.getDescription().toLowerCase() : "";
-                        String productCategory = p.getCategory() != null ? p.getCategory().toLowerCase() : "";
-                        
-                        return name.contains(searchLower) || 
-                               description.contains(searchLower) || 
-                               productCategory.contains(searchLower);
-                    })
-                    .collect(Collectors.toList());
-        }
+    /**
+     * Per-value counts for category, subcategory, fabric, color, stock and price bucket
+     * under the given selection. Each parameter may be repeated to select several values.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<FacetResultDTO> getFacets(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) List<String> category,
+            @RequestParam(required = false) List<String> subcategory,
+            @RequestParam(required = false) List<String> fabric,
+            @RequestParam(required = false) List<String> color,
+            @RequestParam(required = false) List<String> inStock,
+            @RequestParam(required = false) List<String> price
+    ) {
+        Map<String, List<String>> selected = facetSelection(category, subcategory, fabric, color, inStock, price);
+        return ResponseEntity.ok(productFacetIndex.counts(selected, search));
+    }
 
-        // Apply price filter
-        if (minPrice != null) {
-            products = products.stream()
-                    .filter(p -> p.getPrice() != null && p.getPrice() >= minPrice)
-                    .collect(Collectors.toList());
-        }
+    private static Map<String, List<String>> facetSelection(List<String> category, List<String> subcategory,
+                                                            List<String> fabric, List<String> color,
+                                                            List<String> inStock, List<String> price) {
+        Map<String, List<String>> selected = new LinkedHashMap<>();
+        putIfPresent(selected, ProductFacetIndex.CATEGORY, category);
+        putIfPresent(selected, ProductFacetIndex.SUBCATEGORY, subcategory);
+        putIfPresent(selected, ProductFacetIndex.FABRIC, fabric);
+        putIfPresent(selected, ProductFacetIndex.COLOR, color);
+        putIfPresent(selected, ProductFacetIndex.IN_STOCK, inStock);
+        putIfPresent(selected, ProductFacetIndex.PRICE, price);
+        return selected;
+    }
 
-        if (maxPrice != null) {
-            products = products.stream()
-                    .filter(p -> p.getPrice() != null && p.getPrice() <= maxPrice)
-                    .collect(Collectors.toList());
+    private static void putIfPresent(Map<String, List<String>> selected, String facet, List<String> values) {
+        if (values != null && !values.isEmpty()) {
+            selected.put(facet, values);
         }
+    }
 
-        // Apply sorting
-        if (sort != null) {
-            switch (sort.toLowerCase()) {
-                case "price-low-high":
-                    products.sort((a, b) -> {
-                        Double priceA = a.getPrice() != null ? a.getPrice() : 0.0;
-                        Double priceB = b.getPrice() != null ? b.getPrice() : 0.0;
-                        return priceA.compareTo(priceB);
-                    });
-                    break;
-                case "price-high-low":
-                    products.sort((a, b) -> {
-                        Double priceA = a.getPrice() != null ? a.getPrice() : 0.0;
-                        Double priceB = b.getPrice() != null ? b.getPrice() : 0.0;
-                        return priceB.compareTo(priceA);
-                    });
-                    break;
-                case "name-a-z":
-                    products.sort((a, b) -> {
-                        String nameA = a.getName() != null ? a.getName() : "";
-                        String nameB = b.getName() != null ? b.getName() : "";
-                        return nameA.compareToIgnoreCase(nameB);
-                    });
-                    break;
-                case "name-z-a":
-                    products.sort((a, b) -> {
-                        String nameA = a.getName() != null ? a.getName() : "";
-                        String nameB = b.getName() != null ? b.getName() : "";
-                        return nameB.compareToIgnoreCase(nameA);
-                    });
-                    break;
-                case "newest":
-                    products.sort((a, b) -> Long.compare(b.getId(), a.getId()));
-                    break;
-                case "oldest":
-                    products.sort((a, b) -> Long.compare(a.getId(), b.getId()));
-                    break;
-                default:
-                    // Default sorting by ID descending (newest first)
-                    products.sort((a, b) -> Long.compare(b.getId(), a.getId()));
-                    break;
-            }
+    /**
+     * Paginated listing with filtering and sorting pushed into SQL.
+     * Pass the returned nextCursor back as ?cursor= to get the following page.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getProductPage(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "24") int limit
+    ) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        try {
+            ProductPageDTO page = productService.getActivePage(category, search, minPrice, maxPrice, sort, cursor, pageSize);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
+    }
 
-        return ResponseEntity.ok(products);
+    /**
+     * Typeahead completions for the search box, best sellers first.
+     * Answered from an in-memory trie; no database access.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam(required = false) String q,
+            @RequestParam(defaultValue = "8") int limit
+    ) {
+        if (q == null || q.trim().isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        return ResponseEntity.ok(productSuggester.suggest(q, Math.max(1, limit)));
     }
 
     /**
@@ -149,17 +149,11 @@ public class PublicProductController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<Product> getProductById(@PathVariable Long id) {
-        Product product = productService.getById(id);
-        
-        // Check if product exists and is active
+        // The snapshot only holds active products, so inactive ones are hidden from the public
+        Product product = catalogService.getActive(id);
         if (product == null) {
             return ResponseEntity.notFound().build();
         }
-        
-        if (product.getIsActive() == null || !product.getIsActive()) {
-            return ResponseEntity.notFound().build(); // Don't show inactive products to public
-        }
-        
         return ResponseEntity.ok(product);
     }
 
@@ -167,45 +161,18 @@ public class PublicProductController {
      * Get products by category
      */
     @GetMapping("/category/{categoryName}")
-    public ResponseEntity<List<Product>> getProductsByCategory(@PathVariable String categoryName) {
-        List<Product> products = productService.getAll().stream()
-                .filter(p -> p.getIsActive() != null && p.getIsActive()) // Only active products
-                .filter(p -> {
-                    String productCategory = p.getCategory();
-                    if (productCategory == null) return false;
-                    
-                    // Case-insensitive matching
-                    return productCategory.toLowerCase().equals(categoryName.toLowerCase()) ||
-                           productCategory.toLowerCase().replace("-", " ").equals(categoryName.toLowerCase().replace("-", " "));
-                })
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(products);
+    public ResponseEntity<List<ProductSummaryDTO>> getProductsByCategory(@PathVariable String categoryName) {
+        return ResponseEntity.ok(catalogService.byCategory(categoryName));
     }
 
     /**
      * Search products
      */
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProducts(@RequestParam String q) {
+    public ResponseEntity<List<ProductSummaryDTO>> searchProducts(@RequestParam String q) {
         if (q == null || q.trim().isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
-
-        String searchTerm = q.toLowerCase().trim();
-        List<Product> products = productService.getAll().stream()
-                .filter(p -> p.getIsActive() != null && p.getIsActive()) // Only active products
-                .filter(p -> {
-                    String name = p.getName() != null ? p.getName().toLowerCase() : "";
-                    String description = p.getDescription() != null ? p.getDescription().toLowerCase() : "";
-                    String category = p.getCategory() != null ? p.getCategory().toLowerCase() : "";
-                    
-                    return name.contains(searchTerm) || 
-                           description.contains(searchTerm) || 
-                           category.contains(searchTerm);
-                })
-                .collect(Collectors.toList());
-
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok(catalogService.search(q));
     }
 }
@@ -4,14 +4,14 @@ import java.io.IOException;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import com.eduprajna.service.StorageService;
 
@@ -24,16 +24,16 @@ public class UploadController {
     private StorageService storageService;
 
     @GetMapping("/{filename:.+}")
-    public ResponseEntity<Resource> getUpload(@PathVariable String filename) throws IOException {
-        // If filename contains path separators, extract just the filename
-        if (filename.contains("/")) {
-            filename = filename.substring(filename.lastIndexOf('/') + 1);
-        }
-        Resource resource = storageService.loadAsResource(filename);
-        MediaType contentType = storageService.probeMediaType(filename);
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CACHE_CONTROL, "max-age=86400, public")
-                .contentType(contentType)
-                .body(resource);
+    public ResponseEntity<Resource> getUpload(@PathVariable String filename,
+            @RequestParam(value = "w", required = false) Integer width, ServletWebRequest webRequest) throws IOException {
+        return UploadResponses.serve(storageService, filename, width, webRequest);
+    }
+
+    // Content-addressed uploads: /uploads/ab/cd/<sha256>.jpg
+    @GetMapping("/{shard1:[0-9a-f]{2}}/{shard2:[0-9a-f]{2}}/{filename:.+}")
+    public ResponseEntity<Resource> getShardedUpload(@PathVariable String shard1, @PathVariable String shard2,
+            @PathVariable String filename, @RequestParam(value = "w", required = false) Integer width,
+            ServletWebRequest webRequest) throws IOException {
+        return UploadResponses.serve(storageService, shard1 + "/" + shard2 + "/" + filename, width, webRequest);
     }
 }
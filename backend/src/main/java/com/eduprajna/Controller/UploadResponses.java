@@ -0,0 +1,126 @@
+package com.eduprajna.Controller;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.eduprajna.service.ImageDerivatives;
+import com.eduprajna.service.StorageService;
+import com.eduprajna.service.StoredFile;
+
+/**
+ * Builds the response for an uploaded file, shared by /uploads and the admin image endpoint.
+ *
+ * <ul>
+ *   <li>If-None-Match / If-Modified-Since matching the file's ETag or mtime get 304</li>
+ *   <li>Range requests get a FileSystemResource, which Spring answers with 206 and the
+ *       requested region(s)</li>
+ *   <li>Whole-file GETs on Tomcat use sendfile, so the bytes go from the page cache to
+ *       the socket without passing through the heap</li>
+ *   <li>{@code ?w=} picks the nearest pre-scaled derivative (see ImageDerivatives); while
+ *       it is still being generated the original is served with a short max-age</li>
+ *   <li>Content-addressed files ({@code ab/cd/<sha256>.jpg}) are cached for a year as
+ *       immutable, since a new upload always gets a new name</li>
+ *   <li>Small, hot files are answered from the MediaCache with a single write of an
+ *       off-heap buffer, without touching the store</li>
+ *   <li>Files in a remote store are answered with a redirect to a presigned URL, so the
+ *       bytes go straight from the store to the client; with redirects disabled they are
+ *       streamed through</li>
+ * </ul>
+ */
+final class UploadResponses {
+
+    // Tomcat request attributes for sendfile (same as its DefaultServlet uses)
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_CONTROL = "max-age=86400, public";
+    private static final String CACHE_CONTROL_FALLBACK = "max-age=300, public";
+    private static final String CACHE_CONTROL_IMMUTABLE = "max-age=31536000, public, immutable";
+
+    private UploadResponses() {
+    }
+
+    static ResponseEntity<Resource> serve(StorageService storage, String filename, Integer width,
+                                          ServletWebRequest webRequest) throws IOException {
+        // Legacy names are flat; keep just the filename unless it is a sharded content-addressed path
+        if (filename.contains("/") && !storage.isContentAddressed(filename)) {
+            filename = filename.substring(filename.lastIndexOf('/') + 1);
+        }
+        StoredFile file = storage.stat(filename, width);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if (webRequest.checkNotModified(file.getEtag(), file.getLastModified())) {
+            // Status 304 and validators are already set on the response
+            return null;
+        }
+
+        boolean fallback = width != null && !ImageDerivatives.isDerivative(file.getKey());
+        String cacheControl = fallback ? CACHE_CONTROL_FALLBACK
+                : file.isImmutable() ? CACHE_CONTROL_IMMUTABLE : CACHE_CONTROL;
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok()
+                .header(HttpHeaders.CACHE_CONTROL, cacheControl)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .contentType(file.getMediaType());
+
+        HttpServletRequest request = webRequest.getRequest();
+        boolean wholeFile = request.getHeader(HttpHeaders.RANGE) == null && "GET".equals(request.getMethod());
+        if (wholeFile) {
+            ByteBuffer content = storage.cachedContent(file);
+            if (content != null) {
+                write(webRequest.getResponse(), file, cacheControl, content);
+                return null;
+            }
+        }
+
+        if (file.getPath() == null) {
+            URI presigned = storage.presignedUrl(file);
+            if (presigned != null) {
+                // The URL stays the same for half its lifetime, so the redirect may be cached that long
+                return ResponseEntity.status(HttpStatus.FOUND).location(presigned)
+                        .header(HttpHeaders.CACHE_CONTROL, "private, max-age=" + storage.getPresignTtlSeconds() / 2)
+                        .build();
+            }
+            return ok.contentLength(file.getSize()).body(storage.open(file));
+        }
+
+        if (wholeFile && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getPath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, file.getSize());
+            return ok.contentLength(file.getSize()).build();
+        }
+        return ok.body(storage.open(file));
+    }
+
+    // Validators were already set by checkNotModified
+    private static void write(HttpServletResponse response, StoredFile file, String cacheControl,
+                              ByteBuffer content) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(file.getMediaType().toString());
+        response.setContentLengthLong(content.remaining());
+        ServletOutputStream out = response.getOutputStream();
+        if (out instanceof CoyoteOutputStream coyote) {
+            coyote.write(content);
+        } else {
+            Channels.newChannel(out).write(content);
+        }
+    }
+}
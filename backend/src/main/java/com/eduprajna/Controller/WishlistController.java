@@ -35,12 +35,12 @@ public class WishlistController {
     private UserService userService;
 
     private User requireUser(String email) {
-        return userService.findByEmail(email)
+        return userService.resolveCaller(email)
                 .orElseThrow(() -> new RuntimeException("User not found: " + email));
     }
 
     @GetMapping
-    public ResponseEntity<?> getWishlist(@RequestParam("email") String email) {
+    public ResponseEntity<?> getWishlist(@RequestParam(value = "email", required = false) String email) {
         try {
             logger.debug("Fetching wishlist for user: {}", email);
             User user = requireUser(email);
@@ -56,7 +56,7 @@ public class WishlistController {
     }
 
     @GetMapping("/count")
-    public ResponseEntity<?> getWishlistCount(@RequestParam("email") String email) {
+    public ResponseEntity<?> getWishlistCount(@RequestParam(value = "email", required = false) String email) {
         try {
             logger.debug("Counting wishlist for user: {}", email);
             User user = requireUser(email);
@@ -72,7 +72,7 @@ public class WishlistController {
     }
 
     @PostMapping
-    public ResponseEntity<?> addToWishlist(@RequestParam("email") String email, @RequestBody Map<String, Object> body) {
+    public ResponseEntity<?> addToWishlist(@RequestParam(value = "email", required = false) String email, @RequestBody Map<String, Object> body) {
         try {
             logger.debug("Adding to wishlist for user: {}", email);
             if (body.get("productId") == null) {
@@ -92,7 +92,7 @@ public class WishlistController {
     }
 
     @DeleteMapping("/{productId}")
-    public ResponseEntity<?> removeFromWishlist(@RequestParam("email") String email, @PathVariable("productId") Long productId) {
+    public ResponseEntity<?> removeFromWishlist(@RequestParam(value = "email", required = false) String email, @PathVariable("productId") Long productId) {
         try {
             logger.debug("Removing from wishlist for user: {} product: {}", email, productId);
             User user = requireUser(email);
@@ -0,0 +1,47 @@
+package com.eduprajna.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.eduprajna.service.BlobStore;
+import com.eduprajna.service.LocalBlobStore;
+import com.eduprajna.service.S3BlobStore;
+
+/**
+ * Picks where uploads are kept from app.storage.backend: "local" (default, the upload
+ * directory) or "s3" (a bucket on any S3-compatible service, shared by all app nodes).
+ */
+@Configuration
+public class BlobStoreConfig {
+    private static final Logger logger = LoggerFactory.getLogger(BlobStoreConfig.class);
+
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "local", matchIfMissing = true)
+    public BlobStore localBlobStore(@Value("${spring.servlet.multipart.location:./uploads}") String uploadDir) {
+        LocalBlobStore store = new LocalBlobStore(uploadDir);
+        logger.info("Uploads stored in {}", store.getRoot());
+        return store;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.storage.backend", havingValue = "s3")
+    public BlobStore s3BlobStore(@Value("${app.storage.s3.endpoint}") String endpoint,
+                                 @Value("${app.storage.s3.region:us-east-1}") String region,
+                                 @Value("${app.storage.s3.bucket}") String bucket,
+                                 @Value("${app.storage.s3.access-key}") String accessKey,
+                                 @Value("${app.storage.s3.secret-key}") String secretKey,
+                                 @Value("${app.storage.s3.path-style:true}") boolean pathStyle,
+                                 @Value("${app.storage.s3.multipart-threshold-mb:16}") long thresholdMb,
+                                 @Value("${app.storage.s3.part-size-mb:8}") long partSizeMb) {
+        if (accessKey.isBlank() || secretKey.isBlank()) {
+            throw new IllegalStateException("app.storage.backend=s3 needs app.storage.s3.access-key and secret-key");
+        }
+        logger.info("Uploads stored in bucket {} at {}", bucket, endpoint);
+        return new S3BlobStore(endpoint, region, bucket, accessKey, secretKey, pathStyle,
+                thresholdMb * 1024 * 1024, partSizeMb * 1024 * 1024);
+    }
+}
@@ -0,0 +1,35 @@
+package com.eduprajna.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import com.eduprajna.service.EmailOutboxService;
+import com.eduprajna.service.SmtpTransports;
+
+/**
+ * GET /actuator/mailtransport: SMTP connection pool and circuit breaker state per route,
+ * plus the email outbox queue depth and recent batch reports.
+ */
+@Component
+@Endpoint(id = "mailtransport")
+public class MailTransportEndpoint {
+
+    private final SmtpTransports smtpTransports;
+    private final EmailOutboxService emailOutbox;
+
+    public MailTransportEndpoint(SmtpTransports smtpTransports, EmailOutboxService emailOutbox) {
+        this.smtpTransports = smtpTransports;
+        this.emailOutbox = emailOutbox;
+    }
+
+    @ReadOperation
+    public Map<String, Object> state() {
+        Map<String, Object> state = new LinkedHashMap<>(smtpTransports.state());
+        state.put("outbox", emailOutbox.stats());
+        return state;
+    }
+}
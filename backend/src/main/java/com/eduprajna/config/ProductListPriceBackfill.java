@@ -0,0 +1,36 @@
+package com.eduprajna.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import com.eduprajna.service.ProductService;
+
+/**
+ * Populates product.list_price for rows created before the column existed so
+ * the paginated listing can filter and sort on it in SQL.
+ */
+@Component
+public class ProductListPriceBackfill implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductListPriceBackfill.class);
+
+    private final ProductService productService;
+
+    public ProductListPriceBackfill(ProductService productService) {
+        this.productService = productService;
+    }
+
+    @Override
+    public void run(String... args) {
+        try {
+            int updated = productService.backfillListPrices();
+            if (updated > 0) {
+                log.info("Backfilled list_price for {} products", updated);
+            }
+        } catch (Exception ex) {
+            log.error("list_price backfill failed: {}", ex.getMessage(), ex);
+        }
+    }
+}
@@ -1,18 +1,24 @@
 package com.eduprajna.config;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import com.eduprajna.filter.AccessTokenFilter;
+import com.eduprajna.service.AccessTokenService;
+
 /**
  * Security configuration for the application
  * Opens public APIs for password reset and keeps other endpoints secured
@@ -32,14 +38,25 @@ public class SecurityConfig {
 
     /**
      * Security filter chain to allow public password-reset endpoints and basic auth for the rest.
+     * Bearer access tokens issued at login are verified statelessly by AccessTokenFilter.
+     * Actuator endpoints other than health (metrics, mailtransport) and the admin APIs
+     * under /api/admin and /api/orders/admin need an admin token. Product images are
+     * served from under /api/admin/products/images but are loaded by storefront pages,
+     * so they stay public.
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AccessTokenService accessTokens) throws Exception {
         http
             .csrf(AbstractHttpConfigurer::disable)
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(new AccessTokenFilter(accessTokens), UsernamePasswordAuthenticationFilter.class)
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                .requestMatchers(EndpointRequest.to("health")).permitAll()
+                .requestMatchers(EndpointRequest.toAnyEndpoint()).hasRole("ADMIN")
+                .requestMatchers(HttpMethod.GET, "/api/admin/products/images/**").permitAll()
+                .requestMatchers("/api/admin/**", "/api/orders/admin/**").hasRole("ADMIN")
                 .anyRequest().permitAll()
             )
             .httpBasic(AbstractHttpConfigurer::disable)
@@ -0,0 +1,17 @@
+package com.eduprajna.dto;
+
+/**
+ * Number of products carrying one facet value under the current selection.
+ * value is the key to send back as a filter; label is for display.
+ */
+public class FacetCountDTO {
+  public String value;
+  public String label;
+  public int count;
+
+  public FacetCountDTO(String value, String label, int count) {
+    this.value = value;
+    this.label = label;
+    this.count = count;
+  }
+}
@@ -0,0 +1,14 @@
+package com.eduprajna.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facet counts for a product listing selection.
+ * total is the number of products matching every selected filter; each facet's
+ * counts apply all filters except that facet's own, so values can be multi-selected.
+ */
+public class FacetResultDTO {
+  public int total;
+  public Map<String, List<FacetCountDTO>> facets;
+}
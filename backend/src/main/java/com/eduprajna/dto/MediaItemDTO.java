@@ -0,0 +1,13 @@
+package com.eduprajna.dto;
+
+/**
+ * A stored upload in the admin media listing. path is relative to the upload
+ * directory; lastModified is epoch millis.
+ */
+public class MediaItemDTO {
+  public String path;
+  public String url;
+  public long size;
+  public long lastModified;
+  public boolean contentAddressed;
+}
@@ -0,0 +1,14 @@
+package com.eduprajna.dto;
+
+import java.util.List;
+
+/**
+ * One page of the admin media listing, in path order.
+ * nextCursor is null on the last page.
+ */
+public class MediaPageDTO {
+  public List<MediaItemDTO> items;
+  public String nextCursor;
+  public int limit;
+  public boolean hasMore;
+}
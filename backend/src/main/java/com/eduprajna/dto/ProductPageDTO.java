@@ -0,0 +1,14 @@
+package com.eduprajna.dto;
+
+import java.util.List;
+
+/**
+ * One keyset page of the public product listing.
+ * nextCursor is null on the last page.
+ */
+public class ProductPageDTO {
+  public List<ProductSummaryDTO> items;
+  public String nextCursor;
+  public int limit;
+  public boolean hasMore;
+}
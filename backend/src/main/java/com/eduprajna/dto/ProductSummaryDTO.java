@@ -0,0 +1,35 @@
+package com.eduprajna.dto;
+
+/**
+ * Compact product row for listings.
+ * price is the primary variant's price (what the storefront shows as the product price) and
+ * originalPrice its pre-discount price, shown struck through when set;
+ * minPrice/maxPrice span all variants. The full product with variants stays on /api/products/{id}.
+ * thumbnailUrl is the card-sized (480px) version of an uploaded image, or imageUrl for other images.
+ */
+public class ProductSummaryDTO {
+  public Long id;
+  public String name;
+  public String category;
+  public Double price;
+  public Double originalPrice;
+  public Double minPrice;
+  public Double maxPrice;
+  public String imageUrl;
+  public String thumbnailUrl;
+  public boolean inStock;
+
+  public ProductSummaryDTO(Long id, String name, String category, Double price, Double originalPrice,
+                           Double minPrice, Double maxPrice, String imageUrl, Boolean inStock) {
+    this.id = id;
+    this.name = name;
+    this.category = category;
+    this.price = price;
+    this.originalPrice = originalPrice;
+    this.minPrice = minPrice;
+    this.maxPrice = maxPrice;
+    this.imageUrl = imageUrl;
+    this.thumbnailUrl = imageUrl != null && imageUrl.startsWith("/uploads/") ? imageUrl + "?w=480" : imageUrl;
+    this.inStock = Boolean.TRUE.equals(inStock);
+  }
+}
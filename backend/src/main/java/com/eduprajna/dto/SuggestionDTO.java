@@ -0,0 +1,19 @@
+package com.eduprajna.dto;
+
+/**
+ * One typeahead completion.
+ * type is "product", "category", "subcategory" or "fabric"; productId is only set for products.
+ */
+public class SuggestionDTO {
+  public String text;
+  public String type;
+  public Long productId;
+  public long weight;
+
+  public SuggestionDTO(String text, String type, Long productId, long weight) {
+    this.text = text;
+    this.type = type;
+    this.productId = productId;
+    this.weight = weight;
+  }
+}
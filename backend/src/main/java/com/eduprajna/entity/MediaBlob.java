@@ -0,0 +1,52 @@
+package com.eduprajna.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One stored upload, keyed by the SHA-256 of its bytes. refCount counts the
+ * uploads that resolved to it; the file is deleted when the last one is. The row
+ * itself stays (at 0) as the lock StorageService takes for that hash.
+ */
+@Entity
+@Table(name = "media_blobs")
+public class MediaBlob {
+
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    // Relative to the upload directory, e.g. "ab/cd/abcd...ef.jpg"
+    @Column(nullable = false, length = 120)
+    private String path;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 1;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public MediaBlob() {
+    }
+
+    public MediaBlob(String hash, String path, long size) {
+        this.hash = hash;
+        this.path = path;
+        this.size = size;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public String getHash() { return hash; }
+    public void setHash(String hash) { this.hash = hash; }
+    public String getPath() { return path; }
+    public void setPath(String path) { this.path = path; }
+    public Long getSize() { return size; }
+    public void setSize(Long size) { this.size = size; }
+    public Integer getRefCount() { return refCount; }
+    public void setRefCount(Integer refCount) { this.refCount = refCount; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
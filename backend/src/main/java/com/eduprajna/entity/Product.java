@@ -8,7 +8,11 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.OrderBy;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -39,7 +43,15 @@ public class Product {
     @Column(nullable = false)
     private Boolean isActive = true;
 
+    // Denormalized copy of the primary variant price, used for SQL-side price
+    // filtering/sorting and keyset pagination. Products without variants sort as 0.
+    @Column(name = "list_price")
+    @JsonIgnore
+    private Double listPrice;
+
+    // Ordered by id so variants.get(0) is the primary (lowest id) variant, as listPrice assumes
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
     private List<com.eduprajna.entity.ProductVariant> variants = new ArrayList<>();
 
     public Long getId() {
@@ -106,6 +118,21 @@ public class Product {
         this.isActive = isActive;
     }
 
+    public Double getListPrice() {
+        return listPrice;
+    }
+
+    /**
+     * Re-derive listPrice from the primary variant. Called on persist/update and
+     * by ProductService when only variant rows change.
+     */
+    @PrePersist
+    @PreUpdate
+    public void syncListPrice() {
+        Double price = getPrice();
+        this.listPrice = price != null ? price : 0.0;
+    }
+
     public List<com.eduprajna.entity.ProductVariant> getVariants() {
         return variants;
     }
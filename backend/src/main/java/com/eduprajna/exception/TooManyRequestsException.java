@@ -0,0 +1,18 @@
+package com.eduprajna.exception;
+
+/**
+ * Thrown when a request is turned away to protect the server: an auth rate limit
+ * was hit or the password hashing pool is full. Answered with 429 and Retry-After.
+ */
+public class TooManyRequestsException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
@@ -0,0 +1,56 @@
+package com.eduprajna.filter;
+
+import java.io.IOException;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.eduprajna.service.AccessTokenService;
+import com.eduprajna.service.AuthenticatedUser;
+
+/**
+ * Authenticates requests carrying {@code Authorization: Bearer <token>}. The token is
+ * checked against its signature only, so no user lookup happens here. Requests without
+ * a valid token continue unauthenticated, and controllers fall back to the ?email=
+ * parameter for them.
+ *
+ * Added to the security filter chain by SecurityConfig rather than registered as a
+ * bean, so it runs once and after the SecurityContext is set up.
+ */
+public class AccessTokenFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessTokenFilter.class);
+    private static final String BEARER = "Bearer ";
+
+    private final AccessTokenService tokens;
+
+    public AccessTokenFilter(AccessTokenService tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            AuthenticatedUser user = tokens.verify(header.substring(BEARER.length()).trim());
+            if (user != null) {
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+                SecurityContextHolder.setContext(context);
+            } else {
+                log.debug("Ignoring invalid or expired access token on {}", request.getRequestURI());
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -1,12 +1,19 @@
 package com.eduprajna.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.QueryHint;
+
 import com.eduprajna.entity.CartItem;
 import com.eduprajna.entity.Product;
 import com.eduprajna.entity.User;
@@ -30,6 +37,29 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     @Modifying
     @Transactional
     void deleteByUserAndProductAndVariantId(User user, Product product, Long variantId);
+
+    /**
+     * Distinct variant image urls of all cart lines, read in batches.
+     * Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT DISTINCT c.variantImage FROM CartItem c WHERE c.variantImage IS NOT NULL")
+    Stream<String> streamVariantImages();
+
+    /**
+     * Distinct variant image urls in carts that are LIKE {@code pattern}
+     */
+    @Query("SELECT DISTINCT c.variantImage FROM CartItem c WHERE c.variantImage LIKE :pattern")
+    List<String> findVariantImagesLike(@Param("pattern") String pattern);
+
+    /**
+     * Point cart lines whose variant image is one of {@code from} at {@code to}
+     * @return number of cart lines changed
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE CartItem c SET c.variantImage = :to WHERE c.variantImage IN :from")
+    int replaceVariantImages(@Param("from") Collection<String> from, @Param("to") String to);
 }
 
 
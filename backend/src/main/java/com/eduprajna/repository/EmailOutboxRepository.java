@@ -0,0 +1,58 @@
+package com.eduprajna.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eduprajna.entity.EmailOutbox;
+
+/**
+ * Repository for EmailOutbox entity
+ */
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    /**
+     * Ids of messages due for a send attempt, oldest first: PENDING rows whose retry
+     * time has come and SENDING rows whose worker lock has lapsed (e.g. after a crash)
+     */
+    @Query("SELECT m.id FROM EmailOutbox m WHERE (m.status = 'PENDING' AND m.nextAttemptAt <= :now) " +
+           "OR (m.status = 'SENDING' AND m.lockedUntil < :now) ORDER BY m.nextAttemptAt")
+    List<Long> findDueIds(@Param("now") LocalDateTime now, Pageable page);
+
+    /**
+     * Claim a due message for one worker. Returns 0 if another worker got there first.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox m SET m.status = 'SENDING', m.lockedUntil = :lockedUntil, m.attempts = m.attempts + 1 " +
+           "WHERE m.id = :id AND ((m.status = 'PENDING' AND m.nextAttemptAt <= :now) " +
+           "OR (m.status = 'SENDING' AND m.lockedUntil < :now))")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox m SET m.status = 'SENT', m.sentAt = :sentAt, m.lockedUntil = null, m.lastError = null " +
+           "WHERE m.id IN :ids")
+    int markSentByIds(@Param("ids") Collection<Long> ids, @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * Record a failed attempt: back to PENDING with a later retry time, or FAILED for good
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox m SET m.status = :status, m.nextAttemptAt = :nextAttemptAt, m.lockedUntil = null, " +
+           "m.lastError = :error WHERE m.id = :id")
+    int markAttemptFailed(@Param("id") Long id, @Param("status") String status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("error") String error);
+
+    long countByStatus(String status);
+}
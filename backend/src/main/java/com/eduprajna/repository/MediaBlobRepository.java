@@ -0,0 +1,37 @@
+package com.eduprajna.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.LockModeType;
+
+import com.eduprajna.entity.MediaBlob;
+
+/**
+ * Repository for MediaBlob entity
+ */
+@Repository
+public interface MediaBlobRepository extends JpaRepository<MediaBlob, String> {
+
+    /**
+     * The blob's row, locked (SELECT ... FOR UPDATE) until the surrounding transaction ends.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM MediaBlob b WHERE b.hash = :hash")
+    Optional<MediaBlob> findForUpdate(@Param("hash") String hash);
+
+    /**
+     * Count {@code count} more uploads of an already stored blob. Returns 0 if there is no such blob.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MediaBlob b SET b.refCount = b.refCount + :count WHERE b.hash = :hash")
+    int addReferences(@Param("hash") String hash, @Param("count") int count);
+}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -39,4 +40,13 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     @Modifying
     @Transactional
     void deleteByProduct(Product product);
+
+    /**
+     * Units sold per product, ignoring cancelled orders
+     * @return rows of [productId (Long), quantity (Long)]
+     */
+    @Query("SELECT oi.product.id, SUM(oi.quantity) FROM OrderItem oi " +
+           "WHERE oi.order.status IS NULL OR UPPER(oi.order.status) <> 'CANCELLED' " +
+           "GROUP BY oi.product.id")
+    List<Object[]> sumQuantityByProduct();
 }
@@ -0,0 +1,106 @@
+package com.eduprajna.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Sort orders and opaque cursors for keyset (seek) pagination of products.
+ *
+ * Every order is a total order on (sortKey, id), so a page is fetched with
+ * "WHERE (key, id) > (lastKey, lastId)" instead of an OFFSET.
+ */
+public final class ProductKeyset {
+
+    private ProductKeyset() {}
+
+    public enum Order {
+        PRICE_ASC("price-low-high", "listPrice", true),
+        PRICE_DESC("price-high-low", "listPrice", false),
+        NAME_ASC("name-a-z", "name", true),
+        NAME_DESC("name-z-a", "name", false),
+        NEWEST("newest", null, false),
+        OLDEST("oldest", null, true);
+
+        private final String param;
+        private final String keyAttribute;
+        private final boolean ascending;
+
+        Order(String param, String keyAttribute, boolean ascending) {
+            this.param = param;
+            this.keyAttribute = keyAttribute;
+            this.ascending = ascending;
+        }
+
+        public String param() { return param; }
+
+        /** Entity attribute used as the leading sort key, or null when sorting by id only. */
+        public String keyAttribute() { return keyAttribute; }
+
+        public boolean ascending() { return ascending; }
+
+        /**
+         * Map the storefront "sort" parameter. No sort keeps id order like the
+         * unpaginated listing; an unknown value falls back to newest first.
+         */
+        public static Order fromParam(String sort) {
+            if (sort == null) return OLDEST;
+            for (Order o : values()) {
+                if (o.param.equalsIgnoreCase(sort)) return o;
+            }
+            return NEWEST;
+        }
+    }
+
+    /**
+     * Position after the last row of a page. Encoded as base64url("order|key|id").
+     */
+    public static final class Cursor {
+        private final Order order;
+        private final String key;
+        private final long id;
+
+        public Cursor(Order order, String key, long id) {
+            this.order = order;
+            this.key = key;
+            this.id = id;
+        }
+
+        public Order getOrder() { return order; }
+        public long getId() { return id; }
+
+        /** Leading key as stored in the cursor (price or name); null for id orders. */
+        public String getKey() { return key; }
+
+        public Double getPriceKey() { return key != null ? Double.valueOf(key) : null; }
+
+        public String encode() {
+            String raw = order.name() + "|" + (key != null ? key : "") + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @throws IllegalArgumentException if the cursor is malformed
+         */
+        public static Cursor decode(String encoded) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8);
+                int first = raw.indexOf('|');
+                int last = raw.lastIndexOf('|');
+                if (first < 0 || last <= first) {
+                    throw new IllegalArgumentException("Malformed cursor");
+                }
+                Order order = Order.valueOf(raw.substring(0, first));
+                String key = raw.substring(first + 1, last);
+                long id = Long.parseLong(raw.substring(last + 1));
+                if (order.keyAttribute() == null) {
+                    key = null;
+                } else if ("listPrice".equals(order.keyAttribute())) {
+                    Double.parseDouble(key); // validate
+                }
+                return new Cursor(order, key, id);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+    }
+}
@@ -1,8 +1,69 @@
 package com.eduprajna.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.eduprajna.dto.ProductSummaryDTO;
 import com.eduprajna.entity.Product;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {}
-// CategoryRepository.java, UserRepository.java, OrderRepository.java, OrderItemRepository.java
\ No newline at end of file
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>,
+        ProductRepositoryCustom {
+
+    /**
+     * All products (active or not) with variants loaded through an entity graph,
+     * so serializing the list does not issue one variants query per product.
+     */
+    @EntityGraph(attributePaths = "variants")
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    List<Product> findAllWithVariants();
+
+    /**
+     * Active products with their variants fetched in the same query.
+     * Used to build the in-memory catalog snapshot.
+     */
+    @Query("SELECT DISTINCT p FROM Product p LEFT JOIN FETCH p.variants WHERE p.isActive = true")
+    List<Product> findAllActiveWithVariants();
+
+    /**
+     * Single product with variants initialized, safe to use once detached.
+     */
+    @Query("SELECT p FROM Product p LEFT JOIN FETCH p.variants WHERE p.id = :id")
+    Optional<Product> findWithVariantsById(@Param("id") Long id);
+
+    /**
+     * Fill list_price for rows written before the column existed, using the
+     * primary (lowest id) variant's price.
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.listPrice = COALESCE((SELECT v.price FROM ProductVariant v "
+            + "WHERE v.product = p AND v.id = (SELECT MIN(v2.id) FROM ProductVariant v2 WHERE v2.product = p)), 0) "
+            + "WHERE p.listPrice IS NULL")
+    int backfillListPrices();
+
+    /**
+     * Listing rows for the given products, built in SQL without hydrating entities.
+     * The primary image and original price are the lowest-id variant's; a product without
+     * variants falls back to its own inStock flag. Result order is unspecified.
+     */
+    @Query("SELECT new com.eduprajna.dto.ProductSummaryDTO(p.id, p.name, p.category, p.listPrice, "
+            + "(SELECT v2.originalPrice FROM ProductVariant v2 WHERE v2.product = p "
+            + "AND v2.id = (SELECT MIN(v3.id) FROM ProductVariant v3 WHERE v3.product = p)), "
+            + "MIN(v.price), MAX(v.price), "
+            + "(SELECT v2.mainImage FROM ProductVariant v2 WHERE v2.product = p "
+            + "AND v2.id = (SELECT MIN(v3.id) FROM ProductVariant v3 WHERE v3.product = p)), "
+            + "CASE WHEN COUNT(v) = 0 THEN COALESCE(p.inStock, true) "
+            + "WHEN SUM(CASE WHEN COALESCE(v.inStock, true) = true "
+            + "AND (v.stockQuantity IS NULL OR v.stockQuantity > 0) THEN 1 ELSE 0 END) > 0 THEN true "
+            + "ELSE false END) "
+            + "FROM Product p LEFT JOIN p.variants v WHERE p.id IN :ids "
+            + "GROUP BY p.id, p.name, p.category, p.listPrice, p.inStock")
+    List<ProductSummaryDTO> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+}
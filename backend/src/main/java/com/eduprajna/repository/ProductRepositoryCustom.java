@@ -0,0 +1,25 @@
+package com.eduprajna.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.eduprajna.entity.Product;
+
+/**
+ * Query methods on ProductRepository that need hand-built Criteria queries.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Ids of one keyset page of products matching the filter, in page order.
+     * Only ids are selected so no entities are hydrated; load rows for them separately.
+     *
+     * @param filter  optional filter specification
+     * @param order   sort order; ties are broken by id in the same direction
+     * @param after   cursor of the last row already returned, or null for the first page
+     * @param limit   maximum number of rows to return
+     */
+    List<Long> findKeysetPageIds(Specification<Product> filter, ProductKeyset.Order order,
+                                 ProductKeyset.Cursor after, int limit);
+}
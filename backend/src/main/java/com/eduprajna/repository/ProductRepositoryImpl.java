@@ -0,0 +1,73 @@
+package com.eduprajna.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.eduprajna.entity.Product;
+
+/**
+ * Criteria-based implementation of {@link ProductRepositoryCustom}.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Long> findKeysetPageIds(Specification<Product> filter, ProductKeyset.Order order,
+                                        ProductKeyset.Cursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Product> root = query.from(Product.class);
+
+        List<Predicate> where = new ArrayList<>();
+        if (filter != null) {
+            Predicate p = filter.toPredicate(root, query, cb);
+            if (p != null) where.add(p);
+        }
+
+        Path<Long> id = root.get("id");
+        boolean asc = order.ascending();
+        List<jakarta.persistence.criteria.Order> orderBy = new ArrayList<>(2);
+
+        if ("listPrice".equals(order.keyAttribute())) {
+            Path<Double> key = root.get("listPrice");
+            if (after != null) {
+                Double k = after.getPriceKey();
+                where.add(asc
+                        ? cb.or(cb.greaterThan(key, k), cb.and(cb.equal(key, k), cb.greaterThan(id, after.getId())))
+                        : cb.or(cb.lessThan(key, k), cb.and(cb.equal(key, k), cb.lessThan(id, after.getId()))));
+            }
+            orderBy.add(asc ? cb.asc(key) : cb.desc(key));
+        } else if ("name".equals(order.keyAttribute())) {
+            Path<String> key = root.get("name");
+            if (after != null) {
+                String k = after.getKey();
+                where.add(asc
+                        ? cb.or(cb.greaterThan(key, k), cb.and(cb.equal(key, k), cb.greaterThan(id, after.getId())))
+                        : cb.or(cb.lessThan(key, k), cb.and(cb.equal(key, k), cb.lessThan(id, after.getId()))));
+            }
+            orderBy.add(asc ? cb.asc(key) : cb.desc(key));
+        } else if (after != null) {
+            where.add(asc ? cb.greaterThan(id, after.getId()) : cb.lessThan(id, after.getId()));
+        }
+        orderBy.add(asc ? cb.asc(id) : cb.desc(id));
+
+        query.select(id)
+                .where(where.toArray(new Predicate[0]))
+                .orderBy(orderBy);
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
@@ -0,0 +1,67 @@
+package com.eduprajna.repository;
+
+import jakarta.persistence.criteria.Expression;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.eduprajna.entity.Product;
+
+/**
+ * Reusable Specifications for the public product listing.
+ * Each method returns null when its argument is empty, which Specification.and ignores.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {}
+
+    public static Specification<Product> isActive() {
+        return (root, query, cb) -> cb.isTrue(root.get("isActive"));
+    }
+
+    /**
+     * Same matching rules as the in-memory listing: exact (case-insensitive),
+     * then with '-', '_' and '%20' folded to spaces, then partial either way.
+     */
+    public static Specification<Product> categoryMatches(String category) {
+        if (category == null || category.trim().isEmpty()) return null;
+        String lower = category.toLowerCase().trim();
+        String normalized = lower.replace("%20", " ").replace("-", " ").replace("_", " ");
+        return (root, query, cb) -> {
+            Expression<String> productLower = cb.lower(cb.trim(root.get("category")));
+            Expression<String> productNormalized = cb.function("replace", String.class,
+                    cb.function("replace", String.class, productLower, cb.literal("-"), cb.literal(" ")),
+                    cb.literal("_"), cb.literal(" "));
+            return cb.or(
+                    cb.equal(productLower, lower),
+                    cb.equal(productNormalized, normalized),
+                    cb.like(productNormalized, "%" + escapeLike(normalized) + "%", '\\'),
+                    cb.like(cb.literal(normalized), cb.concat(cb.concat("%", productNormalized), "%")));
+        };
+    }
+
+    /**
+     * Case-insensitive substring match on name, description or category.
+     */
+    public static Specification<Product> searchMatches(String search) {
+        if (search == null || search.trim().isEmpty()) return null;
+        String pattern = "%" + escapeLike(search.toLowerCase().trim()) + "%";
+        return (root, query, cb) -> cb.or(
+                cb.like(cb.lower(root.get("name")), pattern, '\\'),
+                cb.like(cb.lower(root.get("description")), pattern, '\\'),
+                cb.like(cb.lower(root.get("category")), pattern, '\\'));
+    }
+
+    public static Specification<Product> minPrice(Double minPrice) {
+        if (minPrice == null) return null;
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("listPrice"), minPrice);
+    }
+
+    public static Specification<Product> maxPrice(Double maxPrice) {
+        if (maxPrice == null) return null;
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("listPrice"), maxPrice);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
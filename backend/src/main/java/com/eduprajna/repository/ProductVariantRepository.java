@@ -1,9 +1,99 @@
 package com.eduprajna.repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 
 import com.eduprajna.entity.ProductVariant;
 
 public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
 
+    /**
+     * Take {@code qty} units from a variant in one guarded statement.
+     * Nothing is updated unless the variant belongs to the product and has at least
+     * {@code qty} units; stock held for other customers is kept out of reach by
+     * claiming through StockReservationService first.
+     * inStock is assigned first so it sees the pre-update quantity on every database.
+     * @return number of rows updated (0 = insufficient stock or unknown variant)
+     */
+    @Modifying
+    @Query("UPDATE ProductVariant v SET "
+            + "v.inStock = CASE WHEN v.stockQuantity > :qty THEN true ELSE false END, "
+            + "v.stockQuantity = v.stockQuantity - :qty "
+            + "WHERE v.id = :variantId AND v.product.id = :productId AND v.stockQuantity >= :qty")
+    int decrementStock(@Param("productId") Long productId, @Param("variantId") Long variantId,
+                       @Param("qty") int qty);
+
+    /**
+     * Take {@code qty} units for an order that has already been paid for. Never refuses:
+     * a variant without enough stock is clamped at 0 and the shortfall is left for the
+     * order to report.
+     * @return number of rows updated (0 = unknown variant)
+     */
+    @Modifying
+    @Query("UPDATE ProductVariant v SET "
+            + "v.inStock = CASE WHEN v.stockQuantity > :qty THEN true ELSE false END, "
+            + "v.stockQuantity = CASE WHEN v.stockQuantity > :qty THEN v.stockQuantity - :qty ELSE 0 END "
+            + "WHERE v.id = :variantId AND v.product.id = :productId")
+    int decrementStockClamped(@Param("productId") Long productId, @Param("variantId") Long variantId,
+                              @Param("qty") int qty);
+
+    /**
+     * Current stock of the given variants as [variantId, stockQuantity] rows.
+     */
+    @Query("SELECT v.id, v.stockQuantity FROM ProductVariant v WHERE v.id IN :ids")
+    List<Object[]> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Lock the given variants (SELECT ... FOR UPDATE, in id order) and return them with
+     * their current stock, for an order about to decrement it.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT v FROM ProductVariant v WHERE v.id IN :ids ORDER BY v.id")
+    List<ProductVariant> lockByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * [productId, variantId, stockQuantity, inStock] for every variant of the given products.
+     */
+    @Query("SELECT v.product.id, v.id, v.stockQuantity, v.inStock FROM ProductVariant v WHERE v.product.id IN :productIds")
+    List<Object[]> findStockByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Id of the product's primary (lowest id) variant, which carries product-level stock.
+     */
+    @Query("SELECT MIN(v.id) FROM ProductVariant v WHERE v.product.id = :productId")
+    Long findPrimaryVariantId(@Param("productId") Long productId);
+
+    /**
+     * Variants with any of their four images set to one of the given urls.
+     */
+    @Query("SELECT v FROM ProductVariant v WHERE v.mainImage IN :urls OR v.subImage1 IN :urls "
+            + "OR v.subImage2 IN :urls OR v.subImage3 IN :urls")
+    List<ProductVariant> findByAnyImageIn(@Param("urls") Collection<String> urls);
+
+    /**
+     * The four image columns of every variant, as [mainImage, subImage1, subImage2, subImage3]
+     * rows read in batches without loading entities. Must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "1000"))
+    @Query("SELECT v.mainImage, v.subImage1, v.subImage2, v.subImage3 FROM ProductVariant v")
+    Stream<Object[]> streamImageColumns();
+
+    /**
+     * Image columns, as above, of the variants with any image url LIKE {@code pattern}.
+     */
+    @Query("SELECT v.mainImage, v.subImage1, v.subImage2, v.subImage3 FROM ProductVariant v "
+            + "WHERE v.mainImage LIKE :pattern OR v.subImage1 LIKE :pattern "
+            + "OR v.subImage2 LIKE :pattern OR v.subImage3 LIKE :pattern")
+    List<Object[]> findImageColumnsLike(@Param("pattern") String pattern);
 }
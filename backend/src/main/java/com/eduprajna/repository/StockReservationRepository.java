@@ -0,0 +1,60 @@
+package com.eduprajna.repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.eduprajna.entity.StockReservation;
+
+/**
+ * Repository for StockReservation entity
+ */
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    /**
+     * Unexpired holds, used to rebuild the in-memory index at startup
+     */
+    @Query("SELECT r FROM StockReservation r WHERE r.status = 'HELD' AND r.expiresAt > :now")
+    List<StockReservation> findActiveHolds(@Param("now") LocalDateTime now);
+
+    /**
+     * Ids of expired holds, oldest first, one batch at a time
+     */
+    @Query("SELECT r.id FROM StockReservation r WHERE r.status = 'HELD' AND r.expiresAt <= :now ORDER BY r.expiresAt")
+    List<Long> findExpiredHoldIds(@Param("now") LocalDateTime now, Pageable page);
+
+    /**
+     * Move a user's current holds to a new status (CONFIRMED or RELEASED)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StockReservation r SET r.status = :status WHERE r.userId = :userId AND r.status = 'HELD'")
+    int updateHeldStatusForUser(@Param("userId") Long userId, @Param("status") String status);
+
+    /**
+     * Release a batch of holds by id; rows confirmed in the meantime are left alone
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StockReservation r SET r.status = 'RELEASED' WHERE r.id IN :ids AND r.status = 'HELD'")
+    int releaseByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Record the Razorpay order the user's current holds were taken for, and when they now expire
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE StockReservation r SET r.razorpayOrderId = :razorpayOrderId, r.expiresAt = :expiresAt "
+            + "WHERE r.userId = :userId AND r.status = 'HELD'")
+    int attachRazorpayOrder(@Param("userId") Long userId, @Param("razorpayOrderId") String razorpayOrderId,
+                            @Param("expiresAt") LocalDateTime expiresAt);
+}
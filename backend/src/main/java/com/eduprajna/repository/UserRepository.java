@@ -1,11 +1,24 @@
 package com.eduprajna.repository;
 
+import java.time.OffsetDateTime;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.eduprajna.entity.User;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
-}
\ No newline at end of file
+
+    /**
+     * Count one more order in the database, independent of any copy of the user in memory
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.totalOrders = u.totalOrders + 1, u.updatedAt = :now WHERE u.id = :id")
+    int incrementTotalOrders(@Param("id") Long id, @Param("now") OffsetDateTime now);
+}
@@ -0,0 +1,173 @@
+package com.eduprajna.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.eduprajna.entity.User;
+
+/**
+ * Issues and verifies signed access tokens.
+ *
+ * A token is {@code base64url(payload) + "." + base64url(HMAC-SHA256(payload))}, where
+ * the payload is a fixed binary layout: version (1 byte), user id (8), expiry in epoch
+ * seconds (8), then the role in UTF-8. Verifying needs no database access and no
+ * JSON parsing. Initialized {@link Mac}s are borrowed from a small shared pool rather than
+ * kept per thread, since with virtual threads every request is a new thread.
+ *
+ * The key comes from app.auth.token-secret. If it is not set a random key is used,
+ * which means tokens stop working when the application restarts.
+ */
+@Service
+public class AccessTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(AccessTokenService.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = 1 + 8 + 8;
+    private static final int SIGNATURE_LENGTH = 32;
+    private static final int MAX_TOKEN_LENGTH = 256;
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    // Idle initialized Macs; when empty a new one is made, when full a returned one is dropped
+    private final BlockingQueue<Mac> macs =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+    public AccessTokenService(@Value("${app.auth.token-secret:}") String secret,
+                              @Value("${app.auth.token-ttl-minutes:720}") long ttlMinutes) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            logger.warn("app.auth.token-secret is not set; using a random key (tokens will not survive a restart)");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+            if (keyBytes.length < 32) {
+                throw new IllegalStateException("app.auth.token-secret must be at least 32 bytes");
+            }
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.ttlSeconds = ttlMinutes * 60;
+    }
+
+    /**
+     * Token for the given user, valid for app.auth.token-ttl-minutes
+     */
+    public String issue(User user) {
+        byte[] role = roleOf(user.getRole()).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(HEADER_LENGTH + role.length);
+        payload.put(VERSION).putLong(user.getId()).putLong(expiresAt()).put(role);
+        byte[] body = payload.array();
+
+        Mac mac = borrowMac();
+        byte[] signature;
+        try {
+            signature = mac.doFinal(body);
+        } finally {
+            macs.offer(mac);
+        }
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(body) + "." + encoder.encodeToString(signature);
+    }
+
+    /**
+     * Expiry (epoch seconds) of a token issued now
+     */
+    public long expiresAt() {
+        return System.currentTimeMillis() / 1000 + ttlSeconds;
+    }
+
+    /**
+     * The principal carried by the token, or null if the token is malformed,
+     * wrongly signed or expired.
+     */
+    public AuthenticatedUser verify(String token) {
+        if (token == null || token.length() > MAX_TOKEN_LENGTH) return null;
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) return null;
+
+        byte[] chars = token.getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer payload;
+        ByteBuffer signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payload = decoder.decode(ByteBuffer.wrap(chars, 0, dot));
+            signature = decoder.decode(ByteBuffer.wrap(chars, dot + 1, chars.length - dot - 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (payload.remaining() <= HEADER_LENGTH || signature.remaining() != SIGNATURE_LENGTH) return null;
+
+        Mac mac = borrowMac();
+        byte[] expected;
+        try {
+            mac.update(payload.array(), 0, payload.remaining());
+            expected = mac.doFinal();
+        } finally {
+            macs.offer(mac);
+        }
+        if (!constantTimeEquals(expected, signature)) return null;
+
+        if (payload.get() != VERSION) return null;
+        long userId = payload.getLong();
+        long expiresAt = payload.getLong();
+        if (expiresAt <= System.currentTimeMillis() / 1000) return null;
+        String role = decodeRole(payload);
+        return new AuthenticatedUser(userId, role, expiresAt);
+    }
+
+    // doFinal resets a Mac, so one given back is ready for the next token
+    private Mac borrowMac() {
+        Mac mac = macs.poll();
+        return mac != null ? mac : newMac();
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static String roleOf(String role) {
+        return role == null || role.isBlank() ? AuthenticatedUser.CUSTOMER : role;
+    }
+
+    // The two roles in use are returned as constants rather than new strings
+    private static String decodeRole(ByteBuffer buf) {
+        if (matches(buf, AuthenticatedUser.ADMIN_BYTES)) return AuthenticatedUser.ADMIN;
+        if (matches(buf, AuthenticatedUser.CUSTOMER_BYTES)) return AuthenticatedUser.CUSTOMER;
+        return new String(buf.array(), buf.position(), buf.remaining(), StandardCharsets.UTF_8);
+    }
+
+    private static boolean matches(ByteBuffer buf, byte[] value) {
+        if (buf.remaining() != value.length) return false;
+        for (int i = 0; i < value.length; i++) {
+            if (buf.get(buf.position() + i) != value[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean constantTimeEquals(byte[] a, ByteBuffer b) {
+        if (a.length != b.remaining()) return false;
+        int diff = 0;
+        for (int i = 0; i < a.length; i++) diff |= a[i] ^ b.get(b.position() + i);
+        return diff == 0;
+    }
+}
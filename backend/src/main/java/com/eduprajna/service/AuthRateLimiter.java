@@ -0,0 +1,97 @@
+package com.eduprajna.service;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.eduprajna.exception.TooManyRequestsException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Token-bucket limits for the password endpoints, per client IP and per email.
+ *
+ * Each limit is a fixed array of buckets indexed by a hash of the key, so memory does
+ * not grow with the number of attackers and no map or lock is involved. A bucket is a
+ * single long holding its "theoretical arrival time" (the GCRA form of a token bucket):
+ * a request is allowed if that time is no more than burst - 1 intervals ahead of now,
+ * and moves it one interval on with a CAS. Keys that hash to the same bucket share it,
+ * which can only make the limit stricter for them.
+ */
+@Service
+public class AuthRateLimiter {
+
+    private final Limit byIp;
+    private final Limit byEmail;
+    private final long origin = System.nanoTime();
+
+    public AuthRateLimiter(ObjectProvider<MeterRegistry> meterRegistry,
+                           @Value("${app.auth.rate.stripes:8192}") int stripes,
+                           @Value("${app.auth.rate.ip-per-minute:30}") int ipPerMinute,
+                           @Value("${app.auth.rate.ip-burst:30}") int ipBurst,
+                           @Value("${app.auth.rate.email-per-minute:6}") int emailPerMinute,
+                           @Value("${app.auth.rate.email-burst:6}") int emailBurst) {
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.byIp = new Limit("ip", stripes, ipPerMinute, ipBurst, registry);
+        this.byEmail = new Limit("email", stripes, emailPerMinute, emailBurst, registry);
+    }
+
+    /**
+     * Take one token for the client address and, if given, one for the email.
+     * @throws TooManyRequestsException if either bucket is empty
+     */
+    public void acquire(String clientIp, String email) {
+        long now = System.nanoTime() - origin;
+        byIp.acquire(clientIp, now);
+        if (email != null && !email.isBlank()) {
+            // Case and spacing variants of one address share a bucket
+            byEmail.acquire(email.trim().toLowerCase(Locale.ROOT), now);
+        }
+    }
+
+    private static final class Limit {
+        final AtomicLongArray buckets;
+        final int mask;
+        final long intervalNanos;
+        final long toleranceNanos;
+        final Counter limited;
+
+        Limit(String name, int stripes, int perMinute, int burst, MeterRegistry registry) {
+            int size = Integer.highestOneBit(Math.max(stripes, 16) - 1) << 1;
+            this.buckets = new AtomicLongArray(size);
+            this.mask = size - 1;
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / Math.max(perMinute, 1);
+            this.toleranceNanos = intervalNanos * (Math.max(burst, 1) - 1);
+            this.limited = Counter.builder("auth.rate.limited").tag("key", name)
+                    .description("Password endpoint calls rejected by the rate limit").register(registry);
+        }
+
+        void acquire(String key, long now) {
+            int i = spread(key == null ? 0 : key.hashCode()) & mask;
+            while (true) {
+                long tat = buckets.get(i);
+                long start = Math.max(tat, now);
+                long ahead = start - now;
+                if (ahead > toleranceNanos) {
+                    limited.increment();
+                    long retryAfter = TimeUnit.NANOSECONDS.toSeconds(ahead - toleranceNanos) + 1;
+                    throw new TooManyRequestsException("Too many attempts, please retry in " + retryAfter + "s", retryAfter);
+                }
+                if (buckets.compareAndSet(i, tat, start + intervalNanos)) return;
+            }
+        }
+
+        private static int spread(int h) {
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            return h;
+        }
+    }
+}
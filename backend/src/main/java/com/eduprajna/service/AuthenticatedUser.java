@@ -0,0 +1,51 @@
+package com.eduprajna.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * The caller identified by a verified access token; stored as the principal of the
+ * request's Authentication by AccessTokenFilter.
+ */
+public class AuthenticatedUser {
+    public static final String ADMIN = "admin";
+    public static final String CUSTOMER = "customer";
+    static final byte[] ADMIN_BYTES = ADMIN.getBytes(StandardCharsets.UTF_8);
+    static final byte[] CUSTOMER_BYTES = CUSTOMER.getBytes(StandardCharsets.UTF_8);
+
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+    private static final List<GrantedAuthority> CUSTOMER_AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_CUSTOMER"));
+
+    private final Long userId;
+    private final String role;
+    private final long expiresAt;
+
+    public AuthenticatedUser(Long userId, String role, long expiresAt) {
+        this.userId = userId;
+        this.role = role;
+        this.expiresAt = expiresAt;
+    }
+
+    public Long getUserId() { return userId; }
+    public String getRole() { return role; }
+    public long getExpiresAt() { return expiresAt; }
+
+    public List<GrantedAuthority> getAuthorities() {
+        if (ADMIN.equals(role)) return ADMIN_AUTHORITIES;
+        if (CUSTOMER.equals(role)) return CUSTOMER_AUTHORITIES;
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.toUpperCase()));
+    }
+
+    /**
+     * The token holder for the current request, or null if the request carried no valid token
+     */
+    public static AuthenticatedUser current() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.getPrincipal() instanceof AuthenticatedUser u ? u : null;
+    }
+}
@@ -0,0 +1,20 @@
+package com.eduprajna.service;
+
+/**
+ * A stored blob as a BlobStore reports it: key, size and modification time (epoch millis).
+ */
+public class BlobInfo {
+    private final String key;
+    private final long size;
+    private final long lastModified;
+
+    public BlobInfo(String key, long size, long lastModified) {
+        this.key = key;
+        this.size = size;
+        this.lastModified = lastModified;
+    }
+
+    public String getKey() { return key; }
+    public long getSize() { return size; }
+    public long getLastModified() { return lastModified; }
+}
@@ -0,0 +1,48 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.core.io.AbstractResource;
+
+/**
+ * A blob in a remote store as a Spring Resource. The length is known up front (from
+ * the stat), so Spring can answer Range requests without reading the whole body first;
+ * every getInputStream() is a fresh read from the store.
+ */
+class BlobResource extends AbstractResource {
+    private final BlobStore store;
+    private final String key;
+    private final long length;
+
+    BlobResource(BlobStore store, String key, long length) {
+        this.store = store;
+        this.key = key;
+        this.length = length;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return store.get(key);
+    }
+
+    @Override
+    public long contentLength() {
+        return length;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public String getFilename() {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Blob [" + key + "]";
+    }
+}
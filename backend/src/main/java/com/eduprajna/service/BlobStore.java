@@ -0,0 +1,69 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Where upload bytes live. Keys are relative paths such as {@code ab/cd/<sha256>.jpg};
+ * StorageService decides the keys and keeps the reference counts, a BlobStore only
+ * stores, reads and lists bytes.
+ *
+ * Implementations: {@link LocalBlobStore} (the upload directory) and {@link S3BlobStore}
+ * (any S3-compatible service), chosen with app.storage.backend.
+ */
+public interface BlobStore {
+
+    /**
+     * Store the file at {@code source} under {@code key}, replacing any blob there.
+     * The source may be moved rather than copied; callers delete it if it still exists.
+     */
+    void put(String key, Path source, MediaType contentType) throws IOException;
+
+    /**
+     * Size and modification time of a blob, or null if there is none
+     */
+    BlobInfo stat(String key) throws IOException;
+
+    /**
+     * Stream a blob's bytes.
+     * @throws java.nio.file.NoSuchFileException if there is no such blob
+     */
+    InputStream get(String key) throws IOException;
+
+    /**
+     * Remove a blob. Returns true if it was removed or did not exist.
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Up to {@code limit} blobs with keys after {@code startAfter} (null for the start),
+     * in key order. Pass the last key back as startAfter for the next page.
+     */
+    List<BlobInfo> list(String startAfter, int limit) throws IOException;
+
+    /**
+     * Set a blob's modification time to now
+     */
+    void touch(String key) throws IOException;
+
+    /**
+     * The blob as a file on this machine, for stores that keep one; null otherwise
+     */
+    default Path localPath(String key) {
+        return null;
+    }
+
+    /**
+     * A URL clients can fetch the blob from directly for at least {@code ttl}, or null if
+     * the store cannot hand out such URLs
+     */
+    default URI presignGet(String key, Duration ttl) {
+        return null;
+    }
+}
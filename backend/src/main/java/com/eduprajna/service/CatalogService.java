@@ -0,0 +1,338 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.dto.ProductSummaryDTO;
+import com.eduprajna.entity.Product;
+import com.eduprajna.entity.ProductVariant;
+import com.eduprajna.repository.ProductRepository;
+
+/**
+ * Serves the public catalog from an immutable in-memory {@link CatalogSnapshot}.
+ *
+ * The snapshot is loaded lazily on first use and patched per product after every
+ * committed ProductService write, so public reads never touch the database. Variant
+ * stock in it is what can still be sold: on-hand stock minus the units held for
+ * pending payments (StockReservationService publishes a change when holds move).
+ *
+ * The per-product re-read runs on one background thread, not on the committing
+ * request: that thread still holds its pooled connection (open-in-view), so reading
+ * in a new transaction there needs a second one, and with every connection held by
+ * a request in the same state the pool stalls until its timeout. Changes that arrive
+ * while a refresh is running are coalesced, so a burst of orders on one product is
+ * one re-read.
+ */
+@Service
+public class CatalogService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogService.class);
+
+    private final ProductRepository productRepository;
+    private final ProductSearchIndex searchIndex;
+    private final StockReservationService reservations;
+    private final TransactionTemplate readTx;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>();
+    // Serializes loads so an older copy of a product can never overwrite a newer one
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final ThreadPoolExecutor refresher;
+
+    public CatalogService(ProductRepository productRepository, ProductSearchIndex searchIndex,
+                          StockReservationService reservations, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.searchIndex = searchIndex;
+        this.reservations = reservations;
+        this.readTx = new TransactionTemplate(transactionManager);
+        this.readTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.readTx.setReadOnly(true);
+        this.refresher = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1), r -> {
+            Thread t = new Thread(r, "catalog-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        this.refresher.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    /**
+     * Current snapshot, loading it from the database on first access.
+     */
+    public CatalogSnapshot snapshot() {
+        CatalogSnapshot snap = current.get();
+        if (snap != null) return snap;
+        refreshLock.lock();
+        try {
+            snap = current.get();
+            if (snap == null) {
+                snap = load();
+                current.set(snap);
+            }
+            return snap;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuild the whole snapshot from the database.
+     */
+    public CatalogSnapshot reload() {
+        refreshLock.lock();
+        try {
+            CatalogSnapshot snap = load();
+            current.set(snap);
+            return snap;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Queue a re-read of the product once the writing transaction commits
+     * (or immediately when there is none).
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getProductId() == null) return;
+        pending.add(event.getProductId());
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) return;
+        try {
+            refresher.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false); // shutting down
+        }
+    }
+
+    private void drain() {
+        try {
+            for (Long productId : pending) {
+                if (pending.remove(productId)) refresh(productId);
+            }
+        } finally {
+            draining.set(false);
+        }
+        // Anything added after the loop passed it
+        if (!pending.isEmpty()) scheduleDrain();
+    }
+
+    /**
+     * Re-read a single product and swap a patched snapshot in.
+     */
+    public void refresh(Long productId) {
+        if (productId == null) return;
+        refreshLock.lock();
+        try {
+            CatalogSnapshot snap = current.get();
+            if (snap == null) return; // not loaded yet; the first load will see the change
+            Product fresh = readTx.execute(status -> withHolds(productRepository.findWithVariantsById(productId).orElse(null)));
+            CatalogSnapshot next = fresh != null ? snap.with(fresh) : snap.without(productId);
+            if (next.find(productId) != null) {
+                searchIndex.update(fresh);
+            } else {
+                searchIndex.remove(productId);
+            }
+            current.set(next);
+            logger.debug("Catalog snapshot refreshed for product {} ({} active products)", productId, current.get().size());
+        } catch (RuntimeException e) {
+            // Fall back to a full reload on the next read rather than serving a stale entry forever
+            logger.error("Failed to refresh catalog snapshot for product {}", productId, e);
+            current.set(null);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private CatalogSnapshot load() {
+        List<Product> products = readTx.execute(status -> {
+            List<Product> all = productRepository.findAllActiveWithVariants();
+            all.forEach(this::withHolds);
+            return all;
+        });
+        CatalogSnapshot snap = CatalogSnapshot.of(products != null ? products : List.of());
+        searchIndex.rebuild(snap.products());
+        logger.info("Catalog snapshot loaded with {} active products", snap.size());
+        return snap;
+    }
+
+    // Net out held units. Snapshot products are detached read-only copies that are
+    // never saved, so adjusting their stock cannot reach the database.
+    private Product withHolds(Product p) {
+        if (p == null || p.getVariants() == null) return p;
+        for (ProductVariant v : p.getVariants()) {
+            if (v.getId() != null && v.getStockQuantity() != null) {
+                v.setStockQuantity(reservations.available(v.getId(), v.getStockQuantity()));
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Active product by id, or null if missing/inactive.
+     */
+    public Product getActive(Long id) {
+        return snapshot().get(id);
+    }
+
+    /**
+     * Public listing with the storefront filters applied in a single pass over the snapshot.
+     * With a search term only the indexed matches are visited, and without an explicit
+     * sort they are returned in relevance order.
+     */
+    public List<ProductSummaryDTO> list(String category, String search, String sort, Double minPrice, Double maxPrice) {
+        return list(category, search, sort, minPrice, maxPrice, null);
+    }
+
+    /**
+     * Same as above, additionally keeping only products whose id passes {@code idFilter}
+     * (e.g. a facet selection from ProductFacetIndex). A null filter keeps everything.
+     */
+    public List<ProductSummaryDTO> list(String category, String search, String sort, Double minPrice, Double maxPrice,
+                                        LongPredicate idFilter) {
+        CatalogSnapshot snap = snapshot();
+
+        String categoryLower = null;
+        String categoryNormalized = null;
+        if (category != null && !category.trim().isEmpty()) {
+            categoryLower = category.toLowerCase().trim();
+            categoryNormalized = categoryLower.replace("%20", " ").replace("-", " ").replace("_", " ");
+        }
+
+        List<CatalogSnapshot.Entry> candidates;
+        if (search != null && !search.trim().isEmpty()) {
+            candidates = rankedEntries(snap, search);
+        } else {
+            candidates = new ArrayList<>(snap.size());
+            for (int i = 0; i < snap.size(); i++) candidates.add(snap.entry(i));
+        }
+
+        List<CatalogSnapshot.Entry> result = new ArrayList<>();
+        for (CatalogSnapshot.Entry e : candidates) {
+            if (categoryLower != null && !matchesCategory(e, categoryLower, categoryNormalized)) continue;
+            if (minPrice != null && (e.price == null || e.price < minPrice)) continue;
+            if (maxPrice != null && (e.price == null || e.price > maxPrice)) continue;
+            if (idFilter != null && !idFilter.test(e.id)) continue;
+            result.add(e);
+        }
+
+        Comparator<Product> order = comparatorFor(sort);
+        if (order != null) {
+            result.sort((a, b) -> order.compare(a.product, b.product));
+        }
+        return summaries(result);
+    }
+
+    /**
+     * Products whose category equals the given name (case-insensitive, '-' treated as ' ').
+     */
+    public List<ProductSummaryDTO> byCategory(String categoryName) {
+        CatalogSnapshot snap = snapshot();
+        String nameLower = categoryName.toLowerCase();
+        String nameDashless = nameLower.replace("-", " ");
+        List<ProductSummaryDTO> result = new ArrayList<>();
+        for (int i = 0; i < snap.size(); i++) {
+            CatalogSnapshot.Entry e = snap.entry(i);
+            if (e.categoryLower == null) continue;
+            if (e.categoryLower.equals(nameLower) || e.categoryDashless.equals(nameDashless)) {
+                result.add(e.summary);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Full-text search over name, description, category, subcategory, fabric and
+     * variant colors, best match first.
+     */
+    public List<ProductSummaryDTO> search(String q) {
+        return summaries(rankedEntries(snapshot(), q));
+    }
+
+    private static List<ProductSummaryDTO> summaries(List<CatalogSnapshot.Entry> entries) {
+        List<ProductSummaryDTO> result = new ArrayList<>(entries.size());
+        for (CatalogSnapshot.Entry e : entries) {
+            result.add(e.summary);
+        }
+        return result;
+    }
+
+    private List<CatalogSnapshot.Entry> rankedEntries(CatalogSnapshot snap, String q) {
+        List<Long> ids = searchIndex.search(q);
+        List<CatalogSnapshot.Entry> entries = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            // The index can briefly run ahead of the snapshot; skip ids it does not hold
+            CatalogSnapshot.Entry e = snap.find(id);
+            if (e != null) entries.add(e);
+        }
+        return entries;
+    }
+
+    private static boolean matchesCategory(CatalogSnapshot.Entry e, String categoryLower, String categoryNormalized) {
+        if (e.categoryLower == null) return false;
+        // Direct match
+        if (e.categoryTrimmed.equals(categoryLower)) return true;
+        // Normalized match, then partial match either way
+        String productCategory = e.categoryNormalized;
+        return productCategory.equals(categoryNormalized)
+                || productCategory.contains(categoryNormalized)
+                || categoryNormalized.contains(productCategory);
+    }
+
+    private static Comparator<Product> comparatorFor(String sort) {
+        if (sort == null) return null;
+        Comparator<Product> byPrice = Comparator.comparingDouble(p -> p.getPrice() != null ? p.getPrice() : 0.0);
+        Comparator<Product> byName = (a, b) -> {
+            String nameA = a.getName() != null ? a.getName() : "";
+            String nameB = b.getName() != null ? b.getName() : "";
+            return nameA.compareToIgnoreCase(nameB);
+        };
+        Comparator<Product> byId = Comparator.comparingLong(Product::getId);
+        switch (sort.toLowerCase()) {
+            case "price-low-high":
+                return byPrice;
+            case "price-high-low":
+                return byPrice.reversed();
+            case "name-a-z":
+                return byName;
+            case "name-z-a":
+                return byName.reversed();
+            case "oldest":
+                return byId;
+            case "newest":
+            default:
+                // Default sorting by ID descending (newest first)
+                return byId.reversed();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.eduprajna.dto.ProductSummaryDTO;
+import com.eduprajna.entity.Product;
+import com.eduprajna.entity.ProductVariant;
+
+/**
+ * Immutable, pre-normalized view of the active catalog.
+ *
+ * Entries are kept in ascending product id order (the order findAll() used to
+ * return) and carry lower-cased copies of the fields the storefront filters on,
+ * so request handling never has to allocate strings per product. Text search
+ * goes through {@link ProductSearchIndex} instead.
+ * A snapshot is never modified; writes produce a new snapshot via
+ * {@link #with(Product)} / {@link #without(Long)} which CatalogService swaps in.
+ */
+public final class CatalogSnapshot {
+
+    public static final CatalogSnapshot EMPTY = new CatalogSnapshot(new Entry[0]);
+
+    private final Entry[] entries;
+    private final Map<Long, Entry> byId;
+    private final List<Product> products;
+
+    private CatalogSnapshot(Entry[] entries) {
+        this.entries = entries;
+        Map<Long, Entry> index = new HashMap<>(entries.length * 2);
+        List<Product> list = new ArrayList<>(entries.length);
+        for (Entry e : entries) {
+            index.put(e.id, e);
+            list.add(e.product);
+        }
+        this.byId = index;
+        this.products = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Build a snapshot from fully initialized (variants loaded) products.
+     * Inactive products are dropped.
+     */
+    public static CatalogSnapshot of(Collection<Product> source) {
+        List<Entry> list = new ArrayList<>(source.size());
+        for (Product p : source) {
+            if (isPublic(p)) {
+                list.add(new Entry(p));
+            }
+        }
+        Entry[] arr = list.toArray(new Entry[0]);
+        Arrays.sort(arr, (a, b) -> Long.compare(a.id, b.id));
+        return new CatalogSnapshot(arr);
+    }
+
+    /**
+     * Copy of this snapshot with the given product inserted or replaced.
+     * Inactive products are removed instead.
+     */
+    public CatalogSnapshot with(Product product) {
+        if (product == null || product.getId() == null) return this;
+        if (!isPublic(product)) return without(product.getId());
+
+        Entry replacement = new Entry(product);
+        int pos = indexOf(replacement.id);
+        Entry[] next;
+        if (pos >= 0) {
+            next = entries.clone();
+            next[pos] = replacement;
+        } else {
+            int insertAt = -pos - 1;
+            next = new Entry[entries.length + 1];
+            System.arraycopy(entries, 0, next, 0, insertAt);
+            next[insertAt] = replacement;
+            System.arraycopy(entries, insertAt, next, insertAt + 1, entries.length - insertAt);
+        }
+        return new CatalogSnapshot(next);
+    }
+
+    /**
+     * Copy of this snapshot without the given product.
+     */
+    public CatalogSnapshot without(Long productId) {
+        if (productId == null) return this;
+        int pos = indexOf(productId);
+        if (pos < 0) return this;
+        Entry[] next = new Entry[entries.length - 1];
+        System.arraycopy(entries, 0, next, 0, pos);
+        System.arraycopy(entries, pos + 1, next, pos, entries.length - pos - 1);
+        return new CatalogSnapshot(next);
+    }
+
+    public int size() { return entries.length; }
+
+    /** Entry at the given position (ascending id order). */
+    public Entry entry(int i) { return entries[i]; }
+
+    public Entry find(Long productId) {
+        return productId == null ? null : byId.get(productId);
+    }
+
+    /** Position of the product in {@link #entry(int)} order, or -1 if absent. */
+    public int position(Long productId) {
+        if (productId == null) return -1;
+        int pos = indexOf(productId);
+        return pos >= 0 ? pos : -1;
+    }
+
+    /** Active product by id, or null if missing/inactive. */
+    public Product get(Long productId) {
+        Entry e = find(productId);
+        return e != null ? e.product : null;
+    }
+
+    /** All active products, ascending id order. */
+    public List<Product> products() { return products; }
+
+    private int indexOf(long id) {
+        int lo = 0, hi = entries.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long midId = entries[mid].id;
+            if (midId < id) lo = mid + 1;
+            else if (midId > id) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private static boolean isPublic(Product p) {
+        return p.getId() != null && Boolean.TRUE.equals(p.getIsActive());
+    }
+
+    /**
+     * One active product plus the normalized values used by the public filters.
+     */
+    public static final class Entry {
+        public final long id;
+        public final Product product;
+        /** category.toLowerCase() exactly as stored (not trimmed) */
+        public final String categoryLower;
+        /** categoryLower trimmed */
+        public final String categoryTrimmed;
+        /** categoryLower with '-' folded to ' ' */
+        public final String categoryDashless;
+        /** trimmed category with '-' and '_' folded to ' ' */
+        public final String categoryNormalized;
+        /** Price of the primary (first) variant, null if the product has none */
+        public final Double price;
+        /** True if any variant can be bought (flagged in stock with quantity left or untracked) */
+        public final boolean inStock;
+        /** Listing row, built once per snapshot entry */
+        public final ProductSummaryDTO summary;
+
+        Entry(Product p) {
+            this.id = p.getId();
+            this.product = p;
+            String category = p.getCategory();
+            if (category != null) {
+                this.categoryLower = category.toLowerCase();
+                this.categoryTrimmed = categoryLower.trim();
+                this.categoryDashless = categoryLower.replace("-", " ");
+                this.categoryNormalized = categoryTrimmed.replace("-", " ").replace("_", " ");
+            } else {
+                this.categoryLower = null;
+                this.categoryTrimmed = null;
+                this.categoryDashless = null;
+                this.categoryNormalized = null;
+            }
+            this.price = p.getPrice();
+            this.inStock = computeInStock(p);
+            this.summary = summarize(p, price, inStock);
+        }
+
+        private static ProductSummaryDTO summarize(Product p, Double price, boolean inStock) {
+            Double min = null;
+            Double max = null;
+            if (p.getVariants() != null) {
+                for (ProductVariant v : p.getVariants()) {
+                    Double vp = v.getPrice();
+                    if (vp == null) continue;
+                    if (min == null || vp < min) min = vp;
+                    if (max == null || vp > max) max = vp;
+                }
+            }
+            return new ProductSummaryDTO(p.getId(), p.getName(), p.getCategory(), price, p.getOriginalPrice(), min, max,
+                    p.getImageUrl(), inStock);
+        }
+
+        private static boolean computeInStock(Product p) {
+            if (p.getVariants() == null || p.getVariants().isEmpty()) {
+                return !Boolean.FALSE.equals(p.getInStock());
+            }
+            for (ProductVariant v : p.getVariants()) {
+                boolean flagged = !Boolean.FALSE.equals(v.getInStock());
+                Integer qty = v.getStockQuantity();
+                if (flagged && (qty == null || qty > 0)) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.eduprajna.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Minimal consecutive-failure circuit breaker.
+ *
+ * CLOSED lets every call through. {@code failureThreshold} failures in a row open it;
+ * while OPEN calls are refused so callers go straight to an alternative. After
+ * {@code openMillis} one trial call is let through (HALF_OPEN): success closes the
+ * breaker, failure opens it again for another period.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long trialStartedAt;
+    private long timesOpened;
+
+    CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    boolean allowRequest() {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            switch (state) {
+                case CLOSED:
+                    return true;
+                case OPEN:
+                    if (now - openedAt < openMillis) return false;
+                    state = State.HALF_OPEN;
+                    trialStartedAt = now;
+                    return true;
+                default:
+                    // One trial at a time; let another through if the last one never reported back
+                    if (now - trialStartedAt < openMillis) return false;
+                    trialStartedAt = now;
+                    return true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onSuccess() {
+        lock.lock();
+        try {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onFailure() {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                if (state != State.OPEN) timesOpened++;
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    State state() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Map<String, Object> stats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("name", name);
+            stats.put("state", state.name());
+            stats.put("consecutiveFailures", consecutiveFailures);
+            stats.put("timesOpened", timesOpened);
+            if (state != State.CLOSED) {
+                stats.put("retryAfterMs", Math.max(openMillis - (System.currentTimeMillis() - openedAt), 0));
+            }
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.eduprajna.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.eduprajna.entity.EmailOutbox;
+import com.eduprajna.entity.Order;
+import com.eduprajna.entity.User;
+import com.eduprajna.repository.EmailOutboxRepository;
+
+/**
+ * Transactional outbox for customer emails.
+ *
+ * Callers enqueue a fully rendered message (text and, if the template has one, HTML)
+ * inside their own transaction, so the
+ * email exists if and only if the order change commits, and the request never waits
+ * on SMTP. A small bounded pool of workers drains due rows after each commit and on
+ * a schedule. A worker claims a row with a conditional UPDATE, so a message is sent
+ * by one worker (or instance) at a time; failures are retried with exponential
+ * backoff until app.email-outbox.max-attempts, after which the row is left FAILED.
+ *
+ * Each worker sends what it claimed as one batch over a single pooled SMTP session,
+ * and all workers share one send-rate limit (app.email-outbox.max-per-second).
+ */
+@Service
+public class EmailOutboxService {
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    private static final int RECENT_BATCHES = 20;
+
+    private final EmailOutboxRepository outboxRepo;
+    private final EmailService emailService;
+    private final SmtpTransports smtpTransports;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.email-outbox.workers:4}")
+    private int workers;
+
+    @Value("${app.email-outbox.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.email-outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.email-outbox.backoff-base-seconds:30}")
+    private long backoffBaseSeconds;
+
+    @Value("${app.email-outbox.backoff-max-seconds:3600}")
+    private long backoffMaxSeconds;
+
+    // How long a claimed row stays with its worker before another may retry it
+    @Value("${app.email-outbox.lock-seconds:120}")
+    private long lockSeconds;
+
+    // Overall SMTP send rate across all workers, to stay under provider limits (0 = unlimited)
+    @Value("${app.email-outbox.max-per-second:10}")
+    private double maxPerSecond;
+
+    private SendRateLimiter rateLimiter;
+    private final ConcurrentLinkedDeque<Map<String, Object>> recentBatches = new ConcurrentLinkedDeque<>();
+    private ThreadPoolExecutor pool;
+    private final AtomicInteger activeDrains = new AtomicInteger();
+
+    public EmailOutboxService(EmailOutboxRepository outboxRepo, EmailService emailService,
+                              SmtpTransports smtpTransports, ApplicationEventPublisher eventPublisher) {
+        this.outboxRepo = outboxRepo;
+        this.emailService = emailService;
+        this.smtpTransports = smtpTransports;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostConstruct
+    void start() {
+        rateLimiter = new SendRateLimiter(maxPerSecond);
+        AtomicInteger threadCount = new AtomicInteger();
+        pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(workers), r -> {
+            Thread t = new Thread(r, "email-outbox-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queue the confirmation for a newly placed order. Must run in the order transaction.
+     */
+    public void enqueueOrderConfirmation(Order order, User user) {
+        if (user == null || user.getEmail() == null) return;
+        enqueue(EmailOutbox.ORDER_CONFIRMATION, order, user, emailService.renderOrderConfirmation(order, user.getName()));
+    }
+
+    /**
+     * Queue a status update for an order. Must run in the transaction that changes the status.
+     */
+    public void enqueueOrderStatus(Order order, User user, String status) {
+        if (user == null || user.getEmail() == null) return;
+        enqueue(EmailOutbox.ORDER_STATUS, order, user,
+                emailService.renderOrderStatus(user.getName(), order.getId().toString(), status));
+    }
+
+    private void enqueue(String kind, Order order, User user, RenderedEmail email) {
+        EmailOutbox message = new EmailOutbox(kind, order.getId(), user.getEmail(), email.getSubject(), email.getText());
+        message.setHtmlBody(email.getHtml());
+        enqueue(message);
+    }
+
+    private void enqueue(EmailOutbox message) {
+        outboxRepo.save(message);
+        eventPublisher.publishEvent(new EmailQueuedEvent(message.getId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onQueued(EmailQueuedEvent event) {
+        wake();
+    }
+
+    /**
+     * Picks up retries whose backoff has elapsed and anything queued while no worker was woken.
+     */
+    @Scheduled(fixedDelayString = "${app.email-outbox.poll-ms:15000}")
+    public void poll() {
+        wake();
+    }
+
+    /**
+     * Start one more drain if fewer than app.email-outbox.workers are running.
+     */
+    private void wake() {
+        while (true) {
+            int running = activeDrains.get();
+            if (running >= workers) return;
+            if (activeDrains.compareAndSet(running, running + 1)) break;
+        }
+        try {
+            pool.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            activeDrains.decrementAndGet();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                LocalDateTime now = LocalDateTime.now();
+                List<Long> ids = outboxRepo.findDueIds(now, PageRequest.of(0, batchSize));
+                List<Long> claimed = new ArrayList<>(ids.size());
+                for (Long id : ids) {
+                    if (outboxRepo.claim(id, now, now.plusSeconds(lockSeconds)) == 1) claimed.add(id);
+                }
+                if (!claimed.isEmpty()) dispatch(claimed);
+                // Stop when the backlog is empty or the other workers already own this page
+                if (ids.size() < batchSize || claimed.isEmpty()) break;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Email outbox drain failed", e);
+        } finally {
+            activeDrains.decrementAndGet();
+        }
+    }
+
+    /**
+     * Send one claimed batch down a single SMTP session, paced by the shared rate limit,
+     * then record the outcome of every message and a batch report.
+     */
+    private void dispatch(List<Long> ids) {
+        List<EmailOutbox> batch = outboxRepo.findAllById(ids);
+        List<EmailOutbox> ready = new ArrayList<>(batch.size());
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        int failed = 0;
+        for (EmailOutbox m : batch) {
+            try {
+                messages.add(emailService.prepare(m.getRecipientEmail(), m.getSubject(), m.getBody(), m.getHtmlBody()));
+                ready.add(m);
+            } catch (RuntimeException e) {
+                recordFailure(m, e.getMessage());
+                failed++;
+            }
+        }
+
+        long started = System.nanoTime();
+        MessagingException[] errors = smtpTransports.sendBatch(messages, rateLimiter::acquire);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        List<Long> sent = new ArrayList<>(ready.size());
+        for (int i = 0; i < ready.size(); i++) {
+            if (errors[i] == null) {
+                sent.add(ready.get(i).getId());
+            } else {
+                recordFailure(ready.get(i), errors[i].getMessage());
+                failed++;
+            }
+        }
+        if (!sent.isEmpty()) outboxRepo.markSentByIds(sent, LocalDateTime.now());
+
+        double perSecond = elapsedMs > 0 ? sent.size() * 1000.0 / elapsedMs : sent.size();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("finishedAt", LocalDateTime.now().toString());
+        report.put("size", batch.size());
+        report.put("sent", sent.size());
+        report.put("failed", failed);
+        report.put("elapsedMs", elapsedMs);
+        report.put("perSecond", Math.round(perSecond * 10) / 10.0);
+        recentBatches.addFirst(report);
+        while (recentBatches.size() > RECENT_BATCHES) recentBatches.pollLast();
+        logger.info("Outbox batch: {} sent, {} failed of {} in {} ms ({} msg/s)",
+                sent.size(), failed, batch.size(), elapsedMs, report.get("perSecond"));
+    }
+
+    private void recordFailure(EmailOutbox message, String error) {
+        int attempts = message.getAttempts();
+        error = truncate(error);
+        if (attempts >= maxAttempts) {
+            outboxRepo.markAttemptFailed(message.getId(), EmailOutbox.FAILED, LocalDateTime.now(), error);
+            logger.error("Outbox email {} to {} failed after {} attempts: {}",
+                    message.getId(), message.getRecipientEmail(), attempts, error);
+        } else {
+            LocalDateTime next = LocalDateTime.now().plusSeconds(backoffSeconds(attempts));
+            outboxRepo.markAttemptFailed(message.getId(), EmailOutbox.PENDING, next, error);
+            logger.warn("Outbox email {} attempt {} failed, retrying at {}: {}", message.getId(), attempts, next, error);
+        }
+    }
+
+    /**
+     * Queue depth and the most recent batch reports, for the mailtransport actuator endpoint.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", outboxRepo.countByStatus(EmailOutbox.PENDING));
+        stats.put("failed", outboxRepo.countByStatus(EmailOutbox.FAILED));
+        stats.put("activeWorkers", activeDrains.get());
+        stats.put("maxPerSecond", maxPerSecond);
+        stats.put("recentBatches", new ArrayList<>(recentBatches));
+        return stats;
+    }
+
+    /**
+     * base * 2^(attempts-1), capped, with up to 20% jitter so retries after an outage spread out.
+     */
+    private long backoffSeconds(int attempts) {
+        long delay = backoffBaseSeconds << Math.min(Math.max(attempts - 1, 0), 20);
+        delay = Math.min(delay, backoffMaxSeconds);
+        return delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1);
+    }
+
+    private static String truncate(String error) {
+        if (error == null) return null;
+        return error.length() <= 500 ? error : error.substring(0, 500);
+    }
+}
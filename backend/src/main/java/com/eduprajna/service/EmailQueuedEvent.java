@@ -0,0 +1,15 @@
+package com.eduprajna.service;
+
+/**
+ * Published when a message is written to the email outbox; the outbox workers
+ * are woken once the surrounding transaction has committed.
+ */
+public class EmailQueuedEvent {
+    private final Long outboxId;
+
+    public EmailQueuedEvent(Long outboxId) {
+        this.outboxId = outboxId;
+    }
+
+    public Long getOutboxId() { return outboxId; }
+}
@@ -1,16 +1,24 @@
 package com.eduprajna.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Properties;
+import com.eduprajna.entity.Order;
+import com.eduprajna.entity.OrderItem;
+import com.eduprajna.entity.ShippingSnapshot;
 
 /**
  * Service for sending emails
@@ -20,17 +28,12 @@ public class EmailService {
     
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
     
+    // Pooled primary (587) and fallback (465) SMTP routes with circuit breakers
     @Autowired
-    private JavaMailSender mailSender;
-    
-    @Value("${spring.mail.host:smtp.gmail.com}")
-    private String mailHost;
+    private SmtpTransports smtpTransports;
     
-    @Value("${spring.mail.username:}")
-    private String mailUsername;
-    
-    @Value("${spring.mail.password:}")
-    private String mailPassword;
+    @Autowired
+    private EmailTemplates templates;
     
     /**
      * Send password reset email with reset link
@@ -42,18 +45,8 @@ public class EmailService {
      */
     public boolean sendPasswordResetEmail(String recipientEmail, String username, String resetLink) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            // Use the authenticated Gmail sender to avoid SPF/DMARC rejections
-            message.setFrom("keerthudarshu06@gmail.com");
-            message.setTo(recipientEmail);
-            message.setSubject("Avira Udupu - Password Reset Request");
-            
-            String emailBody = buildPasswordResetEmailBody(username, resetLink, recipientEmail);
-            message.setText(emailBody);
-            
-            if (!sendWithFallback(message)) {
-                throw new MailSendException("Primary and fallback SMTP send failed");
-            }
+            send(recipientEmail, templates.render("password-reset",
+                    model("username", username, "resetLink", resetLink, "email", recipientEmail)));
             logger.info("Password reset email sent successfully to: {}", recipientEmail);
             return true;
             
@@ -64,26 +57,6 @@ public class EmailService {
         }
     }
     
-    
-    
-    
-    
-    /**
-     * Build the email body for password reset
-     */
-    private String buildPasswordResetEmailBody(String username, String resetLink, String email) {
-        return "Hello " + username + ",\n\n" +
-               "We received a request to reset your password. Click the link below to reset your password:\n\n" +
-               resetLink + "\n\n" +
-               "This link will expire in 24 hours.\n\n" +
-               "Your Account Details:\n" +
-               "- Username: " + username + "\n" +
-               "- Email: " + email + "\n\n" +
-               "If you did not request a password reset, please ignore this email.\n\n" +
-               "Best regards,\n" +
-               "Avira Udupu Support Team";
-    }
-    
     /**
      * Send account credentials via email
      * 
@@ -94,25 +67,8 @@ public class EmailService {
      */
     public boolean sendCredentialsEmail(String recipientEmail, String username, String password) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            // Use the authenticated Gmail sender to avoid SPF/DMARC rejections
-            message.setFrom("keerthudarshu06@gmail.com");
-            message.setTo(recipientEmail);
-            message.setSubject("Avira Udupu - Your Account Credentials");
-            
-            String emailBody = "Hello " + username + ",\n\n" +
-                             "Here are your account credentials:\n\n" +
-                             "Email: " + recipientEmail + "\n" +
-                             "Username: " + username + "\n" +
-                             "Password: " + password + "\n\n" +
-                             "Please keep these credentials secure and change your password after first login.\n\n" +
-                             "Best regards,\n" +
-                             "Avira Udupu Support Team";
-            
-            message.setText(emailBody);
-            if (!sendWithFallback(message)) {
-                throw new MailSendException("Primary and fallback SMTP send failed");
-            }
+            send(recipientEmail, templates.render("credentials",
+                    model("username", username, "email", recipientEmail, "password", password)));
             logger.info("Credentials email sent successfully to: {}", recipientEmail);
             return true;
             
@@ -122,31 +78,14 @@ public class EmailService {
             return false;
         }
     }
+
     /**
      * Send order confirmation email
      */
     public boolean sendOrderConfirmationEmail(String recipientEmail, String customerName, String orderId, String orderTotal) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom("keerthudarshu06@gmail.com");
-            message.setTo(recipientEmail);
-            message.setSubject("Avira Udupu - Order Confirmation #" + orderId);
-            
-            String emailBody = "Dear " + customerName + ",\n\n" +
-                             "Thank you for your order! We're excited to confirm that we've received your order.\n\n" +
-                             "Order Details:\n" +
-                             "Order ID: #" + orderId + "\n" +
-                             "Order Total: ₹" + orderTotal + "\n\n" +
-                             "We'll send you another email when your order has been shipped.\n\n" +
-                             "You can track your order status anytime by logging into your account.\n\n" +
-                             "Thank you for shopping with Avira Udupu!\n\n" +
-                             "Best regards,\n" +
-                             "Avira Udupu Team";
-            
-            message.setText(emailBody);
-            if (!sendWithFallback(message)) {
-                throw new MailSendException("Primary and fallback SMTP send failed");
-            }
+            send(recipientEmail, templates.render("order-confirmation",
+                    model("customerName", customerName, "orderId", orderId, "orderTotal", orderTotal)));
             logger.info("Order confirmation email sent successfully to: {} for order: {}", recipientEmail, orderId);
             return true;
             
@@ -162,27 +101,7 @@ public class EmailService {
      */
     public boolean sendOrderStatusEmail(String recipientEmail, String customerName, String orderId, String status) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom("keerthudarshu06@gmail.com");
-            message.setTo(recipientEmail);
-            message.setSubject("Avira Udupu - Order Status Update #" + orderId);
-            
-            String statusMessage = getStatusMessage(status);
-            
-            String emailBody = "Dear " + customerName + ",\n\n" +
-                             "Your order status has been updated.\n\n" +
-                             "Order ID: #" + orderId + "\n" +
-                             "New Status: " + status + "\n\n" +
-                             statusMessage + "\n\n" +
-                             "You can track your order status anytime by logging into your account.\n\n" +
-                             "Thank you for shopping with Avira Udupu!\n\n" +
-                             "Best regards,\n" +
-                             "Avira Udupu Team";
-            
-            message.setText(emailBody);
-            if (!sendWithFallback(message)) {
-                throw new MailSendException("Primary and fallback SMTP send failed");
-            }
+            send(recipientEmail, renderOrderStatus(customerName, orderId, status));
             logger.info("Order status email sent successfully to: {} for order: {} with status: {}", recipientEmail, orderId, status);
             return true;
             
@@ -193,6 +112,64 @@ public class EmailService {
         }
     }
 
+    /**
+     * Confirmation for a placed order, with line items, totals and the shipping address.
+     */
+    RenderedEmail renderOrderConfirmation(Order order, String customerName) {
+        List<Map<String, Object>> items = new ArrayList<>(order.getItems().size());
+        for (OrderItem item : order.getItems()) {
+            String name = item.getProduct() != null ? item.getProduct().getName() : "Item";
+            if (item.getVariantName() != null && !item.getVariantName().isBlank()) {
+                name += " (" + item.getVariantName() + ")";
+            }
+            int qty = item.getQuantity() != null ? item.getQuantity() : 0;
+            double price = item.getPrice() != null ? item.getPrice() : 0;
+            items.add(model("name", name, "quantity", qty, "price", money(price), "lineTotal", money(price * qty)));
+        }
+        Map<String, Object> model = model(
+                "customerName", customerName,
+                "orderId", order.getId().toString(),
+                "orderTotal", money(order.getTotal()),
+                "subtotal", money(order.getSubtotal()),
+                "shippingFee", money(order.getShippingFee()),
+                "items", items,
+                "hasItems", !items.isEmpty());
+        ShippingSnapshot ship = order.getShipping();
+        if (ship != null && ship.getStreet() != null) {
+            model.put("shipping", model("name", ship.getName(), "street", ship.getStreet(), "city", ship.getCity(),
+                    "state", ship.getState(), "pincode", ship.getPincode()));
+        }
+        return templates.render("order-confirmation", model);
+    }
+
+    RenderedEmail renderOrderStatus(String customerName, String orderId, String status) {
+        return templates.render("order-status", model("customerName", customerName, "orderId", orderId,
+                "status", status, "statusMessage", getStatusMessage(status)));
+    }
+
+    /**
+     * Template model from alternating keys and values; unlike Map.of, values may be null.
+     */
+    static Map<String, Object> model(Object... keyValues) {
+        Map<String, Object> model = new HashMap<>(keyValues.length);
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            model.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return model;
+    }
+
+    private static String money(Double amount) {
+        return amount != null ? String.format("%.2f", amount) : null;
+    }
+
+    /**
+     * Send a rendered email (multipart text + HTML when it has an HTML body), throwing
+     * if both the primary and fallback SMTP attempts fail.
+     */
+    void send(String recipientEmail, RenderedEmail email) {
+        smtpTransports.send(prepare(recipientEmail, email.getSubject(), email.getText(), email.getHtml()));
+    }
+
     /**
      * Send test email to verify SMTP configuration
      */
@@ -210,9 +187,7 @@ public class EmailService {
                              "Avira Udupu Team";
             
             message.setText(emailBody);
-            if (!sendWithFallback(message)) {
-                throw new MailSendException("Primary and fallback SMTP send failed");
-            }
+            smtpTransports.send(message);
             logger.info("Test email sent successfully to: {}", recipientEmail);
             return true;
             
@@ -224,35 +199,26 @@ public class EmailService {
     }
 
     /**
-     * Try primary mail sender (typically STARTTLS:587). If it fails due to connectivity,
-     * attempt a fallback sender configured for SSL on port 465.
+     * Build a UTF-8 message from the shop address: plain text, or multipart/alternative
+     * when there is an HTML body. The outbox workers prepare a batch this way and hand
+     * it to {@link SmtpTransports#sendBatch}.
      */
-    private boolean sendWithFallback(SimpleMailMessage message) {
+    MimeMessage prepare(String recipientEmail, String subject, String text, String html) {
+        MimeMessage message = new MimeMessage(smtpTransports.session());
         try {
-            mailSender.send(message);
-            return true;
-        } catch (Exception primaryEx) {
-            logger.warn("Primary SMTP send failed: {}. Trying SSL/465 fallback...", primaryEx.getMessage());
-            try {
-                JavaMailSenderImpl fallback = new JavaMailSenderImpl();
-                fallback.setHost(mailHost);
-                fallback.setPort(465);
-                fallback.setUsername(mailUsername);
-                fallback.setPassword(mailPassword);
-                Properties props = fallback.getJavaMailProperties();
-                props.put("mail.smtp.auth", "true");
-                props.put("mail.smtp.ssl.enable", "true");
-                props.put("mail.smtp.starttls.enable", "false");
-                props.put("mail.smtp.connectiontimeout", "10000");
-                props.put("mail.smtp.timeout", "10000");
-                props.put("mail.smtp.writetimeout", "10000");
-                fallback.send(message);
-                return true;
-            } catch (Exception fallbackEx) {
-                logger.error("Fallback SSL/465 SMTP send failed: {}", fallbackEx.getMessage(), fallbackEx);
-                return false;
+            MimeMessageHelper helper = new MimeMessageHelper(message, html != null, "UTF-8");
+            helper.setFrom("keerthudarshu06@gmail.com");
+            helper.setTo(recipientEmail);
+            helper.setSubject(subject);
+            if (html != null) {
+                helper.setText(text, html);
+            } else {
+                helper.setText(text);
             }
+        } catch (MessagingException e) {
+            throw new MailPreparationException("Could not prepare email to " + recipientEmail, e);
         }
+        return message;
     }
 
     /**
@@ -0,0 +1,257 @@
+package com.eduprajna.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An email template compiled once into a flat list of segments.
+ *
+ * Syntax is a small Mustache subset:
+ * <ul>
+ *   <li>{@code {{name}}} inserts a value (HTML-escaped in .html templates); dotted names
+ *       walk nested maps, {@code {{.}}} is the current item</li>
+ *   <li>{@code {{{name}}}} inserts a value without escaping</li>
+ *   <li>{@code {{#name}}...{{/name}}} renders once per element of a collection, or once
+ *       if the value is true / non-empty; {@code {{^name}}...{{/name}}} renders if it is not</li>
+ *   <li>{@code {{! comment}}} is dropped</li>
+ * </ul>
+ * Rendering appends to a caller-supplied StringBuilder and does no parsing or lookups
+ * beyond walking the segments and reading map entries.
+ */
+final class EmailTemplate {
+
+    private final String name;
+    private final Segment[] segments;
+
+    private EmailTemplate(String name, Segment[] segments) {
+        this.name = name;
+        this.segments = segments;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * @throws IllegalArgumentException on unbalanced sections or unterminated tags
+     */
+    static EmailTemplate compile(String name, String source, boolean html) {
+        Deque<Frame> open = new ArrayDeque<>();
+        Frame root = new Frame(null, false);
+        Frame current = root;
+        int pos = 0;
+        while (pos < source.length()) {
+            int start = source.indexOf("{{", pos);
+            if (start < 0) {
+                current.segments.add(new Text(source.substring(pos)));
+                break;
+            }
+            boolean triple = source.startsWith("{{{", start);
+            String close = triple ? "}}}" : "}}";
+            int end = source.indexOf(close, start + close.length());
+            if (end < 0) throw new IllegalArgumentException(name + ": unterminated tag at offset " + start);
+            String tag = source.substring(start + close.length(), end).trim();
+            int after = end + close.length();
+            char kind = triple ? '{' : tag.isEmpty() ? ' ' : tag.charAt(0);
+
+            // A section or comment tag alone on its line takes the whole line with it,
+            // so templates can put {{#items}} on its own line without leaving blank lines
+            int textEnd = start;
+            if (kind == '#' || kind == '^' || kind == '/' || kind == '!') {
+                int lineStart = source.lastIndexOf('\n', start - 1) + 1;
+                if (lineStart >= pos && source.substring(lineStart, start).isBlank()) {
+                    int eol = after;
+                    while (eol < source.length() && (source.charAt(eol) == ' ' || source.charAt(eol) == '\t' || source.charAt(eol) == '\r')) eol++;
+                    if (eol == source.length() || source.charAt(eol) == '\n') {
+                        textEnd = lineStart;
+                        after = Math.min(eol + 1, source.length());
+                    }
+                }
+            }
+            if (textEnd > pos) current.segments.add(new Text(source.substring(pos, textEnd)));
+            pos = after;
+
+            switch (kind) {
+                case '{':
+                    current.segments.add(new Value(path(tag), false));
+                    break;
+                case '!':
+                    break;
+                case '#':
+                case '^':
+                    open.push(current);
+                    current = new Frame(tag.substring(1).trim(), kind == '^');
+                    break;
+                case '/': {
+                    String closing = tag.substring(1).trim();
+                    if (current.section == null || !current.section.equals(closing)) {
+                        throw new IllegalArgumentException(name + ": unexpected {{/" + closing + "}} at offset " + start);
+                    }
+                    Section section = new Section(path(current.section), current.inverted, toArray(mergeText(current.segments)));
+                    current = open.pop();
+                    current.segments.add(section);
+                    break;
+                }
+                default:
+                    current.segments.add(new Value(path(tag), html));
+            }
+        }
+        if (current != root) throw new IllegalArgumentException(name + ": unclosed section {{#" + current.section + "}}");
+        return new EmailTemplate(name, toArray(mergeText(root.segments)));
+    }
+
+    void render(Map<String, ?> model, StringBuilder out) {
+        Deque<Object> context = new ArrayDeque<>(4);
+        context.push(model != null ? model : Map.of());
+        for (Segment s : segments) s.render(context, out);
+    }
+
+    private static String[] path(String name) {
+        return ".".equals(name) ? new String[0] : name.split("\\.");
+    }
+
+    private static Segment[] toArray(List<Segment> segments) {
+        return segments.toArray(new Segment[0]);
+    }
+
+    // Adjacent text (left behind by comments) becomes one segment
+    private static List<Segment> mergeText(List<Segment> segments) {
+        List<Segment> merged = new ArrayList<>(segments.size());
+        for (Segment s : segments) {
+            if (s instanceof Text t && !merged.isEmpty() && merged.get(merged.size() - 1) instanceof Text prev) {
+                merged.set(merged.size() - 1, new Text(prev.text + t.text));
+            } else {
+                merged.add(s);
+            }
+        }
+        return merged;
+    }
+
+    private static Object lookup(Deque<Object> context, String[] path) {
+        if (path.length == 0) return context.peek();
+        for (Object scope : context) {
+            if (scope instanceof Map<?, ?> map && map.containsKey(path[0])) {
+                Object value = map.get(path[0]);
+                for (int i = 1; i < path.length && value != null; i++) {
+                    value = value instanceof Map<?, ?> m ? m.get(path[i]) : null;
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static boolean truthy(Object value) {
+        if (value == null) return false;
+        if (value instanceof Boolean b) return b;
+        if (value instanceof Collection<?> c) return !c.isEmpty();
+        if (value instanceof CharSequence cs) return cs.length() > 0;
+        return true;
+    }
+
+    static void escapeHtml(CharSequence s, StringBuilder out) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '&' -> out.append("&amp;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private interface Segment {
+        void render(Deque<Object> context, StringBuilder out);
+    }
+
+    private static final class Text implements Segment {
+        final String text;
+
+        Text(String text) {
+            this.text = text;
+        }
+
+        public void render(Deque<Object> context, StringBuilder out) {
+            out.append(text);
+        }
+    }
+
+    private static final class Value implements Segment {
+        final String[] path;
+        final boolean escape;
+
+        Value(String[] path, boolean escape) {
+            this.path = path;
+            this.escape = escape;
+        }
+
+        public void render(Deque<Object> context, StringBuilder out) {
+            Object value = lookup(context, path);
+            if (value == null) return;
+            if (escape) {
+                escapeHtml(value instanceof CharSequence cs ? cs : value.toString(), out);
+            } else if (value instanceof CharSequence cs) {
+                out.append(cs);
+            } else {
+                out.append(value);
+            }
+        }
+    }
+
+    private static final class Section implements Segment {
+        final String[] path;
+        final boolean inverted;
+        final Segment[] body;
+
+        Section(String[] path, boolean inverted, Segment[] body) {
+            this.path = path;
+            this.inverted = inverted;
+            this.body = body;
+        }
+
+        public void render(Deque<Object> context, StringBuilder out) {
+            Object value = lookup(context, path);
+            if (inverted) {
+                if (!truthy(value)) renderBody(context, out);
+                return;
+            }
+            if (!truthy(value)) return;
+            if (value instanceof Collection<?> items) {
+                for (Object item : items) {
+                    if (item == null) continue;
+                    context.push(item);
+                    renderBody(context, out);
+                    context.pop();
+                }
+            } else if (value instanceof Map<?, ?>) {
+                context.push(value);
+                renderBody(context, out);
+                context.pop();
+            } else {
+                renderBody(context, out);
+            }
+        }
+
+        private void renderBody(Deque<Object> context, StringBuilder out) {
+            for (Segment s : body) s.render(context, out);
+        }
+    }
+
+    private static final class Frame {
+        final String section;
+        final boolean inverted;
+        final List<Segment> segments = new ArrayList<>();
+
+        Frame(String section, boolean inverted) {
+            this.section = section;
+            this.inverted = inverted;
+        }
+    }
+}
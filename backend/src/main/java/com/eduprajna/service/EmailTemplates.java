@@ -0,0 +1,170 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Email templates, compiled once and rendered many times.
+ *
+ * Each email {@code name} has up to three files: {@code name.subject.txt},
+ * {@code name.txt} (plain-text body) and {@code name.html} (HTML body, sent as the
+ * multipart alternative). Defaults ship on the classpath under email-templates/.
+ * If app.email.templates-dir is set, files there override the defaults and the
+ * directory is re-checked every app.email.templates-reload-ms; changed files are
+ * recompiled and swapped in without a restart, and a deleted file's default comes
+ * back. A template that fails to compile is logged and the previous version stays
+ * in use.
+ *
+ * Rendering borrows a StringBuilder from a small shared pool (not one per thread,
+ * which under virtual threads would mean one per send), so a render allocates
+ * little more than the resulting strings.
+ */
+@Service
+public class EmailTemplates {
+    private static final Logger logger = LoggerFactory.getLogger(EmailTemplates.class);
+
+    private static final String CLASSPATH_PATTERN = "classpath:email-templates/*";
+    // Buffers that grew past this (one unusually large email) are not put back
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final BlockingQueue<StringBuilder> BUFFERS =
+            new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+
+    @Value("${app.email.templates-dir:}")
+    private String templatesDir;
+
+    private volatile Map<String, EmailTemplate> templates = Map.of();
+    // Compiled classpath templates, and the overrides currently in use on top of them
+    private Map<String, EmailTemplate> defaults = Map.of();
+    private volatile Map<String, EmailTemplate> overrides = Map.of();
+    // File name -> last modified time of the override directory as last loaded
+    private volatile Map<String, Long> dirState = Map.of();
+
+    @PostConstruct
+    void load() {
+        Map<String, EmailTemplate> compiled = new HashMap<>();
+        try {
+            for (Resource r : new PathMatchingResourcePatternResolver().getResources(CLASSPATH_PATTERN)) {
+                String file = r.getFilename();
+                if (file == null || !isTemplateFile(file)) continue;
+                try (InputStream in = r.getInputStream()) {
+                    compiled.put(file, compile(file, new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load email templates", e);
+        }
+        defaults = Map.copyOf(compiled);
+        templates = defaults;
+        reloadFromDirectory();
+        logger.info("Loaded {} email templates", templates.size());
+    }
+
+    /**
+     * Render the subject and bodies of the named email.
+     * @throws IllegalArgumentException if there is no {@code name.txt} template
+     */
+    public RenderedEmail render(String name, Map<String, ?> model) {
+        Map<String, EmailTemplate> current = templates;
+        EmailTemplate text = current.get(name + ".txt");
+        if (text == null) throw new IllegalArgumentException("No email template named " + name);
+        EmailTemplate subject = current.get(name + ".subject.txt");
+        EmailTemplate html = current.get(name + ".html");
+        return new RenderedEmail(
+                subject != null ? render(subject, model).trim() : "",
+                render(text, model),
+                html != null ? render(html, model) : null);
+    }
+
+    private static String render(EmailTemplate template, Map<String, ?> model) {
+        StringBuilder sb = BUFFERS.poll();
+        if (sb == null) sb = new StringBuilder(4096);
+        sb.setLength(0);
+        template.render(model, sb);
+        String out = sb.toString();
+        // A full pool just drops the buffer
+        if (sb.capacity() <= MAX_RETAINED_BUFFER) BUFFERS.offer(sb);
+        return out;
+    }
+
+    /**
+     * Pick up added, edited or deleted files in app.email.templates-dir. The template
+     * map is rebuilt from the classpath defaults plus the files present now, so a
+     * deleted override falls back to its default.
+     */
+    @Scheduled(fixedDelayString = "${app.email.templates-reload-ms:5000}")
+    public void reloadFromDirectory() {
+        if (templatesDir == null || templatesDir.isBlank()) return;
+        Path dir = Paths.get(templatesDir);
+
+        Map<String, Long> state = new TreeMap<>();
+        // A directory that is gone counts as empty, so every default comes back
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : (Iterable<Path>) files::iterator) {
+                    String file = p.getFileName().toString();
+                    if (isTemplateFile(file) && Files.isRegularFile(p)) {
+                        state.put(file, Files.getLastModifiedTime(p).toMillis());
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("Could not list email templates in {}: {}", dir, e.getMessage());
+                return;
+            }
+        }
+        if (state.equals(dirState)) return;
+
+        Map<String, EmailTemplate> previous = overrides;
+        Map<String, EmailTemplate> current = new HashMap<>();
+        for (Map.Entry<String, Long> e : state.entrySet()) {
+            String file = e.getKey();
+            if (e.getValue().equals(dirState.get(file))) {
+                if (previous.containsKey(file)) current.put(file, previous.get(file));
+                continue;
+            }
+            try {
+                current.put(file, compile(file, Files.readString(dir.resolve(file), StandardCharsets.UTF_8)));
+                logger.info("Email template {} (re)loaded from {}", file, dir);
+            } catch (IOException | IllegalArgumentException ex) {
+                logger.error("Email template {} not reloaded: {}", file, ex.getMessage());
+                if (previous.containsKey(file)) current.put(file, previous.get(file));
+            }
+        }
+        for (String file : previous.keySet()) {
+            if (!state.containsKey(file)) logger.info("Email template override {} removed from {}", file, dir);
+        }
+
+        Map<String, EmailTemplate> updated = new HashMap<>(defaults);
+        updated.putAll(current);
+        overrides = current;
+        templates = updated;
+        dirState = state;
+    }
+
+    private static EmailTemplate compile(String file, String source) {
+        return EmailTemplate.compile(file, source, file.endsWith(".html"));
+    }
+
+    private static boolean isTemplateFile(String file) {
+        return file.endsWith(".txt") || file.endsWith(".html");
+    }
+}
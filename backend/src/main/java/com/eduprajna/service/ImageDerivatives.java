@@ -0,0 +1,326 @@
+package com.eduprajna.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+/**
+ * Fixed-width copies of uploaded images for listings and thumbnails.
+ *
+ * For an original {@code 123_photo.jpg} and widths 160/480/1024 the derivatives are
+ * {@code 123_photo.w160.jpg}, {@code 123_photo.w480.jpg} and {@code 123_photo.w1024.jpg}
+ * in the same directory. They are re-encoded with ImageIO, so EXIF and other metadata
+ * are dropped; PNG and GIF sources become PNG (to keep transparency), everything else
+ * JPEG. A width at or above the original's is written at the original size.
+ *
+ * Work runs on a bounded pool (app.images.workers, app.images.queue-size) so uploads
+ * return straight away. If the queue is full the image is skipped and picked up again
+ * the first time one of its sizes is requested. With a remote BlobStore the derivatives
+ * are made from the staged upload and put next to the original in the store; there an
+ * image that missed the queue is served at full size instead.
+ */
+@Service
+public class ImageDerivatives {
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivatives.class);
+
+    private static final Pattern DERIVATIVE_NAME = Pattern.compile(".+\\.w\\d+\\.(jpg|png)$");
+    private static final int MAX_REMEMBERED_FAILURES = 10_000;
+
+    private final int[] widths;
+    private final long maxPixels;
+    private final float jpegQuality;
+    private final ThreadPoolExecutor executor;
+    // Originals queued or being processed, so one image is not queued twice
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    // Originals that could not be decoded (e.g. WebP/AVIF, which ImageIO cannot read)
+    private final Set<Path> failed = ConcurrentHashMap.newKeySet();
+
+    public ImageDerivatives(@Value("${app.images.derivative-widths:160,480,1024}") int[] widths,
+                            @Value("${app.images.max-pixels:50000000}") long maxPixels,
+                            @Value("${app.images.jpeg-quality:0.82}") float jpegQuality,
+                            @Value("${app.images.workers:2}") int workers,
+                            @Value("${app.images.queue-size:200}") int queueSize) {
+        this.widths = Arrays.stream(widths).filter(w -> w > 0).sorted().distinct().toArray();
+        this.maxPixels = maxPixels;
+        this.jpegQuality = jpegQuality;
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "image-derivatives-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queue derivative generation for a newly stored original.
+     */
+    public void generateAsync(Path original) {
+        submit(original, () -> generate(original, original.getFileName().toString(), (width, tmp) ->
+                Files.move(tmp, original.resolveSibling(derivativeName(original.getFileName().toString(), width)),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)));
+    }
+
+    /**
+     * Queue derivative generation for an original kept in a remote store, reading it from
+     * {@code source} (a local copy this method takes over and deletes when done) and
+     * putting each derivative into {@code store} beside {@code key}.
+     */
+    public void generateAsync(Path source, String key, BlobStore store) {
+        boolean queued = submit(source, () -> {
+            try {
+                generate(source, key, (width, tmp) ->
+                        store.put(derivativeKey(key, width), tmp, derivativeName(key, width).endsWith(".png")
+                                ? MediaType.IMAGE_PNG : MediaType.IMAGE_JPEG));
+            } finally {
+                deleteQuietly(source);
+            }
+        });
+        if (!queued) deleteQuietly(source);
+    }
+
+    private boolean submit(Path original, Runnable work) {
+        if (widths.length == 0 || failed.contains(original) || !inFlight.add(original)) return false;
+        try {
+            executor.execute(() -> {
+                try {
+                    work.run();
+                } finally {
+                    inFlight.remove(original);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(original);
+            logger.warn("Image queue full, derivatives of {} will be made on first request", original.getFileName());
+            return false;
+        }
+    }
+
+    /**
+     * The derivative to serve for a request asking for {@code requestedWidth} pixels: the
+     * smallest configured width that is at least that wide. Returns its key, or null if the
+     * original should be served instead (wider than any derivative, or not generated yet;
+     * in the latter case generation is queued if the original is a local file).
+     */
+    public String select(String key, int requestedWidth, BlobStore store) throws IOException {
+        String derivative = targetKey(key, requestedWidth);
+        if (derivative == null) return null;
+        if (store.stat(derivative) != null) return derivative;
+        Path local = store.localPath(key);
+        if (local != null && Files.isRegularFile(local)) generateAsync(local);
+        return null;
+    }
+
+    /**
+     * The key {@link #select} would pick if the derivative exists, without looking; null if
+     * the request is wider than every derivative
+     */
+    public String targetKey(String key, int requestedWidth) {
+        for (int w : widths) {
+            if (w >= requestedWidth) return derivativeKey(key, w);
+        }
+        return null;
+    }
+
+    /**
+     * Keys of all derivatives that may exist for an original
+     */
+    public List<String> derivativeKeysOf(String key) {
+        List<String> keys = new ArrayList<>(widths.length);
+        for (int w : widths) {
+            keys.add(derivativeKey(key, w));
+        }
+        return keys;
+    }
+
+    public static boolean isDerivative(String filename) {
+        return DERIVATIVE_NAME.matcher(filename).matches();
+    }
+
+    static String derivativeKey(String key, int width) {
+        int slash = key.lastIndexOf('/');
+        return key.substring(0, slash + 1) + derivativeName(key.substring(slash + 1), width);
+    }
+
+    static String derivativeName(String filename, int width) {
+        int dot = filename.lastIndexOf('.');
+        String base = dot < 0 ? filename : filename.substring(0, dot);
+        String ext = dot < 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return base + ".w" + width + "." + (keepsAlpha(ext) ? "png" : "jpg");
+    }
+
+    private static boolean keepsAlpha(String ext) {
+        return ext.equals("png") || ext.equals("gif");
+    }
+
+    // Receives each derivative as a temp file to be moved or uploaded into place
+    private interface Output {
+        void accept(int width, Path tmp) throws IOException;
+    }
+
+    private void generate(Path original, String name, Output out) {
+        long start = System.nanoTime();
+        BufferedImage source;
+        try {
+            source = decode(original);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read image {}: {}", original.getFileName(), e.getMessage());
+            source = null;
+        }
+        if (source == null) {
+            if (failed.size() >= MAX_REMEMBERED_FAILURES) failed.clear();
+            failed.add(original);
+            return;
+        }
+
+        boolean png = derivativeName(name, 1).endsWith(".png");
+        // Largest first, each one scaled down from the previous: less work than always starting from the original
+        BufferedImage current = source;
+        for (int i = widths.length - 1; i >= 0; i--) {
+            int w = widths[i];
+            current = scaleToWidth(current, Math.min(w, current.getWidth()), png);
+            Path tmp = null;
+            try {
+                tmp = encode(current, original.getParent(), png);
+                out.accept(w, tmp);
+            } catch (IOException e) {
+                logger.warn("Could not write {}px derivative of {}: {}", w, name, e.getMessage());
+            } finally {
+                if (tmp != null) deleteQuietly(tmp);
+            }
+        }
+        logger.debug("Derivatives of {} ({}x{}) written in {} ms", name, source.getWidth(), source.getHeight(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // Decodes without metadata; very large images are subsampled while reading, down to
+    // twice the largest derivative width, instead of being decoded at full size
+    private BufferedImage decode(Path original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IOException("image is " + width + "x" + height + ", over app.images.max-pixels");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, width / (2 * widths[widths.length - 1]));
+                if (step > 1) param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Halves the image with bilinear filtering until the last step, which keeps
+    // quality close to bicubic on large reductions at a fraction of the cost
+    private static BufferedImage scaleToWidth(BufferedImage src, int targetWidth, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = src;
+        int w = src.getWidth();
+        do {
+            int nextW = Math.max(targetWidth, w / 2);
+            int nextH = Math.max(1, (int) Math.round((double) src.getHeight() * nextW / src.getWidth()));
+            BufferedImage next = new BufferedImage(nextW, nextH, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                if (!alpha) {
+                    // JPEG has no transparency; flatten onto white rather than black
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, nextW, nextH);
+                }
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, nextW, nextH, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+            w = nextW;
+        } while (w > targetWidth);
+        return current;
+    }
+
+    // Written to a temp file that is then moved into place, so a half-written derivative is never served
+    private Path encode(BufferedImage image, Path dir, boolean png) throws IOException {
+        Path tmp = Files.createTempFile(dir, ".deriv-", ".tmp");
+        boolean done = false;
+        try {
+            if (png) {
+                if (!ImageIO.write(image, "png", tmp.toFile())) throw new IOException("no PNG writer");
+            } else {
+                ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+                try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+                    ImageWriteParam param = writer.getDefaultWriteParam();
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(jpegQuality);
+                    param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                    writer.setOutput(out);
+                    writer.write(null, new IIOImage(image, null, null), param);
+                } finally {
+                    writer.dispose();
+                }
+            }
+            done = true;
+            return tmp;
+        } finally {
+            if (!done) deleteQuietly(tmp);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.debug("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,141 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Stores the image parts of one product request in parallel.
+ *
+ * Every part is checked (content type in app.images.allowed-types, size at most
+ * app.images.max-upload-bytes) before anything is written. The parts are then stored
+ * on a bounded pool (app.images.ingest-threads); each one streams from the multipart
+ * body to disk through StorageService.store, so nothing is buffered on the heap. When
+ * the pool is busy the request thread stores the part itself. If any part fails, the
+ * ones already stored are deleted again, and {@link #discard} does the same for a
+ * caller whose product save fails.
+ */
+@Service
+public class ImageIngestion {
+    private static final Logger logger = LoggerFactory.getLogger(ImageIngestion.class);
+
+    private final StorageService storageService;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> allowedTypes;
+    private final long maxBytes;
+    private final long timeoutSeconds;
+
+    public ImageIngestion(StorageService storageService,
+                          @Value("${app.images.ingest-threads:4}") int threads,
+                          @Value("${app.images.allowed-types:image/jpeg,image/png,image/gif,image/webp,image/avif}") String[] allowedTypes,
+                          @Value("${app.images.max-upload-bytes:10485760}") long maxBytes,
+                          @Value("${app.images.ingest-timeout-seconds:120}") long timeoutSeconds) {
+        this.storageService = storageService;
+        this.allowedTypes = Arrays.stream(allowedTypes).map(t -> t.trim().toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        this.maxBytes = maxBytes;
+        this.timeoutSeconds = timeoutSeconds;
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 4), r -> {
+                    Thread t = new Thread(r, "image-ingest-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Store all non-empty parts.
+     * @return the stored /uploads/ url for each part, by the same key
+     * @throws IllegalArgumentException if a part has a disallowed type or is too large
+     *         (nothing has been stored)
+     * @throws IOException if a part could not be stored (anything stored has been removed)
+     */
+    public Map<String, String> storeAll(Map<String, MultipartFile> parts) throws IOException {
+        Map<String, MultipartFile> files = new LinkedHashMap<>();
+        parts.forEach((key, part) -> {
+            if (part != null && !part.isEmpty()) {
+                validate(key, part);
+                files.put(key, part);
+            }
+        });
+        if (files.isEmpty()) return Map.of();
+
+        Map<String, Future<String>> pending = new LinkedHashMap<>();
+        files.forEach((key, part) -> pending.put(key, executor.submit(() -> storageService.store(part))));
+
+        Map<String, String> stored = new LinkedHashMap<>();
+        Exception failure = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        for (Map.Entry<String, Future<String>> e : pending.entrySet()) {
+            try {
+                // Keep waiting after a failure so every stored file is known and can be removed
+                long wait = failure == null ? Math.max(deadline - System.nanoTime(), 0) : TimeUnit.SECONDS.toNanos(timeoutSeconds);
+                stored.put(e.getKey(), e.getValue().get(wait, TimeUnit.NANOSECONDS));
+            } catch (ExecutionException ex) {
+                if (failure == null) failure = ex.getCause() instanceof Exception c ? c : ex;
+            } catch (TimeoutException ex) {
+                e.getValue().cancel(true);
+                if (failure == null) failure = new IOException("Timed out storing " + e.getKey());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                pending.values().forEach(f -> f.cancel(true));
+                if (failure == null) failure = new IOException("Interrupted while storing images");
+            }
+        }
+        if (failure != null) {
+            discard(stored.values());
+            if (failure instanceof IOException io) throw io;
+            throw new IOException("Could not store image: " + failure.getMessage(), failure);
+        }
+        return stored;
+    }
+
+    /**
+     * Remove files stored by {@link #storeAll}, e.g. after the product they were for failed to save
+     */
+    public void discard(Iterable<String> urls) {
+        for (String url : urls) {
+            String path = storageService.extractFilenameFromUrl(url);
+            if (path != null && !storageService.delete(path)) {
+                logger.warn("Could not remove stored image {}", url);
+            }
+        }
+    }
+
+    private void validate(String key, MultipartFile part) {
+        String type = part.getContentType() == null ? "" : part.getContentType().toLowerCase(Locale.ROOT);
+        int semicolon = type.indexOf(';');
+        if (semicolon >= 0) type = type.substring(0, semicolon).trim();
+        if (!allowedTypes.contains(type)) {
+            throw new IllegalArgumentException(key + ": unsupported image type " + (type.isEmpty() ? "(none)" : type));
+        }
+        if (part.getSize() > maxBytes) {
+            throw new IllegalArgumentException(key + ": image is larger than " + (maxBytes / (1024 * 1024)) + " MB");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,130 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.eduprajna.repository.CartItemRepository;
+import com.eduprajna.repository.ProductVariantRepository;
+
+/**
+ * Moves flat uploads ({@code uploads/<millis>_<name>}, from before content addressing)
+ * into the sharded {@code uploads/ab/cd/<sha256>.<ext>} layout.
+ *
+ * For each file: copy it into the new layout, repoint the variant and cart images that
+ * used it, then delete the old file and its derivatives once nothing points at it. A
+ * url refers to the file if it names it the way the media GC reads urls
+ * ({@link StorageService#extractFilenameFromUrl}), so every form the frontend saves
+ * (relative, /api/uploads/, absolute, with a query string) is caught. A failure part
+ * way, or a url saved in the meantime, leaves the old file in place, so the migration
+ * can simply be run again.
+ */
+@Service
+public class LegacyUploadMigrator {
+    private static final Logger logger = LoggerFactory.getLogger(LegacyUploadMigrator.class);
+
+    @Autowired
+    private StorageService storageService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    // One run at a time
+    private final ReentrantLock running = new ReentrantLock();
+
+    /**
+     * Migrate up to {@code limit} legacy files.
+     * @return counts of migrated and failed files and how many remain to do
+     */
+    public Map<String, Object> migrate(int limit) throws IOException {
+        if (!running.tryLock()) {
+            throw new IllegalStateException("A migration is already running");
+        }
+        try {
+            int migrated = 0;
+            int kept = 0;
+            int failed = 0;
+            int references = 0;
+            for (String name : storageService.legacyFiles(limit)) {
+                try {
+                    int updated = migrate(name);
+                    if (updated < 0) {
+                        kept++;
+                        continue;
+                    }
+                    references += updated;
+                    migrated++;
+                } catch (IOException | RuntimeException e) {
+                    failed++;
+                    logger.warn("Could not migrate upload {}: {}", name, e.getMessage());
+                }
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("migrated", migrated);
+            result.put("keptInUse", kept);
+            result.put("failed", failed);
+            result.put("imageReferencesUpdated", references);
+            result.put("hasMore", storageService.legacyFiles(failed + kept + 1).size() > failed + kept);
+            logger.info("Legacy upload migration: {}", result);
+            return result;
+        } finally {
+            running.unlock();
+        }
+    }
+
+    // Number of variant images repointed, or -1 if a url to the old file was still found
+    // afterwards (saved meanwhile) and the file was kept for the next run
+    private int migrate(String name) throws IOException {
+        String url = storageService.importLegacy(name);
+        int references = 0;
+        Set<String> oldUrls = urlsReferring(name);
+        if (!oldUrls.isEmpty()) {
+            references = productService.replaceImageUrls(oldUrls, url);
+            int carts = cartItemRepository.replaceVariantImages(oldUrls, url);
+            logger.debug("Repointed {} variant images and {} cart lines from {} to {}", references, carts, name, url);
+        }
+        // importLegacy counted one; files nothing points at keep that one until media GC
+        storageService.addReferences(storageService.extractFilenameFromUrl(url), references - 1);
+        if (!urlsReferring(name).isEmpty()) {
+            logger.warn("Upload {} is still referenced after migration; keeping it for the next run", name);
+            return -1;
+        }
+        storageService.delete(name);
+        return references;
+    }
+
+    // Stored variant and cart image urls that name this legacy file. LIKE narrows the
+    // rows down (its wildcards can only over-match); the exact test is the GC's parse.
+    private Set<String> urlsReferring(String name) {
+        String pattern = "%" + name + "%";
+        List<String> candidates = new ArrayList<>(cartItemRepository.findVariantImagesLike(pattern));
+        for (Object[] row : variantRepository.findImageColumnsLike(pattern)) {
+            for (Object url : row) {
+                if (url != null) candidates.add(url.toString());
+            }
+        }
+        Set<String> urls = new HashSet<>();
+        for (String candidate : candidates) {
+            if (name.equals(candidate) || name.equals(storageService.extractFilenameFromUrl(candidate))) {
+                urls.add(candidate);
+            }
+        }
+        return urls;
+    }
+}
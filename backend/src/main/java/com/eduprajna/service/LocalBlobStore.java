@@ -0,0 +1,147 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Blobs as files under the upload directory, one file per key.
+ *
+ * Listing reads the tree a directory at a time with DirectoryStream, in key order,
+ * skipping whole shard directories ({@code ab/}, {@code ab/cd/}) that sort before the
+ * cursor, so a page costs the few directories it touches rather than a scan of every
+ * file. Names starting with "." (StorageService's .incoming staging area, temp files)
+ * are not blobs and are never listed.
+ */
+public class LocalBlobStore implements BlobStore {
+    private static final Pattern SHARD_DIR = Pattern.compile("[0-9a-f]{2}");
+
+    private final Path root;
+
+    public LocalBlobStore(String directory) {
+        this.root = Paths.get(directory).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public void put(String key, Path source, MediaType contentType) throws IOException {
+        Path dest = resolve(key);
+        Files.createDirectories(dest.getParent());
+        try {
+            Files.move(source, dest, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Platforms whose rename does not replace
+            Files.move(source, dest, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public BlobInfo stat(String key) throws IOException {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attrs.isRegularFile()) return null;
+        return new BlobInfo(key, attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+        return true;
+    }
+
+    @Override
+    public List<BlobInfo> list(String startAfter, int limit) throws IOException {
+        List<BlobInfo> out = new ArrayList<>(Math.min(limit, 1024));
+        if (Files.isDirectory(root)) {
+            collect(root, "", 0, startAfter, limit, out);
+        }
+        return out;
+    }
+
+    // Depth-first in key order. Directory names get a trailing "/" before sorting so they
+    // land exactly where their contents would in a flat sorted list of keys.
+    private void collect(Path dir, String prefix, int depth, String after, int max,
+                         List<BlobInfo> out) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.startsWith(".")) continue;
+                if (depth < 2 && SHARD_DIR.matcher(name).matches() && Files.isDirectory(entry)) {
+                    names.add(name + "/");
+                } else if (depth == 0 || depth == 2) {
+                    names.add(name);
+                }
+            }
+        }
+        Collections.sort(names);
+        for (String name : names) {
+            if (out.size() >= max) return;
+            String key = prefix + name;
+            boolean isDir = name.endsWith("/");
+            if (after != null && key.compareTo(after) <= 0 && !(isDir && after.startsWith(key))) continue;
+            if (isDir) {
+                collect(dir.resolve(name.substring(0, name.length() - 1)), key, depth + 1, after, max, out);
+                continue;
+            }
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(dir.resolve(name), BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                continue; // deleted since the directory was read
+            }
+            if (attrs.isRegularFile()) {
+                out.add(new BlobInfo(key, attrs.size(), attrs.lastModifiedTime().toMillis()));
+            }
+        }
+    }
+
+    @Override
+    public void touch(String key) throws IOException {
+        Files.setLastModifiedTime(resolve(key), FileTime.fromMillis(System.currentTimeMillis()));
+    }
+
+    @Override
+    public Path localPath(String key) {
+        try {
+            return resolve(key);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    // Refuses keys that would escape the upload directory
+    private Path resolve(String key) throws IOException {
+        Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IOException("Invalid file name: " + key);
+        }
+        return path;
+    }
+}
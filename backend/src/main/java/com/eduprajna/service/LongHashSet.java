@@ -0,0 +1,70 @@
+package com.eduprajna.service;
+
+/**
+ * Open-addressing set of longs (linear probing, power-of-two table, at most half full).
+ * Eight bytes per slot and no boxing, for sets of hashes too large to hold as strings.
+ */
+final class LongHashSet {
+    private long[] table;
+    private boolean hasZero;
+    private int size;
+
+    LongHashSet(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+        table = new long[capacity];
+    }
+
+    boolean add(long value) {
+        if (value == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        if (size * 2 >= table.length) grow();
+        if (!insert(table, value)) return false;
+        size++;
+        return true;
+    }
+
+    boolean contains(long value) {
+        if (value == 0) return hasZero;
+        int mask = table.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long v = table[i];
+            if (v == 0) return false;
+            if (v == value) return true;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] bigger = new long[table.length * 2];
+        for (long v : table) {
+            if (v != 0) insert(bigger, v);
+        }
+        table = bigger;
+    }
+
+    private static boolean insert(long[] t, long value) {
+        int mask = t.length - 1;
+        for (int i = mix(value) & mask; ; i = (i + 1) & mask) {
+            long v = t[i];
+            if (v == value) return false;
+            if (v == 0) {
+                t[i] = value;
+                return true;
+            }
+        }
+    }
+
+    private static int mix(long v) {
+        v ^= v >>> 33;
+        v *= 0xff51afd7ed558ccdL;
+        v ^= v >>> 33;
+        return (int) v;
+    }
+}
@@ -0,0 +1,185 @@
+package com.eduprajna.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Small, frequently requested uploads kept in memory, so serving one needs no stat, no
+ * content-type probe and no file read: just one write of the cached buffer.
+ *
+ * Contents live in direct ByteBuffers, outside the Java heap, so a full cache does not
+ * add to GC work; the total is bounded by app.media-cache.max-bytes (which must fit in
+ * -XX:MaxDirectMemorySize, by default the max heap size). Only files up to
+ * max-entry-bytes are cached, and only from their second request: a fixed array of key
+ * hashes remembers what was asked for once, so a crawl over every image does not push
+ * out the hot ones. When the total goes over the bound, the least recently used entries
+ * are dropped until a tenth of it is free again. Entries expire after ttl-seconds, which
+ * bounds how long a file deleted by another node can still be served here; deletes on
+ * this node evict at once.
+ *
+ * Hits and misses are the media.cache.requests meter, dropped bytes media.cache.evicted.
+ */
+@Service
+public class MediaCache {
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    // Bumped by every invalidation, so a load that raced with one is not cached
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicIntegerArray seen;
+    private final ReentrantLock evictLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictedBytes = new LongAdder();
+
+    public MediaCache(ObjectProvider<MeterRegistry> meterRegistry,
+                      @Value("${app.media-cache.max-bytes:67108864}") long maxBytes,
+                      @Value("${app.media-cache.max-entry-bytes:1048576}") long maxEntryBytes,
+                      @Value("${app.media-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, Math.min(maxBytes, Integer.MAX_VALUE));
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.seen = new AtomicIntegerArray(8192);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        FunctionCounter.builder("media.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").description("Upload requests answered from memory").register(registry);
+        FunctionCounter.builder("media.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").description("Upload requests that went to the store").register(registry);
+        FunctionCounter.builder("media.cache.evicted", evictedBytes, LongAdder::sum).baseUnit("bytes")
+                .description("Bytes dropped from the media cache to stay under its bound").register(registry);
+        Gauge.builder("media.cache.size", totalBytes, AtomicLong::get).baseUnit("bytes")
+                .description("Off-heap bytes held by the media cache").register(registry);
+        Gauge.builder("media.cache.entries", entries, Map::size)
+                .description("Files held by the media cache").register(registry);
+    }
+
+    /**
+     * The cached file for a key in the store, with its content; null on a miss
+     */
+    public StoredFile get(String key) {
+        Entry entry = entries.get(key);
+        long now = System.nanoTime();
+        if (entry == null || now - entry.expiresAt > 0) {
+            if (entry != null) remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        entry.lastUsed = now;
+        hits.increment();
+        return entry.file;
+    }
+
+    /**
+     * True if a file of this size should be read into the cache now. The first request
+     * for a key only records it; the next one (while its slot is not taken by another
+     * key) is admitted.
+     */
+    public boolean admit(String key, long size) {
+        if (size <= 0 || size > maxEntryBytes) return false;
+        Entry entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.expiresAt <= 0) return true;
+        int h = spread(key.hashCode());
+        int i = h & (seen.length() - 1);
+        if (seen.get(i) == h) return true;
+        seen.set(i, h);
+        return false;
+    }
+
+    /**
+     * Current invalidation count; pass it to {@link #put} after reading a file
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Cache {@code content} (a direct buffer holding the whole file) for the file, unless
+     * something was invalidated since {@code generationBefore} was taken.
+     * @return the file with its content attached
+     */
+    public StoredFile put(StoredFile file, ByteBuffer content, long generationBefore) {
+        StoredFile cached = file.withContent(content.asReadOnlyBuffer());
+        if (generation.get() != generationBefore) return cached;
+        long now = System.nanoTime();
+        Entry entry = new Entry(cached, content.capacity(), now + ttlNanos);
+        entry.lastUsed = now;
+        Entry previous = entries.put(file.getKey(), entry);
+        totalBytes.addAndGet(entry.size - (previous != null ? previous.size : 0));
+        // A delete may have slipped in between the check above and the put
+        if (generation.get() != generationBefore) remove(file.getKey(), entry);
+        if (totalBytes.get() > maxBytes) evict();
+        return cached;
+    }
+
+    public void invalidate(String key) {
+        generation.incrementAndGet();
+        Entry entry = entries.get(key);
+        if (entry != null) remove(key, entry);
+    }
+
+    // Drop least recently used entries until a tenth of the bound is free. Only one
+    // thread sorts at a time; the others carry on over the bound until it is done.
+    private void evict() {
+        if (!evictLock.tryLock()) return;
+        try {
+            long target = maxBytes - maxBytes / 10;
+            if (totalBytes.get() <= target) return;
+            List<Map.Entry<String, Entry>> byAge = new ArrayList<>(entries.entrySet());
+            byAge.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+            for (Map.Entry<String, Entry> e : byAge) {
+                if (totalBytes.get() <= target) break;
+                if (remove(e.getKey(), e.getValue())) evictedBytes.add(e.getValue().size);
+            }
+        } finally {
+            evictLock.unlock();
+        }
+    }
+
+    // The buffer itself is freed once no request is still writing it and it is collected
+    private boolean remove(String key, Entry entry) {
+        if (!entries.remove(key, entry)) return false;
+        totalBytes.addAndGet(-entry.size);
+        return true;
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static final class Entry {
+        final StoredFile file;
+        final long size;
+        final long expiresAt;
+        volatile long lastUsed;
+
+        Entry(StoredFile file, long size, long expiresAt) {
+            this.file = file;
+            this.size = size;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
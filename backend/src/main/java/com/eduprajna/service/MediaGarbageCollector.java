@@ -0,0 +1,214 @@
+package com.eduprajna.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.repository.CartItemRepository;
+import com.eduprajna.repository.ProductVariantRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Mark-and-sweep collection of uploads no product image or cart line points at any more
+ * (replaced variant images, products deleted while a file was shared, uploads whose
+ * product save failed, derivatives of deleted originals and temp files left by a crash).
+ *
+ * Mark streams the four image columns of every variant, plus the variant image each
+ * cart line copied when it was added (it is not rewritten when the variant's image is
+ * replaced), and keeps a 64-bit hash of each referenced path in a {@link LongHashSet},
+ * keyed without the extension so an original's derivatives count as referenced too. A hash collision can only keep a file, never
+ * delete one. Sweep walks the upload tree and deletes each unreferenced file last
+ * modified more than app.media-gc.grace-hours ago, at most
+ * app.media-gc.max-deletes-per-second. The grace period covers uploads whose product
+ * is saved after the mark phase ran.
+ *
+ * Runs on app.media-gc.cron, or on demand from POST /api/admin/media/gc. A dry run only
+ * reports what would be deleted. Freed space is published as media.gc.reclaimed.
+ */
+@Service
+public class MediaGarbageCollector {
+    private static final Logger logger = LoggerFactory.getLogger(MediaGarbageCollector.class);
+
+    private final StorageService storageService;
+    private final ProductVariantRepository variantRepository;
+    private final CartItemRepository cartItemRepository;
+    private final TransactionTemplate readOnlyTx;
+    private final ReentrantLock running = new ReentrantLock();
+
+    private final boolean enabled;
+    private final boolean scheduledDryRun;
+    private final long graceMillis;
+    private final long nanosPerDelete;
+
+    private final Counter reclaimedBytes;
+    private final Counter deletedFiles;
+    private final Timer runTimer;
+
+    public MediaGarbageCollector(StorageService storageService, ProductVariantRepository variantRepository,
+                                 CartItemRepository cartItemRepository, PlatformTransactionManager transactionManager,
+                                 ObjectProvider<MeterRegistry> meterRegistry,
+                                 @Value("${app.media-gc.enabled:true}") boolean enabled,
+                                 @Value("${app.media-gc.dry-run:false}") boolean scheduledDryRun,
+                                 @Value("${app.media-gc.grace-hours:24}") long graceHours,
+                                 @Value("${app.media-gc.max-deletes-per-second:20}") int maxDeletesPerSecond) {
+        this.storageService = storageService;
+        this.variantRepository = variantRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.enabled = enabled;
+        this.scheduledDryRun = scheduledDryRun;
+        this.graceMillis = TimeUnit.HOURS.toMillis(graceHours);
+        this.nanosPerDelete = TimeUnit.SECONDS.toNanos(1) / Math.max(maxDeletesPerSecond, 1);
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.reclaimedBytes = Counter.builder("media.gc.reclaimed").baseUnit(BaseUnits.BYTES)
+                .description("Upload bytes freed by the media garbage collector").register(registry);
+        this.deletedFiles = Counter.builder("media.gc.deleted")
+                .description("Unreferenced upload files deleted").register(registry);
+        this.runTimer = Timer.builder("media.gc.run")
+                .description("Duration of media garbage collection runs").register(registry);
+    }
+
+    @Scheduled(cron = "${app.media-gc.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (!enabled) return;
+        try {
+            collect(scheduledDryRun);
+        } catch (IllegalStateException e) {
+            logger.info("Skipping scheduled media GC: {}", e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Media GC failed", e);
+        }
+    }
+
+    /**
+     * Run one mark and sweep.
+     * @return counts of referenced paths, files scanned and deleted (or deletable, for a
+     *         dry run), files kept for being too new, and bytes reclaimed
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public Map<String, Object> collect(boolean dryRun) throws IOException {
+        if (!running.tryLock()) {
+            throw new IllegalStateException("Media GC is already running");
+        }
+        long started = System.nanoTime();
+        try {
+            LongHashSet referenced = mark();
+            long cutoff = System.currentTimeMillis() - graceMillis;
+            long[] counts = new long[4]; // scanned, deleted, recent, errors
+            long[] bytes = {0};
+            long[] nextDeleteAt = {System.nanoTime()};
+            storageService.walk(path -> {
+                counts[0]++;
+                if (referenced.contains(key(path))) return;
+                if (!dryRun) pace(nextDeleteAt);
+                try {
+                    long freed = storageService.reclaim(path, cutoff, dryRun);
+                    if (freed == 0) {
+                        counts[2]++;
+                        return;
+                    }
+                    counts[1]++;
+                    bytes[0] += freed;
+                    if (!dryRun) {
+                        deletedFiles.increment();
+                        reclaimedBytes.increment(freed);
+                        logger.debug("Media GC deleted {} ({} bytes)", path, freed);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    counts[3]++;
+                    logger.warn("Media GC could not delete {}: {}", path, e.getMessage());
+                }
+            });
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("dryRun", dryRun);
+            result.put("referencedPaths", referenced.size());
+            result.put("scanned", counts[0]);
+            result.put(dryRun ? "wouldDelete" : "deleted", counts[1]);
+            result.put("keptAsRecent", counts[2]);
+            result.put("errors", counts[3]);
+            result.put(dryRun ? "reclaimableBytes" : "reclaimedBytes", bytes[0]);
+            result.put("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            logger.info("Media GC finished: {}", result);
+            return result;
+        } finally {
+            runTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            running.unlock();
+        }
+    }
+
+    // Mark: every path a variant image or a cart line points at, as key()
+    private LongHashSet mark() {
+        LongHashSet referenced = new LongHashSet(4096);
+        readOnlyTx.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = variantRepository.streamImageColumns()) {
+                rows.forEach(row -> {
+                    for (Object url : row) markUrl(referenced, url);
+                });
+            }
+            try (Stream<String> urls = cartItemRepository.streamVariantImages()) {
+                urls.forEach(url -> markUrl(referenced, url));
+            }
+        });
+        return referenced;
+    }
+
+    private void markUrl(LongHashSet referenced, Object url) {
+        if (url == null) return;
+        String path = storageService.extractFilenameFromUrl(url.toString());
+        if (path != null) referenced.add(key(path));
+    }
+
+    // Spreads deletes out to at most max-deletes-per-second
+    private void pace(long[] nextDeleteAt) {
+        long wait = nextDeleteAt[0] - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Media GC interrupted");
+            }
+        }
+        nextDeleteAt[0] = Math.max(nextDeleteAt[0], System.nanoTime() - nanosPerDelete) + nanosPerDelete;
+    }
+
+    /**
+     * 64-bit FNV-1a of the path without its extension, and without the .wN part of a
+     * derivative, so "ab/cd/<hash>.jpg" and "ab/cd/<hash>.w480.jpg" share a key.
+     */
+    static long key(String relativePath) {
+        String base = relativePath;
+        int dot = base.lastIndexOf('.');
+        if (dot > base.lastIndexOf('/')) base = base.substring(0, dot);
+        if (ImageDerivatives.isDerivative(relativePath)) {
+            base = base.substring(0, base.lastIndexOf(".w"));
+        }
+        long h = 0xcbf29ce484222325L;
+        for (byte b : base.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -20,13 +20,19 @@ public class MockEmailService {
     @Autowired(required = false)
     private EmailLogRepository emailLogRepository;
     
+    // Same templates as the real emails, so mock output matches what would be sent
+    @Autowired
+    private EmailTemplates templates;
+    
     /**
      * Mock send password reset email - logs to console and database
      */
     public boolean sendPasswordResetEmail(String recipientEmail, String username, String resetLink) {
         try {
-            String subject = "Avira Udupu - Password Reset Request";
-            String body = buildPasswordResetEmailBody(username, resetLink, recipientEmail);
+            RenderedEmail email = templates.render("password-reset",
+                    EmailService.model("username", username, "resetLink", resetLink, "email", recipientEmail));
+            String subject = email.getSubject();
+            String body = email.getText();
             
             logEmail(recipientEmail, subject, body, "MOCK", null);
             
@@ -53,14 +59,8 @@ public class MockEmailService {
     public boolean sendCredentialsEmail(String recipientEmail, String username, String password) {
         String subject = "Avira Udupu - Your Account Credentials";
         try {
-            String body = "Hello " + username + ",\n\n" +
-                         "Here are your account credentials:\n\n" +
-                         "Email: " + recipientEmail + "\n" +
-                         "Username: " + username + "\n" +
-                         "Password: " + password + "\n\n" +
-                         "Please keep these credentials secure and change your password after first login.\n\n" +
-                         "Best regards,\n" +
-                         "Avira Udupu Support Team";
+            String body = templates.render("credentials",
+                    EmailService.model("username", username, "email", recipientEmail, "password", password)).getText();
             
             logEmail(recipientEmail, subject, body, "MOCK", null);
             
@@ -80,22 +80,6 @@ public class MockEmailService {
         }
     }
     
-    /**
-     * Build password reset email body
-     */
-    private String buildPasswordResetEmailBody(String username, String resetLink, String email) {
-        return "Hello " + username + ",\n\n" +
-               "We received a request to reset your password. Click the link below to reset your password:\n\n" +
-               resetLink + "\n\n" +
-               "This link will expire in 24 hours.\n\n" +
-               "Your Account Details:\n" +
-               "- Username: " + username + "\n" +
-               "- Email: " + email + "\n\n" +
-               "If you did not request a password reset, please ignore this email.\n\n" +
-               "Best regards,\n" +
-               "Avira Udupu Support Team";
-    }
-    
     /**
      * Log email to database for debugging
      */
@@ -5,11 +5,17 @@ import com.eduprajna.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -25,18 +31,82 @@ public class OrderService {
     private final CheckoutSelectionRepository selectionRepo;
     private final AddressRepository addressRepo;
     private final com.eduprajna.repository.ProductRepository productRepo;
+    private final ProductVariantRepository variantRepo;
+    private final StockReservationService reservationService;
     
     @Autowired
-    private EmailService emailService;
+    private EmailOutboxService emailOutbox;
+
+    @Autowired
+    private UserService userService;
+
+    // Lets CatalogService refresh stock levels once the order commits
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     public OrderService(OrderRepository orderRepo, CartItemRepository cartRepo, 
                        CheckoutSelectionRepository selectionRepo, AddressRepository addressRepo,
-                       com.eduprajna.repository.ProductRepository productRepo) {
+                       com.eduprajna.repository.ProductRepository productRepo,
+                       ProductVariantRepository variantRepo, StockReservationService reservationService) {
         this.orderRepo = orderRepo;
         this.cartRepo = cartRepo;
         this.selectionRepo = selectionRepo;
         this.addressRepo = addressRepo;
         this.productRepo = productRepo;
+        this.variantRepo = variantRepo;
+        this.reservationService = reservationService;
+    }
+
+    /**
+     * Decrement stock for every cart line with one guarded UPDATE per variant.
+     * Lines without a variant draw from the product's primary variant. The variant rows
+     * are locked first (SELECT ... FOR UPDATE) in ascending id order, so concurrent
+     * orders queue in the same order, cannot deadlock, and read current stock. The
+     * user's own holds count towards their lines and are confirmed; anything beyond
+     * them is claimed through StockReservationService, so units held for other
+     * customers' pending payments are left alone.
+     *
+     * Unless {@code paid}, throws (rolling back the whole order) as soon as a variant
+     * does not have enough stock left. A paid order has already been charged, so it is
+     * never refused: a short variant is clamped at 0 and its line reported back.
+     * @return labels of the lines that could not be fully covered (only when paid)
+     */
+    private List<String> decrementStock(List<CartItem> cart, User user, boolean paid) {
+        Map<Long, StockLine> lines = StockLine.resolve(cart, variantRepo);
+
+        Map<Long, Integer> stock = new HashMap<>();
+        for (ProductVariant v : variantRepo.lockByIdIn(lines.keySet())) {
+            stock.put(v.getId(), v.getStockQuantity() != null ? v.getStockQuantity() : 0);
+        }
+
+        List<String> shortfalls = new ArrayList<>();
+        Set<Long> touchedProducts = new LinkedHashSet<>();
+        for (Map.Entry<Long, StockLine> e : lines.entrySet()) {
+            StockLine line = e.getValue();
+            boolean claimed = reservationService.claim(user.getId(), e.getKey(), line.quantity,
+                    stock.getOrDefault(e.getKey(), 0));
+            if (!claimed && !paid) {
+                throw new IllegalStateException("Insufficient stock for " + line.label);
+            }
+            int updated = variantRepo.decrementStock(line.productId, e.getKey(), line.quantity);
+            if (updated == 0) {
+                if (!paid) {
+                    throw new IllegalStateException("Insufficient stock for " + line.label);
+                }
+                variantRepo.decrementStockClamped(line.productId, e.getKey(), line.quantity);
+                shortfalls.add(line.label);
+                logger.warn("Paid order for user {} is short of {} (variant {})", user.getId(), line.label, e.getKey());
+            } else if (!claimed) {
+                logger.warn("Paid order for user {} took units of {} (variant {}) held for other customers", user.getId(), line.label, e.getKey());
+            }
+            touchedProducts.add(line.productId);
+            logger.debug("Decremented stock of variant {} by {}", e.getKey(), line.quantity);
+        }
+        touchedProducts.addAll(reservationService.confirm(user.getId()));
+        for (Long productId : touchedProducts) {
+            eventPublisher.publishEvent(new ProductChangedEvent(productId));
+        }
+        return shortfalls;
     }
 
     /**
@@ -55,35 +125,8 @@ public class OrderService {
         }
         logger.debug("Found {} items in cart for user: {}", cart.size(), user.getEmail());
         
-        // 1b. Validate stock availability for all items before proceeding
-        for (CartItem ci : cart) {
-            Product product = ci.getProduct();
-            int qty = ci.getQuantity() != null ? ci.getQuantity() : 0;
-            if (qty <= 0) {
-                throw new IllegalStateException("Invalid quantity for product: " + product.getName());
-            }
-            
-            // Check variant-specific stock if variant selected
-            if (ci.getVariantId() != null && ci.getVariantId() > 0) {
-                ProductVariant variant = product.getVariants().stream()
-                    .filter(v -> v.getId().equals(ci.getVariantId()))
-                    .findFirst()
-                    .orElse(null);
-                if (variant == null) {
-                    throw new IllegalStateException("Variant not found for product: " + product.getName());
-                }
-                int available = variant.getStockQuantity() != null ? variant.getStockQuantity() : 0;
-                if (available < qty) {
-                    throw new IllegalStateException("Insufficient stock for variant: " + variant.getColor() + " of " + product.getName());
-                }
-            } else {
-                // Fall back to product-level stock if no variant
-                int available = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
-                if (available < qty) {
-                    throw new IllegalStateException("Insufficient stock for product: " + product.getName());
-                }
-            }
-        }
+        // 1b. Take stock for every line up front; fails fast (and rolls back) if any line is short
+        decrementStock(cart, user, false);
         
         // 2. Get checkout selection
         CheckoutSelection selection = selectionRepo.findByUser(user)
@@ -131,34 +174,6 @@ public class OrderService {
             orderItem.setPrice(cartItem.getPriceAtAdd());
             orderItem.setVariantId(cartItem.getVariantId());
             orderItem.setVariantName(cartItem.getVariantName());
-            
-            // Decrement stock for the purchased product/variant
-            Product product = cartItem.getProduct();
-            int qty = cartItem.getQuantity() != null ? cartItem.getQuantity() : 0;
-            
-            if (cartItem.getVariantId() != null && cartItem.getVariantId() > 0) {
-                // Decrement variant-specific stock
-                ProductVariant variant = product.getVariants().stream()
-                    .filter(v -> v.getId().equals(cartItem.getVariantId()))
-                    .findFirst()
-                    .orElse(null);
-                if (variant != null) {
-                    int available = variant.getStockQuantity() != null ? variant.getStockQuantity() : 0;
-                    int newQty = Math.max(available - qty, 0);
-                    variant.setStockQuantity(newQty);
-                    variant.setInStock(newQty > 0);
-                    productRepo.save(product);
-                    logger.debug("Decremented variant stock: {} -> {}", variant.getId(), newQty);
-                }
-            } else {
-                // Decrement product-level stock
-                int available = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
-                int newQty = Math.max(available - qty, 0);
-                product.setStockQuantity(newQty);
-                product.setInStock(newQty > 0);
-                productRepo.save(product);
-                logger.debug("Decremented product stock: {} -> {}", product.getId(), newQty);
-            }
             return orderItem;
         }).collect(Collectors.toList());
         order.setItems(orderItems);
@@ -167,37 +182,32 @@ public class OrderService {
         Order savedOrder = orderRepo.save(order);
         logger.info("Order created with ID: {} for user: {}", savedOrder.getId(), user.getEmail());
         
-        // 9. Send order confirmation email
-        try {
-            emailService.sendOrderConfirmationEmail(
-                user.getEmail(), 
-                user.getName(), 
-                savedOrder.getId().toString(), 
-                String.format("%.2f", savedOrder.getTotal())
-            );
-        } catch (Exception e) {
-            logger.error("Failed to send order confirmation email for order: {}", savedOrder.getId(), e);
-            // Don't fail the order if email fails
-        }
+        // 9. Queue the confirmation email; it is sent after commit by the outbox workers
+        emailOutbox.enqueueOrderConfirmation(savedOrder, user);
         
         // 10. Clear cart after successful order creation
         cartRepo.deleteByUser(user);
         logger.info("Cart cleared for user: {}", user.getEmail());
         
         // 11. Update user's order count
-        user.incrementTotalOrders();
+        userService.incrementTotalOrders(user);
         
         return savedOrder;
     }
 
     /**
-     * Place an order for online payment after signature verification
-     * This method doesn't require cart items as they are already stored in checkout selection
+     * Place an order for online payment after signature verification.
+     * The payment has already been captured, so this does not fail for lack of stock:
+     * lines that can no longer be covered are recorded and the order is saved with
+     * status "backorder" (payment status "paid") for the shop to fulfil or refund.
+     * Totals come from the checkout selection, falling back to the cart's.
      * @param user The user placing the order
+     * @param razorpayOrderId The Razorpay order that was paid
+     * @param razorpayPaymentId The captured Razorpay payment
      * @return The created order
      */
     @Transactional
-    public Order placeOrderForOnlinePayment(User user) {
+    public Order placeOrderForOnlinePayment(User user, String razorpayOrderId, String razorpayPaymentId) {
         logger.debug("Placing order for online payment user: {}", user.getEmail());
         
         // Get checkout selection with totals
@@ -226,23 +236,32 @@ public class OrderService {
         shippingSnapshot.setAddressType(address.getAddressType());
         order.setShipping(shippingSnapshot);
         
-        // Use totals from checkout selection
+        // Try to get cart items if they still exist, otherwise create empty order
+        List<CartItem> cart = cartRepo.findByUser(user);
+        
+        // Use totals from checkout selection; if they are gone, recompute them from the
+        // cart the same way create-order did rather than lose a paid order
         Double subtotal = selection.getSubtotal();
         Double shippingFee = selection.getShippingFee();
         Double total = selection.getTotal();
         
         if (subtotal == null || shippingFee == null || total == null) {
-            throw new IllegalStateException("Order totals not found in checkout selection");
+            logger.warn("Order totals not found in checkout selection for user {}, using cart totals", user.getId());
+            subtotal = cart.stream()
+                .mapToDouble(ci -> (ci.getPriceAtAdd() != null ? ci.getPriceAtAdd() : 0.0) * ci.getQuantity())
+                .sum();
+            shippingFee = "express".equalsIgnoreCase(selection.getDeliveryOption()) ? 100.0 : 50.0;
+            total = subtotal + shippingFee;
         }
         
         order.setSubtotal(subtotal);
         order.setShippingFee(shippingFee);
         order.setTotal(total);
         
-        // Try to get cart items if they still exist, otherwise create empty order
-        List<CartItem> cart = cartRepo.findByUser(user);
-        
+        List<String> shortfalls = new ArrayList<>();
         if (!cart.isEmpty()) {
+            shortfalls = decrementStock(cart, user, true);
+            
             // Create order items from cart
             List<OrderItem> orderItems = cart.stream().map(cartItem -> {
                 OrderItem orderItem = new OrderItem();
@@ -252,34 +271,6 @@ public class OrderService {
                 orderItem.setPrice(cartItem.getPriceAtAdd());
                 orderItem.setVariantId(cartItem.getVariantId());
                 orderItem.setVariantName(cartItem.getVariantName());
-                
-                // Decrement stock for the purchased product/variant
-                Product product = cartItem.getProduct();
-                int qty = cartItem.getQuantity() != null ? cartItem.getQuantity() : 0;
-                
-                if (cartItem.getVariantId() != null && cartItem.getVariantId() > 0) {
-                    // Decrement variant-specific stock
-                    ProductVariant variant = product.getVariants().stream()
-                        .filter(v -> v.getId().equals(cartItem.getVariantId()))
-                        .findFirst()
-                        .orElse(null);
-                    if (variant != null) {
-                        int available = variant.getStockQuantity() != null ? variant.getStockQuantity() : 0;
-                        int newQty = Math.max(available - qty, 0);
-                        variant.setStockQuantity(newQty);
-                        variant.setInStock(newQty > 0);
-                        productRepo.save(product);
-                        logger.debug("Decremented variant stock (online): {} -> {}", variant.getId(), newQty);
-                    }
-                } else {
-                    // Decrement product-level stock
-                    int available = product.getStockQuantity() != null ? product.getStockQuantity() : 0;
-                    int newQty = Math.max(available - qty, 0);
-                    product.setStockQuantity(newQty);
-                    product.setInStock(newQty > 0);
-                    productRepo.save(product);
-                    logger.debug("Decremented product stock (online): {} -> {}", product.getId(), newQty);
-                }
                 return orderItem;
             }).collect(Collectors.toList());
             order.setItems(orderItems);
@@ -292,12 +283,23 @@ public class OrderService {
             order.setItems(new ArrayList<>());
         }
         
+        // Payment data
+        order.setRazorpayOrderId(razorpayOrderId);
+        order.setRazorpayPaymentId(razorpayPaymentId);
+        order.setPaymentStatus("paid");
+        order.setStatus(shortfalls.isEmpty() ? "paid" : "backorder");
+        
         // Save order
         Order savedOrder = orderRepo.save(order);
-        logger.info("Online payment order created with ID: {} for user: {}", savedOrder.getId(), user.getEmail());
+        if (shortfalls.isEmpty()) {
+            logger.info("Online payment order created with ID: {} for user: {}", savedOrder.getId(), user.getEmail());
+        } else {
+            logger.warn("Online payment order {} for user {} saved as backorder, short of: {}",
+                savedOrder.getId(), user.getEmail(), shortfalls);
+        }
         
         // Update user's order count
-        user.incrementTotalOrders();
+        userService.incrementTotalOrders(user);
         
         return savedOrder;
     }
@@ -328,6 +330,7 @@ public class OrderService {
      * @return The updated order
      * @throws RuntimeException if order is not found
      */
+    @Transactional
     public Order updateStatus(Long orderId, String status) {
         Order order = orderRepo.findById(orderId)
             .orElseThrow(() -> new RuntimeException("Order not found with ID: " + orderId));
@@ -338,25 +341,31 @@ public class OrderService {
         
         logger.info("Order {} status updated from '{}' to '{}'", orderId, oldStatus, status);
         
-        // Send order status update email
-        try {
-            User user = order.getUser();
-            if (user != null && user.getEmail() != null) {
-                emailService.sendOrderStatusEmail(
-                    user.getEmail(),
-                    user.getName(),
-                    orderId.toString(),
-                    status
-                );
-            }
-        } catch (Exception e) {
-            logger.error("Failed to send order status email for order: {}", orderId, e);
-            // Don't fail the status update if email fails
-        }
+        // Queue the status update email with the status change
+        emailOutbox.enqueueOrderStatus(updatedOrder, order.getUser(), status);
         
         return updatedOrder;
     }
     
+    /**
+     * Update the status of many orders in one transaction, queueing one status email per
+     * order; the outbox sends them afterwards in batches. Ids that do not exist are skipped.
+     * @return the orders that were updated
+     */
+    @Transactional
+    public List<Order> updateStatuses(Collection<Long> orderIds, String status) {
+        List<Order> orders = orderRepo.findAllById(orderIds);
+        for (Order order : orders) {
+            order.setStatus(status);
+        }
+        orderRepo.saveAll(orders);
+        for (Order order : orders) {
+            emailOutbox.enqueueOrderStatus(order, order.getUser(), status);
+        }
+        logger.info("Bulk status update to '{}': {} of {} orders", status, orders.size(), orderIds.size());
+        return orders;
+    }
+    
     /**
      * Get order by ID with all details
      * @param orderId The ID of the order
@@ -0,0 +1,147 @@
+package com.eduprajna.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.eduprajna.exception.TooManyRequestsException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs BCrypt on a small dedicated pool instead of on whichever request thread asked.
+ *
+ * The pool has app.auth.hash.threads workers and a queue of app.auth.hash.queue-size.
+ * When both are full a request is rejected at once with TooManyRequestsException
+ * (429), so at most threads + queue-size request threads are ever parked on password
+ * work and the rest of the request pool stays free for catalog and checkout traffic.
+ *
+ * Hash time and queue wait are recorded as auth.password.hash and
+ * auth.password.hash.wait timers with percentile histograms.
+ */
+@Service
+public class PasswordHasher {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHasher.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(PasswordEncoder passwordEncoder, ObjectProvider<MeterRegistry> meterRegistry,
+                          @Value("${app.auth.hash.threads:2}") int threads,
+                          @Value("${app.auth.hash.queue-size:32}") int queueSize,
+                          @Value("${app.auth.hash.timeout-ms:5000}") long timeoutMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), r -> {
+                    Thread t = new Thread(r, "password-hash-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        this.encodeTimer = hashTimer(registry, "encode");
+        this.matchTimer = hashTimer(registry, "matches");
+        this.waitTimer = Timer.builder("auth.password.hash.wait")
+                .description("Time password work spent queued for a hashing thread")
+                .publishPercentileHistogram().register(registry);
+        this.rejected = Counter.builder("auth.password.hash.rejected")
+                .description("Password work turned away because the hashing pool was full")
+                .register(registry);
+        Gauge.builder("auth.password.hash.queued", executor, e -> e.getQueue().size()).register(registry);
+    }
+
+    public String encode(String rawPassword) {
+        return run(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * Check a password against what is stored for the user. Stored values that are not
+     * BCrypt hashes (legacy plain-text accounts) are compared directly on the caller's thread.
+     */
+    public boolean matches(String rawPassword, String stored) {
+        if (rawPassword == null || stored == null) return false;
+        if (isLegacy(stored)) return stored.equals(rawPassword);
+        return run(matchTimer, () -> passwordEncoder.matches(rawPassword, stored));
+    }
+
+    /**
+     * True if the stored password predates BCrypt and should be re-hashed after a successful login
+     */
+    public static boolean isLegacy(String stored) {
+        return stored != null && !stored.startsWith("$2");
+    }
+
+    private <T> T run(Timer timer, Callable<T> work) {
+        long queuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                long started = System.nanoTime();
+                waitTimer.record(started - queuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return work.call();
+                } finally {
+                    timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new TooManyRequestsException("Too many sign-in attempts are being processed, please retry shortly", 1);
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new TooManyRequestsException("Password check timed out under load, please retry shortly", 1);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    private static Timer hashTimer(MeterRegistry registry, String op) {
+        return Timer.builder("auth.password.hash")
+                .tag("op", op)
+                .description("Time spent in BCrypt per operation")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+        logger.info("Password hashing pool stopped");
+    }
+}
@@ -6,7 +6,6 @@ import com.eduprajna.repository.PasswordResetTokenRepository;
 import com.eduprajna.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,11 +33,14 @@ public class PasswordResetService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserService userService;
+
     @Autowired
     private EmailService emailService;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
 
     @Value("${app.frontend-base-url:http://localhost:3000}")
     private String frontendBaseUrl;
@@ -133,8 +135,8 @@ public class PasswordResetService {
         }
 
         User user = userOpt.get();
-        user.setPasswordHash(passwordEncoder.encode(newPassword));
-        userRepository.save(user);
+        user.setPasswordHash(passwordHasher.encode(newPassword));
+        userService.save(user);
 
         resetToken.setIsUsed(true);
         tokenRepository.save(resetToken);
@@ -156,8 +158,8 @@ public class PasswordResetService {
         User user = userOpt.get();
 
         String temporaryPassword = generateTemporaryPassword();
-        user.setPasswordHash(passwordEncoder.encode(temporaryPassword));
-        userRepository.save(user);
+        user.setPasswordHash(passwordHasher.encode(temporaryPassword));
+        userService.save(user);
 
         boolean emailSent = emailService.sendCredentialsEmail(email, user.getName(), temporaryPassword);
 
@@ -0,0 +1,16 @@
+package com.eduprajna.service;
+
+/**
+ * Published by ProductService whenever a product (or one of its variants) is
+ * written. Listeners that keep in-memory copies of the catalog refresh the
+ * affected product once the surrounding transaction has committed.
+ */
+public class ProductChangedEvent {
+    private final Long productId;
+
+    public ProductChangedEvent(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getProductId() { return productId; }
+}
@@ -0,0 +1,249 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongPredicate;
+
+import org.springframework.stereotype.Service;
+
+import com.eduprajna.dto.FacetCountDTO;
+import com.eduprajna.dto.FacetResultDTO;
+import com.eduprajna.entity.Product;
+import com.eduprajna.entity.ProductVariant;
+
+/**
+ * Faceted navigation over the catalog snapshot.
+ *
+ * For every facet value there is one BitSet with a bit per snapshot position. A
+ * selection is the OR of the chosen values within a facet and the AND across facets,
+ * so filtering and counting are bitmap operations instead of walks over products.
+ * The bitmaps are rebuilt whenever CatalogService swaps in a new snapshot.
+ */
+@Service
+public class ProductFacetIndex {
+
+    public static final String CATEGORY = "category";
+    public static final String SUBCATEGORY = "subcategory";
+    public static final String FABRIC = "fabric";
+    public static final String COLOR = "color";
+    public static final String IN_STOCK = "inStock";
+    public static final String PRICE = "price";
+
+    // Upper bounds of the price buckets; the last bucket is open-ended
+    private static final double[] PRICE_BOUNDS = {500, 1000, 2000, 5000};
+
+    private final CatalogService catalogService;
+    private final ProductSearchIndex searchIndex;
+
+    private volatile Built built;
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    public ProductFacetIndex(CatalogService catalogService, ProductSearchIndex searchIndex) {
+        this.catalogService = catalogService;
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Counts per facet value for the given selection (facet name -> selected values)
+     * and optional search text. Each facet is counted with every filter applied except
+     * its own, the usual behaviour for multi-select facets.
+     */
+    public FacetResultDTO counts(Map<String, List<String>> selected, String search) {
+        Built b = current();
+
+        BitSet universe = new BitSet(b.size);
+        if (search != null && !search.trim().isEmpty()) {
+            for (Long id : searchIndex.search(search)) {
+                int pos = b.source.position(id);
+                if (pos >= 0) universe.set(pos);
+            }
+        } else {
+            universe.set(0, b.size);
+        }
+
+        Map<String, BitSet> filters = filtersFor(b, selected);
+
+        BitSet all = (BitSet) universe.clone();
+        for (BitSet f : filters.values()) all.and(f);
+
+        Map<String, List<FacetCountDTO>> facets = new LinkedHashMap<>();
+        for (Dimension dim : b.dimensions.values()) {
+            BitSet base = (BitSet) universe.clone();
+            for (Map.Entry<String, BitSet> f : filters.entrySet()) {
+                if (!f.getKey().equals(dim.name)) base.and(f.getValue());
+            }
+            List<FacetCountDTO> counts = new ArrayList<>(dim.values.size());
+            for (Value v : dim.values.values()) {
+                BitSet hits = (BitSet) v.bits.clone();
+                hits.and(base);
+                counts.add(new FacetCountDTO(v.key, v.label, hits.cardinality()));
+            }
+            if (!dim.ordered) {
+                counts.sort((x, y) -> x.count != y.count ? Integer.compare(y.count, x.count) : x.label.compareToIgnoreCase(y.label));
+            }
+            facets.put(dim.name, counts);
+        }
+
+        FacetResultDTO result = new FacetResultDTO();
+        result.total = all.cardinality();
+        result.facets = facets;
+        return result;
+    }
+
+    /**
+     * Predicate over product ids for the given selection, or null if nothing is selected.
+     */
+    public LongPredicate matcher(Map<String, List<String>> selected) {
+        Built b = current();
+        Map<String, BitSet> filters = filtersFor(b, selected);
+        if (filters.isEmpty()) return null;
+        BitSet all = new BitSet(b.size);
+        all.set(0, b.size);
+        for (BitSet f : filters.values()) all.and(f);
+        CatalogSnapshot source = b.source;
+        return id -> {
+            int pos = source.position(id);
+            return pos >= 0 && all.get(pos);
+        };
+    }
+
+    private static Map<String, BitSet> filtersFor(Built b, Map<String, List<String>> selected) {
+        Map<String, BitSet> filters = new LinkedHashMap<>();
+        if (selected == null) return filters;
+        for (Map.Entry<String, List<String>> e : selected.entrySet()) {
+            Dimension dim = b.dimensions.get(e.getKey());
+            if (dim == null || e.getValue() == null || e.getValue().isEmpty()) continue;
+            BitSet union = new BitSet(b.size);
+            for (String raw : e.getValue()) {
+                Value v = dim.values.get(key(raw));
+                if (v != null) union.or(v.bits);
+            }
+            filters.put(dim.name, union);
+        }
+        return filters;
+    }
+
+    private Built current() {
+        CatalogSnapshot snap = catalogService.snapshot();
+        Built b = built;
+        if (b != null && b.source == snap) return b;
+        buildLock.lock();
+        try {
+            b = built;
+            if (b == null || b.source != snap) {
+                b = build(snap);
+                built = b;
+            }
+            return b;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private static Built build(CatalogSnapshot snap) {
+        int n = snap.size();
+        Dimension category = new Dimension(CATEGORY, false);
+        Dimension subcategory = new Dimension(SUBCATEGORY, false);
+        Dimension fabric = new Dimension(FABRIC, false);
+        Dimension color = new Dimension(COLOR, false);
+        Dimension inStock = new Dimension(IN_STOCK, true);
+        Dimension price = new Dimension(PRICE, true);
+
+        inStock.value("true", "In stock", n);
+        inStock.value("false", "Out of stock", n);
+        for (int i = 0; i <= PRICE_BOUNDS.length; i++) {
+            String k = bucketKey(i);
+            price.value(k, k, n);
+        }
+
+        for (int i = 0; i < n; i++) {
+            CatalogSnapshot.Entry e = snap.entry(i);
+            Product p = e.product;
+            category.add(p.getCategory(), i, n);
+            subcategory.add(p.getSubcategory(), i, n);
+            fabric.add(p.getFabric(), i, n);
+            if (p.getVariants() != null) {
+                for (ProductVariant v : p.getVariants()) {
+                    color.add(v.getColor(), i, n);
+                }
+            }
+            inStock.values.get(e.inStock ? "true" : "false").bits.set(i);
+            if (e.price != null) {
+                price.values.get(bucketKey(bucketOf(e.price))).bits.set(i);
+            }
+        }
+
+        Map<String, Dimension> dims = new LinkedHashMap<>();
+        for (Dimension d : new Dimension[] {category, subcategory, fabric, color, inStock, price}) {
+            dims.put(d.name, d);
+        }
+        return new Built(snap, n, dims);
+    }
+
+    private static int bucketOf(double price) {
+        for (int i = 0; i < PRICE_BOUNDS.length; i++) {
+            if (price < PRICE_BOUNDS[i]) return i;
+        }
+        return PRICE_BOUNDS.length;
+    }
+
+    /** "0-500", "500-1000", ..., "5000+" */
+    private static String bucketKey(int bucket) {
+        long lower = bucket == 0 ? 0 : (long) PRICE_BOUNDS[bucket - 1];
+        if (bucket == PRICE_BOUNDS.length) return lower + "+";
+        return lower + "-" + (long) PRICE_BOUNDS[bucket];
+    }
+
+    private static String key(String raw) {
+        return raw == null ? "" : raw.trim().toLowerCase();
+    }
+
+    private static final class Dimension {
+        final String name;
+        // Fixed value lists (stock, price) keep their natural order instead of sorting by count
+        final boolean ordered;
+        final Map<String, Value> values = new LinkedHashMap<>();
+
+        Dimension(String name, boolean ordered) {
+            this.name = name;
+            this.ordered = ordered;
+        }
+
+        Value value(String key, String label, int size) {
+            return values.computeIfAbsent(key, k -> new Value(k, label, size));
+        }
+
+        void add(String raw, int position, int size) {
+            if (raw == null || raw.isBlank()) return;
+            value(key(raw), raw.trim(), size).bits.set(position);
+        }
+    }
+
+    private static final class Value {
+        final String key;
+        final String label;
+        final BitSet bits;
+
+        Value(String key, String label, int size) {
+            this.key = key;
+            this.label = label;
+            this.bits = new BitSet(size);
+        }
+    }
+
+    private static final class Built {
+        final CatalogSnapshot source;
+        final int size;
+        final Map<String, Dimension> dimensions;
+
+        Built(CatalogSnapshot source, int size, Map<String, Dimension> dimensions) {
+            this.source = source;
+            this.size = size;
+            this.dimensions = dimensions;
+        }
+    }
+}
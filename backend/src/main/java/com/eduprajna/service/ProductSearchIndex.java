@@ -0,0 +1,279 @@
+package com.eduprajna.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+import com.eduprajna.entity.Product;
+import com.eduprajna.entity.ProductVariant;
+
+/**
+ * In-process inverted index over the active catalog, ranked with BM25.
+ *
+ * Indexed fields are name, description, category, subcategory, fabric and variant
+ * colors, each with its own boost folded into the term frequency. Every term also
+ * contributes postings for its prefixes (2+ chars) so partially typed words match.
+ * CatalogService keeps the index in step with its snapshot: a full build on load,
+ * then add/remove per product after each committed write.
+ *
+ * A query only touches the posting lists of its own terms, so cost scales with
+ * the number of matching postings rather than the catalog size.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MIN_PREFIX = 2;
+    // Prefix-only matches score lower than whole-word matches
+    private static final float PREFIX_WEIGHT = 0.5f;
+
+    private static final float NAME_BOOST = 3.0f;
+    private static final float CATEGORY_BOOST = 2.0f;
+    private static final float SUBCATEGORY_BOOST = 2.0f;
+    private static final float FABRIC_BOOST = 1.5f;
+    private static final float COLOR_BOOST = 1.5f;
+    private static final float DESCRIPTION_BOOST = 1.0f;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "the", "this", "to", "with");
+
+    // term -> (product id -> boosted term frequency)
+    private final Map<String, Map<Long, Float>> postings = new HashMap<>();
+    // prefix -> (product id -> boosted frequency of all terms with that prefix)
+    private final Map<String, Map<Long, Float>> prefixPostings = new HashMap<>();
+    // product id -> indexed document, kept so removals can undo exactly what was added
+    private final Map<Long, Doc> docs = new HashMap<>();
+    private double totalLength;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Replace the whole index with the given products.
+     */
+    public void rebuild(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            prefixPostings.clear();
+            docs.clear();
+            totalLength = 0;
+            for (Product p : products) {
+                addLocked(p);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or re-index a single product.
+     */
+    public void update(Product product) {
+        if (product == null || product.getId() == null) return;
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            addLocked(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long productId) {
+        if (productId == null) return;
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Product ids matching every query term (the last term may be a prefix),
+     * best BM25 score first. Returns an empty list for a query with no terms.
+     */
+    public List<Long> search(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) return List.of();
+
+        lock.readLock().lock();
+        try {
+            int n = docs.size();
+            if (n == 0) return List.of();
+            double avgLength = totalLength / n;
+
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                boolean last = i == terms.size() - 1;
+                Map<Long, Float> exact = postings.get(term);
+                Map<Long, Float> prefix = (last || exact == null) ? prefixPostings.get(term) : null;
+                if (exact == null && prefix == null) return List.of();
+
+                Map<Long, Double> termScores = new HashMap<>();
+                if (exact != null) {
+                    accumulate(termScores, exact, idf(n, exact.size()), 1.0f, avgLength);
+                }
+                if (prefix != null) {
+                    accumulate(termScores, prefix, idf(n, prefix.size()), PREFIX_WEIGHT, avgLength);
+                }
+
+                // AND semantics: keep only products that matched every term so far
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    Map<Long, Double> merged = new HashMap<>();
+                    Map<Long, Double> small = scores.size() <= termScores.size() ? scores : termScores;
+                    Map<Long, Double> large = small == scores ? termScores : scores;
+                    for (Map.Entry<Long, Double> e : small.entrySet()) {
+                        Double other = large.get(e.getKey());
+                        if (other != null) merged.put(e.getKey(), e.getValue() + other);
+                    }
+                    scores = merged;
+                }
+                if (scores.isEmpty()) return List.of();
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int c = Double.compare(b.getValue(), a.getValue());
+                return c != 0 ? c : Long.compare(a.getKey(), b.getKey());
+            });
+            List<Long> ids = new ArrayList<>(ranked.size());
+            for (Map.Entry<Long, Double> e : ranked) ids.add(e.getKey());
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void accumulate(Map<Long, Double> into, Map<Long, Float> postingList, double idf, float weight, double avgLength) {
+        for (Map.Entry<Long, Float> posting : postingList.entrySet()) {
+            Doc doc = docs.get(posting.getKey());
+            if (doc == null) continue;
+            double tf = posting.getValue() * weight;
+            double norm = K1 * (1 - B + B * doc.length / avgLength);
+            double score = idf * (tf * (K1 + 1)) / (tf + norm);
+            into.merge(posting.getKey(), score, Double::sum);
+        }
+    }
+
+    private static double idf(int docCount, int docFreq) {
+        return Math.log(1 + (docCount - docFreq + 0.5) / (docFreq + 0.5));
+    }
+
+    private void addLocked(Product p) {
+        Map<String, Float> tf = new LinkedHashMap<>();
+        addField(tf, p.getName(), NAME_BOOST);
+        addField(tf, p.getCategory(), CATEGORY_BOOST);
+        addField(tf, p.getSubcategory(), SUBCATEGORY_BOOST);
+        addField(tf, p.getFabric(), FABRIC_BOOST);
+        if (p.getVariants() != null) {
+            for (ProductVariant v : p.getVariants()) {
+                addField(tf, v.getColor(), COLOR_BOOST);
+            }
+        }
+        addField(tf, p.getDescription(), DESCRIPTION_BOOST);
+
+        float length = 0;
+        for (float f : tf.values()) length += f;
+
+        Long id = p.getId();
+        Map<String, Float> prefixTf = new HashMap<>();
+        for (Map.Entry<String, Float> e : tf.entrySet()) {
+            String term = e.getKey();
+            postings.computeIfAbsent(term, k -> new HashMap<>()).put(id, e.getValue());
+            for (int len = MIN_PREFIX; len < term.length(); len++) {
+                prefixTf.merge(term.substring(0, len), e.getValue(), Float::sum);
+            }
+        }
+        for (Map.Entry<String, Float> e : prefixTf.entrySet()) {
+            prefixPostings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(id, e.getValue());
+        }
+
+        docs.put(id, new Doc(length, tf.keySet(), prefixTf.keySet()));
+        totalLength += length;
+    }
+
+    private void removeLocked(Long id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) return;
+        totalLength -= doc.length;
+        for (String term : doc.terms) {
+            removePosting(postings, term, id);
+        }
+        for (String prefix : doc.prefixes) {
+            removePosting(prefixPostings, prefix, id);
+        }
+    }
+
+    private static void removePosting(Map<String, Map<Long, Float>> index, String key, Long id) {
+        Map<Long, Float> list = index.get(key);
+        if (list == null) return;
+        list.remove(id);
+        if (list.isEmpty()) index.remove(key);
+    }
+
+    private static void addField(Map<String, Float> tf, String text, float boost) {
+        for (String token : tokenize(text)) {
+            tf.merge(token, boost, Float::sum);
+        }
+    }
+
+    /**
+     * Lower-case, strip accents, split on anything that is not a letter or digit
+     * and drop stop words.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) return List.of();
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase();
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = folded.substring(start, i);
+                if (!STOP_WORDS.contains(token)) tokens.add(token);
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Doc {
+        final float length;
+        final Set<String> terms;
+        final Set<String> prefixes;
+
+        Doc(float length, Set<String> terms, Set<String> prefixes) {
+            this.length = length;
+            this.terms = new HashSet<>(terms);
+            this.prefixes = new HashSet<>(prefixes);
+        }
+    }
+}
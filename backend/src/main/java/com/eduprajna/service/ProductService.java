@@ -1,17 +1,31 @@
 package com.eduprajna.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.eduprajna.dto.ProductPageDTO;
+import com.eduprajna.dto.ProductSummaryDTO;
 import com.eduprajna.entity.Product;
+import com.eduprajna.entity.ProductVariant;
 import com.eduprajna.repository.CartItemRepository;
 import com.eduprajna.repository.OrderItemRepository;
+import com.eduprajna.repository.ProductKeyset;
 import com.eduprajna.repository.ProductRepository;
+import com.eduprajna.repository.ProductSpecifications;
+import com.eduprajna.repository.ProductVariantRepository;
 import com.eduprajna.repository.WishlistItemRepository;
 
 @Service
@@ -30,10 +44,107 @@ public class ProductService {
 
     @Autowired
     private WishlistItemRepository wishlistItemRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private StockReservationService reservationService;
+
+    // Lets CatalogService patch its snapshot once the write commits
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ProductService.class);
 
     public List<Product> getAll() {
-        return productRepository.findAll();
+        return productRepository.findAllWithVariants();
+    }
+
+    /**
+     * One page of active products with filtering, sorting and keyset pagination
+     * done in SQL.
+     *
+     * @param cursor opaque cursor from a previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for a different sort
+     */
+    @Transactional(readOnly = true)
+    public ProductPageDTO getActivePage(String category, String search, Double minPrice, Double maxPrice,
+                                        String sort, String cursor, int limit) {
+        ProductKeyset.Order order = ProductKeyset.Order.fromParam(sort);
+        ProductKeyset.Cursor after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            after = ProductKeyset.Cursor.decode(cursor);
+            if (after.getOrder() != order) {
+                throw new IllegalArgumentException("Cursor does not match sort order");
+            }
+        }
+
+        Specification<Product> filter = ProductSpecifications.isActive()
+                .and(ProductSpecifications.categoryMatches(category))
+                .and(ProductSpecifications.searchMatches(search))
+                .and(ProductSpecifications.minPrice(minPrice))
+                .and(ProductSpecifications.maxPrice(maxPrice));
+
+        // Fetch one extra id to learn whether another page exists
+        List<Long> ids = productRepository.findKeysetPageIds(filter, order, after, limit + 1);
+        boolean hasMore = ids.size() > limit;
+        List<Long> pageIds = hasMore ? ids.subList(0, limit) : ids;
+
+        // Summaries come back unordered; put them back into page order
+        Map<Long, ProductSummaryDTO> byId = new HashMap<>();
+        if (!pageIds.isEmpty()) {
+            for (ProductSummaryDTO s : productRepository.findSummariesByIdIn(pageIds)) {
+                byId.put(s.id, s);
+            }
+        }
+        List<ProductSummaryDTO> items = new ArrayList<>(pageIds.size());
+        for (Long id : pageIds) {
+            ProductSummaryDTO s = byId.get(id);
+            if (s != null) items.add(s);
+        }
+        if (reservationService.hasHolds() && !items.isEmpty()) {
+            applyHolds(items);
+        }
+
+        ProductPageDTO page = new ProductPageDTO();
+        page.items = items;
+        page.limit = limit;
+        page.hasMore = hasMore;
+        if (hasMore && !items.isEmpty()) {
+            ProductSummaryDTO last = items.get(items.size() - 1);
+            String key = null;
+            if ("listPrice".equals(order.keyAttribute())) {
+                key = String.valueOf(last.price != null ? last.price : 0.0);
+            } else if ("name".equals(order.keyAttribute())) {
+                key = last.name;
+            }
+            page.nextCursor = new ProductKeyset.Cursor(order, key, last.id).encode();
+        }
+        return page;
+    }
+
+    // Summaries count on-hand stock. While payment holds are active, recheck inStock
+    // against what is left after them, by the rule CatalogSnapshot applies.
+    private void applyHolds(List<ProductSummaryDTO> items) {
+        List<Long> ids = new ArrayList<>(items.size());
+        for (ProductSummaryDTO s : items) ids.add(s.id);
+        Map<Long, Boolean> inStock = new HashMap<>();
+        for (Object[] row : variantRepository.findStockByProductIdIn(ids)) {
+            Long productId = (Long) row[0];
+            Integer qty = (Integer) row[2];
+            boolean available = !Boolean.FALSE.equals(row[3])
+                    && (qty == null || reservationService.available((Long) row[1], qty) > 0);
+            inStock.merge(productId, available, Boolean::logicalOr);
+        }
+        for (ProductSummaryDTO s : items) {
+            Boolean b = inStock.get(s.id);
+            if (b != null) s.inStock = b;
+        }
+    }
+
+    @Transactional
+    public int backfillListPrices() {
+        return productRepository.backfillListPrices();
     }
 
     @Transactional
@@ -61,9 +172,11 @@ public class ProductService {
             return (qty != null && qty > 0) || Boolean.TRUE.equals(explicit);
         });
         product.setInStock(anyInStock);
+        product.syncListPrice();
 
         productRepository.save(product);
         entityManager.flush();
+        eventPublisher.publishEvent(new ProductChangedEvent(productId));
         return variant;
     }
 
@@ -181,9 +294,13 @@ public class ProductService {
             }
         }
 
+        // Variant-only edits don't dirty the product row; keep listPrice in step
+        existing.syncListPrice();
+
         // Save and flush to ensure changes are persisted immediately
         Product saved = productRepository.save(existing);
         entityManager.flush();
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId()));
         return saved;
     }
 
@@ -205,8 +322,10 @@ public class ProductService {
                 }
             }
         }
+        p.syncListPrice();
         Product saved = productRepository.save(p);
         entityManager.flush();
+        eventPublisher.publishEvent(new ProductChangedEvent(saved.getId()));
         return saved;
     }
 
@@ -222,7 +341,29 @@ public class ProductService {
 
             // Now delete the product itself
             productRepository.deleteById(id);
+            eventPublisher.publishEvent(new ProductChangedEvent(id));
+        }
+    }
+
+    /**
+     * Point every variant image that is one of {@code from} at {@code to} instead.
+     * @return the number of image columns changed
+     */
+    @Transactional
+    public int replaceImageUrls(Collection<String> from, String to) {
+        int replaced = 0;
+        Set<Long> productIds = new HashSet<>();
+        for (ProductVariant v : variantRepository.findByAnyImageIn(from)) {
+            int before = replaced;
+            if (from.contains(v.getMainImage())) { v.setMainImage(to); replaced++; }
+            if (from.contains(v.getSubImage1())) { v.setSubImage1(to); replaced++; }
+            if (from.contains(v.getSubImage2())) { v.setSubImage2(to); replaced++; }
+            if (from.contains(v.getSubImage3())) { v.setSubImage3(to); replaced++; }
+            if (replaced > before && v.getProduct() != null) productIds.add(v.getProduct().getId());
         }
+        entityManager.flush();
+        productIds.forEach(id -> eventPublisher.publishEvent(new ProductChangedEvent(id)));
+        return replaced;
     }
 
     public Product getById(Long id) {
@@ -0,0 +1,183 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.eduprajna.dto.SuggestionDTO;
+import com.eduprajna.entity.Product;
+import com.eduprajna.repository.OrderItemRepository;
+
+/**
+ * Typeahead suggestions for the storefront search box.
+ *
+ * Completions come from product names, categories, subcategories and fabrics, weighted
+ * by units sold. They are held in a {@link SuggestTrie} built from the catalog snapshot;
+ * the trie is rebuilt when the snapshot changes and when sales counts are refreshed on
+ * a schedule. Lookups only walk the trie and never touch JPA.
+ */
+@Service
+public class ProductSuggester {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSuggester.class);
+
+    /** Results precomputed per trie node; also the upper bound for ?limit= */
+    public static final int MAX_RESULTS = 20;
+
+    private final CatalogService catalogService;
+    private final OrderItemRepository orderItemRepository;
+
+    private volatile Built built;
+    private volatile Map<Long, Long> salesCounts;
+    private final ReentrantLock buildLock = new ReentrantLock();
+
+    public ProductSuggester(CatalogService catalogService, OrderItemRepository orderItemRepository) {
+        this.catalogService = catalogService;
+        this.orderItemRepository = orderItemRepository;
+    }
+
+    /**
+     * Best completions for the typed prefix, at most {@code limit}.
+     */
+    public List<SuggestionDTO> suggest(String query, int limit) {
+        String prefix = SuggestTrie.normalize(query);
+        if (prefix.isEmpty()) return List.of();
+        return current().trie.complete(prefix, Math.min(limit, MAX_RESULTS));
+    }
+
+    /**
+     * Reload units sold per product and rebuild the trie with the new weights.
+     */
+    @Scheduled(fixedDelayString = "${app.suggest.sales-refresh-ms:600000}",
+               initialDelayString = "${app.suggest.sales-refresh-ms:600000}")
+    public void refreshSalesCounts() {
+        try {
+            salesCounts = loadSalesCounts();
+            buildLock.lock();
+            try {
+                built = build(catalogService.snapshot());
+            } finally {
+                buildLock.unlock();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to refresh suggestion sales counts", e);
+        }
+    }
+
+    private Built current() {
+        CatalogSnapshot snap = catalogService.snapshot();
+        Built b = built;
+        if (b != null && b.source == snap) return b;
+
+        // Only one thread rebuilds; the others keep serving the previous trie if there is one
+        if (b != null && !buildLock.tryLock()) return b;
+        if (b == null) buildLock.lock();
+        try {
+            b = built;
+            if (b == null || b.source != snap) {
+                b = build(snap);
+                built = b;
+            }
+            return b;
+        } finally {
+            buildLock.unlock();
+        }
+    }
+
+    private Built build(CatalogSnapshot snap) {
+        Map<Long, Long> sales = salesCounts;
+        if (sales == null) {
+            try {
+                sales = loadSalesCounts();
+                salesCounts = sales;
+            } catch (RuntimeException e) {
+                // Suggestions still work unweighted; the scheduled refresh will retry
+                logger.warn("Could not load sales counts for suggestions: {}", e.getMessage());
+                sales = Map.of();
+            }
+        }
+
+        Map<String, List<SuggestionDTO>> keys = new HashMap<>();
+        Map<String, long[]> categories = new HashMap<>();
+        Map<String, long[]> subcategories = new HashMap<>();
+        Map<String, long[]> fabrics = new HashMap<>();
+        Map<String, String> displayNames = new HashMap<>();
+
+        for (Product p : snap.products()) {
+            long sold = sales.getOrDefault(p.getId(), 0L);
+            if (p.getName() != null && !p.getName().isBlank()) {
+                SuggestionDTO s = new SuggestionDTO(p.getName().trim(), "product", p.getId(), sold);
+                addKeys(keys, s);
+            }
+            // Groups weigh one per product plus their units sold, so popular groups rank first
+            tally(categories, displayNames, "category", p.getCategory(), sold);
+            tally(subcategories, displayNames, "subcategory", p.getSubcategory(), sold);
+            tally(fabrics, displayNames, "fabric", p.getFabric(), sold);
+        }
+        addGroups(keys, categories, displayNames, "category");
+        addGroups(keys, subcategories, displayNames, "subcategory");
+        addGroups(keys, fabrics, displayNames, "fabric");
+
+        SuggestTrie trie = SuggestTrie.build(keys, MAX_RESULTS);
+        logger.debug("Suggestion trie built with {} keys from {} products", keys.size(), snap.size());
+        return new Built(snap, trie);
+    }
+
+    private static void tally(Map<String, long[]> counts, Map<String, String> displayNames,
+                              String type, String value, long sold) {
+        if (value == null || value.isBlank()) return;
+        String key = SuggestTrie.normalize(value);
+        if (key.isEmpty()) return;
+        counts.computeIfAbsent(key, k -> new long[1])[0] += 1 + sold;
+        displayNames.putIfAbsent(type + ":" + key, value.trim());
+    }
+
+    private static void addGroups(Map<String, List<SuggestionDTO>> keys, Map<String, long[]> counts,
+                                  Map<String, String> displayNames, String type) {
+        for (Map.Entry<String, long[]> e : counts.entrySet()) {
+            String text = displayNames.get(type + ":" + e.getKey());
+            addKeys(keys, new SuggestionDTO(text, type, null, e.getValue()[0]));
+        }
+    }
+
+    /**
+     * Index the suggestion under its full text and under every later word, so
+     * "silk" completes to "Mysore Silk Saree" as well as to "Silk".
+     */
+    private static void addKeys(Map<String, List<SuggestionDTO>> keys, SuggestionDTO s) {
+        String normalized = SuggestTrie.normalize(s.text);
+        if (normalized.isEmpty()) return;
+        int start = 0;
+        while (start >= 0) {
+            keys.computeIfAbsent(normalized.substring(start), k -> new ArrayList<>(1)).add(s);
+            int space = normalized.indexOf(' ', start);
+            start = space >= 0 ? space + 1 : -1;
+        }
+    }
+
+    private Map<Long, Long> loadSalesCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityByProduct()) {
+            if (row[0] == null || row[1] == null) continue;
+            counts.put(((Number) row[0]).longValue(), ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private static final class Built {
+        final CatalogSnapshot source;
+        final SuggestTrie trie;
+
+        Built(CatalogSnapshot source, SuggestTrie trie) {
+            this.source = source;
+            this.trie = trie;
+        }
+    }
+}
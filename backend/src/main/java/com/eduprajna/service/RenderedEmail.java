@@ -0,0 +1,21 @@
+package com.eduprajna.service;
+
+/**
+ * Subject and bodies produced by {@link EmailTemplates}; html is null for
+ * templates that only have a plain-text version.
+ */
+public class RenderedEmail {
+    private final String subject;
+    private final String text;
+    private final String html;
+
+    public RenderedEmail(String subject, String text, String html) {
+        this.subject = subject;
+        this.text = text;
+        this.html = html;
+    }
+
+    public String getSubject() { return subject; }
+    public String getText() { return text; }
+    public String getHtml() { return html; }
+}
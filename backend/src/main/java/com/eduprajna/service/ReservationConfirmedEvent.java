@@ -0,0 +1,15 @@
+package com.eduprajna.service;
+
+/**
+ * Published when an order consumes a user's stock holds; the in-memory holds
+ * are dropped once the order transaction commits.
+ */
+public class ReservationConfirmedEvent {
+    private final Long userId;
+
+    public ReservationConfirmedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() { return userId; }
+}
@@ -0,0 +1,363 @@
+package com.eduprajna.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+
+/**
+ * Blobs in a bucket of an S3-compatible service (AWS S3, MinIO, ...), spoken to directly
+ * over HTTP with SigV4 signing; no SDK.
+ *
+ * <ul>
+ *   <li>Uploads stream from the staged file. Files of multipart-threshold bytes or more
+ *       go up as a multipart upload in part-size pieces, each read straight from its
+ *       range of the file; a failed upload is aborted so no parts are left billed.</li>
+ *   <li>Payloads are sent as UNSIGNED-PAYLOAD, so nothing is read twice to hash it.</li>
+ *   <li>{@link #presignGet} hands out GET URLs so image bytes go from the bucket to the
+ *       browser without passing through this JVM. The signing time is rounded down to
+ *       half the TTL, so the same URL is handed out (and cached by browsers) for a while.</li>
+ *   <li>Path-style addressing ({@code endpoint/bucket/key}) by default, which is what
+ *       MinIO and most S3-compatible services expect.</li>
+ * </ul>
+ */
+public class S3BlobStore implements BlobStore {
+    private static final Logger logger = LoggerFactory.getLogger(S3BlobStore.class);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+
+    private final HttpClient http;
+    private final S3Signer signer;
+    private final URI endpoint;
+    private final String bucket;
+    private final boolean pathStyle;
+    private final long multipartThreshold;
+    private final long partSize;
+
+    public S3BlobStore(String endpoint, String region, String bucket, String accessKey, String secretKey,
+                       boolean pathStyle, long multipartThreshold, long partSize) {
+        this.endpoint = URI.create(endpoint.endsWith("/") ? endpoint.substring(0, endpoint.length() - 1) : endpoint);
+        this.bucket = bucket;
+        this.pathStyle = pathStyle;
+        this.signer = new S3Signer(accessKey, secretKey, region);
+        // S3 rejects parts under 5 MiB (except the last)
+        this.partSize = Math.max(partSize, 5L * 1024 * 1024);
+        this.multipartThreshold = Math.max(multipartThreshold, this.partSize);
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    @Override
+    public void put(String key, Path source, MediaType contentType) throws IOException {
+        long size = Files.size(source);
+        if (size >= multipartThreshold) {
+            putMultipart(key, source, size, contentType);
+            return;
+        }
+        TreeMap<String, String> headers = new TreeMap<>();
+        headers.put("content-type", contentType.toString());
+        HttpResponse<String> response = send("PUT", key, new TreeMap<>(), headers,
+                HttpRequest.BodyPublishers.ofFile(source), S3Signer.UNSIGNED_PAYLOAD);
+        expectOk(response, "PUT", key);
+    }
+
+    private void putMultipart(String key, Path source, long size, MediaType contentType) throws IOException {
+        TreeMap<String, String> headers = new TreeMap<>();
+        headers.put("content-type", contentType.toString());
+        HttpResponse<String> created = send("POST", key, query("uploads", ""), headers,
+                HttpRequest.BodyPublishers.noBody(), S3Signer.EMPTY_PAYLOAD);
+        expectOk(created, "CreateMultipartUpload", key);
+        String uploadId = firstElement(created.body(), "UploadId");
+        if (uploadId == null) throw new IOException("S3 CreateMultipartUpload for " + key + " returned no UploadId");
+
+        try {
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            int partNumber = 0;
+            for (long offset = 0; offset < size; offset += partSize) {
+                partNumber++;
+                long length = Math.min(partSize, size - offset);
+                long start = offset;
+                HttpRequest.BodyPublisher part = HttpRequest.BodyPublishers.fromPublisher(
+                        HttpRequest.BodyPublishers.ofInputStream(() -> slice(source, start, length)), length);
+                TreeMap<String, String> q = query("partNumber", Integer.toString(partNumber));
+                q.put("uploadId", uploadId);
+                HttpResponse<String> uploaded = send("PUT", key, q, new TreeMap<>(), part, S3Signer.UNSIGNED_PAYLOAD);
+                expectOk(uploaded, "UploadPart " + partNumber, key);
+                String etag = uploaded.headers().firstValue("ETag")
+                        .orElseThrow(() -> new IOException("S3 UploadPart returned no ETag for " + key));
+                complete.append("<Part><PartNumber>").append(partNumber).append("</PartNumber><ETag>")
+                        .append(etag.replace("&", "&amp;").replace("\"", "&quot;")).append("</ETag></Part>");
+            }
+            complete.append("</CompleteMultipartUpload>");
+            byte[] body = complete.toString().getBytes(StandardCharsets.UTF_8);
+            TreeMap<String, String> xml = new TreeMap<>();
+            xml.put("content-type", "application/xml");
+            HttpResponse<String> done = send("POST", key, query("uploadId", uploadId), xml,
+                    HttpRequest.BodyPublishers.ofByteArray(body), S3Signer.sha256Hex(body));
+            // CompleteMultipartUpload can fail with a 200 and an <Error> body
+            if (done.statusCode() / 100 != 2 || done.body().contains("<Error>")) {
+                throw new IOException("S3 CompleteMultipartUpload failed for " + key + ": " + done.statusCode() + " " + snippet(done.body()));
+            }
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId);
+            throw e;
+        }
+    }
+
+    private void abort(String key, String uploadId) {
+        try {
+            send("DELETE", key, query("uploadId", uploadId), new TreeMap<>(),
+                    HttpRequest.BodyPublishers.noBody(), S3Signer.EMPTY_PAYLOAD);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not abort multipart upload {} of {}: {}", uploadId, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public BlobInfo stat(String key) throws IOException {
+        HttpResponse<String> response = send("HEAD", key, new TreeMap<>(), new TreeMap<>(),
+                HttpRequest.BodyPublishers.noBody(), S3Signer.EMPTY_PAYLOAD);
+        if (response.statusCode() == 404) return null;
+        expectOk(response, "HEAD", key);
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        long modified = response.headers().firstValue("Last-Modified")
+                .map(v -> ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli())
+                .orElse(0L);
+        return new BlobInfo(key, size, modified);
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        HttpRequest request = request("GET", key, new TreeMap<>(), new TreeMap<>(),
+                HttpRequest.BodyPublishers.noBody(), S3Signer.EMPTY_PAYLOAD);
+        HttpResponse<InputStream> response;
+        try {
+            response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted reading " + key, e);
+        }
+        if (response.statusCode() / 100 == 2) return response.body();
+        String body;
+        try (InputStream in = response.body()) {
+            body = new String(in.readNBytes(512), StandardCharsets.UTF_8);
+        }
+        if (response.statusCode() == 404) throw new NoSuchFileException(key);
+        throw new IOException("S3 GET failed for " + key + ": " + response.statusCode() + " " + snippet(body));
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        HttpResponse<String> response = send("DELETE", key, new TreeMap<>(), new TreeMap<>(),
+                HttpRequest.BodyPublishers.noBody(), S3Signer.EMPTY_PAYLOAD);
+        if (response.statusCode() == 404) return true;
+        expectOk(response, "DELETE", key);
+        return true;
+    }
+
+    @Override
+    public List<BlobInfo> list(String startAfter, int limit) throws IOException {
+        TreeMap<String, String> q = query("list-type", "2");
+        q.put("max-keys", Integer.toString(Math.min(limit, 1000)));
+        if (startAfter != null && !startAfter.isEmpty()) q.put("start-after", startAfter);
+        HttpResponse<String> response = send("GET", null, q, new TreeMap<>(),
+                HttpRequest.BodyPublishers.noBody(), S3Signer.EMPTY_PAYLOAD);
+        expectOk(response, "ListObjectsV2", bucket);
+        return parseListing(response.body());
+    }
+
+    @Override
+    public void touch(String key) throws IOException {
+        // A copy onto itself with replaced metadata is the only way to move LastModified
+        HttpResponse<String> head = send("HEAD", key, new TreeMap<>(), new TreeMap<>(),
+                HttpRequest.BodyPublishers.noBody(), S3Signer.EMPTY_PAYLOAD);
+        expectOk(head, "HEAD", key);
+        TreeMap<String, String> headers = new TreeMap<>();
+        headers.put("content-type", head.headers().firstValue("Content-Type").orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE));
+        headers.put("x-amz-copy-source", "/" + bucket + "/" + S3Signer.encode(key, true));
+        headers.put("x-amz-metadata-directive", "REPLACE");
+        HttpResponse<String> response = send("PUT", key, new TreeMap<>(), headers,
+                HttpRequest.BodyPublishers.noBody(), S3Signer.EMPTY_PAYLOAD);
+        if (response.statusCode() / 100 != 2 || response.body().contains("<Error>")) {
+            throw new IOException("S3 copy failed for " + key + ": " + response.statusCode() + " " + snippet(response.body()));
+        }
+    }
+
+    @Override
+    public URI presignGet(String key, Duration ttl) {
+        long window = Math.max(ttl.toSeconds() / 2, 1);
+        Instant signedAt = Instant.ofEpochSecond(Instant.now().getEpochSecond() / window * window);
+        URI uri = uri(key, "");
+        String query = signer.presign("GET", hostHeader(uri), uri.getRawPath(), new TreeMap<>(), ttl, signedAt);
+        return URI.create(uri + "?" + query);
+    }
+
+    private HttpResponse<String> send(String method, String key, TreeMap<String, String> query,
+                                      TreeMap<String, String> headers, HttpRequest.BodyPublisher body,
+                                      String payloadHash) throws IOException {
+        try {
+            return http.send(request(method, key, query, headers, body, payloadHash),
+                    HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during S3 " + method + " " + key, e);
+        }
+    }
+
+    private HttpRequest request(String method, String key, SortedMap<String, String> query,
+                                TreeMap<String, String> headers, HttpRequest.BodyPublisher body,
+                                String payloadHash) {
+        String queryString = S3Signer.canonicalQuery(query);
+        URI uri = uri(key, queryString);
+        headers.put("host", hostHeader(uri));
+        signer.sign(method, uri.getRawPath(), query, headers, payloadHash, Instant.now());
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).method(method, body);
+        for (Map.Entry<String, String> h : headers.entrySet()) {
+            // HttpClient sets Host itself, from the same URI
+            if (!h.getKey().equals("host")) builder.header(h.getKey(), h.getValue());
+        }
+        return builder.build();
+    }
+
+    private URI uri(String key, String queryString) {
+        String path = key == null ? "" : S3Signer.encode(key, true);
+        String base;
+        if (pathStyle) {
+            base = endpoint + "/" + bucket + "/" + path;
+        } else {
+            base = endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority() + "/" + path;
+        }
+        return URI.create(queryString.isEmpty() ? base : base + "?" + queryString);
+    }
+
+    // What HttpClient sends as Host: the port only when it is not the scheme's default
+    private static String hostHeader(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1
+                || ("http".equals(uri.getScheme()) && port == 80)
+                || ("https".equals(uri.getScheme()) && port == 443);
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    private static TreeMap<String, String> query(String name, String value) {
+        TreeMap<String, String> q = new TreeMap<>();
+        q.put(name, value);
+        return q;
+    }
+
+    private static void expectOk(HttpResponse<String> response, String op, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("S3 " + op + " failed for " + key + ": " + response.statusCode() + " " + snippet(response.body()));
+        }
+    }
+
+    private static String snippet(String body) {
+        if (body == null) return "";
+        return body.length() > 300 ? body.substring(0, 300) : body;
+    }
+
+    // Reads length bytes of the file from offset, for one multipart part
+    private static InputStream slice(Path source, long offset, long length) {
+        try {
+            InputStream in = Files.newInputStream(source);
+            in.skipNBytes(offset);
+            return new FilterInputStream(in) {
+                private long remaining = length;
+
+                @Override
+                public int read() throws IOException {
+                    if (remaining <= 0) return -1;
+                    int b = super.read();
+                    if (b >= 0) remaining--;
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buf, int off, int len) throws IOException {
+                    if (remaining <= 0) return -1;
+                    int n = super.read(buf, off, (int) Math.min(len, remaining));
+                    if (n > 0) remaining -= n;
+                    return n;
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<BlobInfo> parseListing(String xml) throws IOException {
+        List<BlobInfo> blobs = new ArrayList<>();
+        try {
+            XMLStreamReader r = xmlReader(xml);
+            String key = null;
+            long size = 0;
+            long modified = 0;
+            while (r.hasNext()) {
+                int event = r.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (r.getLocalName()) {
+                        case "Contents" -> { key = null; size = 0; modified = 0; }
+                        case "Key" -> key = r.getElementText();
+                        case "Size" -> size = Long.parseLong(r.getElementText().trim());
+                        case "LastModified" -> modified = Instant.parse(r.getElementText().trim()).toEpochMilli();
+                        default -> { }
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && r.getLocalName().equals("Contents") && key != null) {
+                    blobs.add(new BlobInfo(key, size, modified));
+                }
+            }
+        } catch (XMLStreamException | RuntimeException e) {
+            throw new IOException("Unreadable S3 listing: " + e.getMessage(), e);
+        }
+        return blobs;
+    }
+
+    private static String firstElement(String xml, String name) throws IOException {
+        try {
+            XMLStreamReader r = xmlReader(xml);
+            while (r.hasNext()) {
+                if (r.next() == XMLStreamConstants.START_ELEMENT && r.getLocalName().equals(name)) {
+                    return r.getElementText();
+                }
+            }
+            return null;
+        } catch (XMLStreamException e) {
+            throw new IOException("Unreadable S3 response: " + e.getMessage(), e);
+        }
+    }
+
+    private static XMLStreamReader xmlReader(String xml) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory.createXMLStreamReader(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+}
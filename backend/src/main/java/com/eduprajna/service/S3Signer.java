@@ -0,0 +1,141 @@
+package com.eduprajna.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AWS Signature Version 4 for S3 requests: the Authorization header for a request, or
+ * the query parameters of a presigned URL. Paths and query values are expected in the
+ * form {@link #encode} produces; header names in lower case.
+ */
+final class S3Signer {
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    static final String EMPTY_PAYLOAD = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final DateTimeFormatter AMZ_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+
+    S3Signer(String accessKey, String secretKey, String region) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+    }
+
+    /**
+     * Add x-amz-date, x-amz-content-sha256 and authorization to {@code headers}, which must
+     * already hold host and every other header to be signed.
+     */
+    void sign(String method, String rawPath, SortedMap<String, String> query,
+              SortedMap<String, String> headers, String payloadHash, Instant now) {
+        String amzDate = AMZ_DATE.format(now);
+        headers.put("x-amz-date", amzDate);
+        headers.put("x-amz-content-sha256", payloadHash);
+
+        StringBuilder canonicalHeaders = new StringBuilder();
+        for (Map.Entry<String, String> h : headers.entrySet()) {
+            canonicalHeaders.append(h.getKey()).append(':').append(h.getValue().trim()).append('\n');
+        }
+        String signedHeaders = String.join(";", headers.keySet());
+        String canonical = method + "\n" + rawPath + "\n" + canonicalQuery(query) + "\n"
+                + canonicalHeaders + "\n" + signedHeaders + "\n" + payloadHash;
+        String scope = amzDate.substring(0, 8) + "/" + region + "/s3/aws4_request";
+        String signature = signature(amzDate, scope, canonical);
+        headers.put("authorization", ALGORITHM + " Credential=" + accessKey + "/" + scope
+                + ",SignedHeaders=" + signedHeaders + ",Signature=" + signature);
+    }
+
+    /**
+     * The query string (without "?") of a presigned URL for {@code query} plus the
+     * X-Amz-* parameters, signing only the host header.
+     */
+    String presign(String method, String host, String rawPath, SortedMap<String, String> query,
+                   Duration ttl, Instant now) {
+        String amzDate = AMZ_DATE.format(now);
+        String scope = amzDate.substring(0, 8) + "/" + region + "/s3/aws4_request";
+        TreeMap<String, String> params = new TreeMap<>(query);
+        params.put("X-Amz-Algorithm", ALGORITHM);
+        params.put("X-Amz-Credential", accessKey + "/" + scope);
+        params.put("X-Amz-Date", amzDate);
+        params.put("X-Amz-Expires", Long.toString(ttl.toSeconds()));
+        params.put("X-Amz-SignedHeaders", "host");
+        String canonical = method + "\n" + rawPath + "\n" + canonicalQuery(params) + "\n"
+                + "host:" + host + "\n\nhost\n" + UNSIGNED_PAYLOAD;
+        return canonicalQuery(params) + "&X-Amz-Signature=" + signature(amzDate, scope, canonical);
+    }
+
+    private String signature(String amzDate, String scope, String canonicalRequest) {
+        String toSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n" + sha256Hex(canonicalRequest);
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), amzDate.substring(0, 8));
+        key = hmac(key, region);
+        key = hmac(key, "s3");
+        key = hmac(key, "aws4_request");
+        return HexFormat.of().formatHex(hmac(key, toSign));
+    }
+
+    static String canonicalQuery(SortedMap<String, String> query) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> q : query.entrySet()) {
+            if (sb.length() > 0) sb.append('&');
+            sb.append(encode(q.getKey(), false)).append('=').append(encode(q.getValue(), false));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * RFC 3986 percent-encoding as SigV4 wants it (unreserved characters kept, upper-case
+     * hex), optionally keeping "/" for object key paths.
+     */
+    static String encode(String value, boolean keepSlash) {
+        StringBuilder sb = new StringBuilder(value.length() + 16);
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                sb.append(c);
+            } else {
+                sb.append('%').append(Character.toUpperCase(Character.forDigit((c >> 4) & 0xf, 16)))
+                  .append(Character.toUpperCase(Character.forDigit(c & 0xf, 16)));
+            }
+        }
+        return sb.toString();
+    }
+
+    static String sha256Hex(String value) {
+        return sha256Hex(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String sha256Hex(byte[] value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.eduprajna.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spaces calls evenly at no more than {@code perSecond}, shared by every thread that
+ * calls {@link #acquire()}. Each caller reserves the next free slot and parks until it.
+ * A rate of zero or less disables limiting.
+ */
+final class SendRateLimiter {
+
+    private final long intervalNanos;
+    private final AtomicLong nextSlot = new AtomicLong(System.nanoTime());
+
+    SendRateLimiter(double perSecond) {
+        this.intervalNanos = perSecond > 0 ? (long) (1_000_000_000L / perSecond) : 0;
+    }
+
+    void acquire() {
+        if (intervalNanos == 0) return;
+        long now = System.nanoTime();
+        long slot = nextSlot.getAndUpdate(prev -> Math.max(prev, now) + intervalNanos);
+        long deadline = Math.max(slot, now);
+        long wait;
+        while ((wait = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+}
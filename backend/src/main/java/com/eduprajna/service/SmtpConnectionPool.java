@@ -0,0 +1,243 @@
+package com.eduprajna.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+
+/**
+ * Authenticated SMTP connections to one server endpoint, kept open between sends.
+ *
+ * At most {@code maxConnections} are open at once; idle ones are reused most recently
+ * used first, checked with NOOP before reuse, and closed after {@code maxIdleMillis} or
+ * once they have carried {@code maxMessagesPerConnection} messages (providers such as
+ * Gmail cap messages per session).
+ */
+final class SmtpConnectionPool {
+    private static final Logger logger = LoggerFactory.getLogger(SmtpConnectionPool.class);
+
+    static final long BORROW_TIMEOUT_SECONDS = 30;
+
+    final String name;
+    private final Session session;
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final int maxConnections;
+    private final long maxIdleMillis;
+    private final int maxMessagesPerConnection;
+
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<Connection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicLong opened = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean closed;
+
+    SmtpConnectionPool(String name, Session session, String host, int port, String username, String password,
+                       int maxConnections, long maxIdleMillis, int maxMessagesPerConnection) {
+        this.name = name;
+        this.session = session;
+        this.host = host;
+        this.port = port;
+        this.username = username;
+        this.password = password;
+        this.maxConnections = maxConnections;
+        this.maxIdleMillis = maxIdleMillis;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    Session session() {
+        return session;
+    }
+
+    /**
+     * Send one message on a pooled connection.
+     * @throws SendFailedException if the server rejected recipients (the connection is fine)
+     * @throws MessagingException if connecting or talking to the server failed
+     */
+    void send(MimeMessage message) throws MessagingException {
+        Connection c = borrow();
+        boolean reusable = false;
+        try {
+            c.send(message);
+            sent.incrementAndGet();
+            reusable = true;
+        } catch (SendFailedException e) {
+            // Rejected addresses: the server answered, so the session is still usable
+            failed.incrementAndGet();
+            reusable = c.transport.isConnected();
+            throw e;
+        } catch (MessagingException e) {
+            failed.incrementAndGet();
+            throw e;
+        } finally {
+            giveBack(c, reusable);
+        }
+    }
+
+    /**
+     * Send messages[from..] in one SMTP session, moving to a fresh connection only when
+     * the per-connection message limit is reached. {@code pace} runs before each message
+     * (rate limiting). A rejected recipient is recorded in {@code errors} and the batch
+     * carries on; a connection-level failure, or no connection to borrow, is recorded at
+     * its index and ends the batch. Never throws.
+     * @return the index the batch stopped at: messages.size() unless the connection failed
+     */
+    int sendBatch(List<MimeMessage> messages, int from, MessagingException[] errors, Runnable pace) {
+        int i = from;
+        while (i < messages.size()) {
+            Connection c;
+            try {
+                c = borrow();
+            } catch (MessagingException e) {
+                errors[i] = e;
+                failed.incrementAndGet();
+                return i;
+            } catch (MailException e) {
+                // Pool closed or borrow timed out: the route is unusable for now, so end
+                // the batch here and let the caller move on to the next route
+                errors[i] = new MessagingException(e.getMessage(), e);
+                failed.incrementAndGet();
+                return i;
+            }
+            boolean reusable = true;
+            try {
+                while (i < messages.size() && c.messages < maxMessagesPerConnection) {
+                    pace.run();
+                    try {
+                        c.send(messages.get(i));
+                        errors[i] = null;
+                        sent.incrementAndGet();
+                    } catch (SendFailedException e) {
+                        errors[i] = e;
+                        failed.incrementAndGet();
+                        if (!c.transport.isConnected()) {
+                            reusable = false;
+                            i++;
+                            break;
+                        }
+                    } catch (MessagingException e) {
+                        errors[i] = e;
+                        failed.incrementAndGet();
+                        reusable = false;
+                        return i;
+                    }
+                    i++;
+                }
+            } finally {
+                giveBack(c, reusable);
+            }
+        }
+        return i;
+    }
+
+    Connection borrow() throws MessagingException {
+        if (closed) throw new MailSendException("SMTP pool " + name + " is closed");
+        try {
+            if (!permits.tryAcquire(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new MailSendException("Timed out waiting for an SMTP connection (" + name + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MailSendException("Interrupted waiting for an SMTP connection (" + name + ")");
+        }
+        try {
+            long now = System.currentTimeMillis();
+            Connection c;
+            while ((c = idle.pollFirst()) != null) {
+                if (now - c.lastUsed <= maxIdleMillis && c.transport.isConnected()) return c;
+                c.close();
+            }
+            Transport transport = session.getTransport();
+            transport.connect(host, port, username, password);
+            opened.incrementAndGet();
+            logger.debug("Opened SMTP connection to {}:{} ({})", host, port, name);
+            return new Connection(transport);
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    void giveBack(Connection c, boolean reusable) {
+        try {
+            if (reusable && !closed && c.messages < maxMessagesPerConnection) {
+                c.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(c);
+            } else {
+                c.close();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Close connections that have sat idle longer than maxIdleMillis.
+     */
+    void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Connection c : idle) {
+            if (now - c.lastUsed > maxIdleMillis && idle.remove(c)) c.close();
+        }
+    }
+
+    void close() {
+        closed = true;
+        Connection c;
+        while ((c = idle.pollFirst()) != null) c.close();
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("endpoint", host + ":" + port);
+        stats.put("maxConnections", maxConnections);
+        stats.put("active", maxConnections - permits.availablePermits());
+        stats.put("idle", idle.size());
+        stats.put("opened", opened.get());
+        stats.put("sent", sent.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    static final class Connection {
+        final Transport transport;
+        int messages;
+        long lastUsed = System.currentTimeMillis();
+
+        Connection(Transport transport) {
+            this.transport = transport;
+        }
+
+        void send(MimeMessage message) throws MessagingException {
+            message.saveChanges();
+            messages++;
+            transport.sendMessage(message, message.getAllRecipients());
+        }
+
+        void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                logger.debug("Error closing SMTP connection: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.eduprajna.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.MimeMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mail.MailProperties;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Outgoing SMTP for EmailService: a primary route (spring.mail.*, STARTTLS on 587)
+ * and an SSL fallback on app.mail.fallback-port, each with its own connection pool
+ * and circuit breaker.
+ *
+ * A send tries the routes in order, skipping any whose breaker is open, so when 587
+ * is blocked messages go straight to 465 instead of waiting out a connect timeout
+ * first. Rejected recipients are reported as-is and never count against a route.
+ *
+ * Jakarta Mail's SMTPTransport does its network I/O inside synchronized methods, which
+ * pins a virtual thread to its carrier for the whole SMTP exchange. So when the caller
+ * is a virtual thread (spring.threads.virtual.enabled), the send is handed to a small
+ * pool of platform threads, one per pooled connection, and the caller just waits.
+ * At most app.mail.pool.max-queued-sends sends wait for one of those threads; more
+ * are refused at once. A send waits for a thread no longer than it would wait for a
+ * pooled connection. Once a thread has picked it up the caller waits for it to end
+ * (the pool's borrow timeout and the socket timeouts bound that): abandoning a send
+ * the server may already have accepted would report a failure for a delivered
+ * message, and the outbox would send it again.
+ */
+@Service
+public class SmtpTransports {
+    private static final Logger logger = LoggerFactory.getLogger(SmtpTransports.class);
+
+    private final List<Route> routes = new ArrayList<>(2);
+    private final ThreadPoolExecutor platformSender;
+
+    public SmtpTransports(MailProperties mail,
+                          @Value("${app.mail.fallback-port:465}") int fallbackPort,
+                          @Value("${app.mail.pool.max-connections:4}") int maxConnections,
+                          @Value("${app.mail.pool.max-idle-ms:60000}") long maxIdleMillis,
+                          @Value("${app.mail.pool.max-messages-per-connection:100}") int maxMessagesPerConnection,
+                          @Value("${app.mail.pool.max-queued-sends:100}") int maxQueuedSends,
+                          @Value("${app.mail.breaker.failure-threshold:3}") int failureThreshold,
+                          @Value("${app.mail.breaker.open-ms:60000}") long openMillis) {
+        String host = mail.getHost() != null ? mail.getHost() : "smtp.gmail.com";
+        int port = mail.getPort() != null ? mail.getPort() : 587;
+
+        Properties primary = new Properties();
+        primary.putAll(mail.getProperties());
+        primary.put("mail.transport.protocol", "smtp");
+
+        Properties fallback = new Properties();
+        fallback.putAll(mail.getProperties());
+        fallback.put("mail.transport.protocol", "smtp");
+        fallback.put("mail.smtp.auth", "true");
+        fallback.put("mail.smtp.ssl.enable", "true");
+        fallback.put("mail.smtp.starttls.enable", "false");
+        fallback.putIfAbsent("mail.smtp.connectiontimeout", "10000");
+        fallback.putIfAbsent("mail.smtp.timeout", "10000");
+        fallback.putIfAbsent("mail.smtp.writetimeout", "10000");
+
+        routes.add(new Route(
+                new SmtpConnectionPool("primary", Session.getInstance(primary), host, port,
+                        mail.getUsername(), mail.getPassword(), maxConnections, maxIdleMillis, maxMessagesPerConnection),
+                new CircuitBreaker("primary", failureThreshold, openMillis)));
+        if (fallbackPort > 0 && fallbackPort != port) {
+            routes.add(new Route(
+                    new SmtpConnectionPool("fallback", Session.getInstance(fallback), host, fallbackPort,
+                            mail.getUsername(), mail.getPassword(), maxConnections, maxIdleMillis, maxMessagesPerConnection),
+                    new CircuitBreaker("fallback", failureThreshold, openMillis)));
+        }
+
+        int senders = Math.max(1, maxConnections) * routes.size();
+        AtomicInteger n = new AtomicInteger();
+        this.platformSender = new ThreadPoolExecutor(senders, senders, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueuedSends)), r -> {
+                    Thread t = new Thread(r, "smtp-send-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.platformSender.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Send a simple text message as UTF-8 MIME.
+     * @throws MailException if every route failed or was open, or the recipients were rejected
+     */
+    public void send(SimpleMailMessage message) {
+        MimeMessage mime = new MimeMessage(session());
+        message.copyTo(new MimeMailMessage(new MimeMessageHelper(mime, "UTF-8")));
+        send(mime);
+    }
+
+    /**
+     * Send a prepared message over the first route that is up.
+     */
+    public void send(MimeMessage message) {
+        if (Thread.currentThread().isVirtual()) {
+            onPlatformThread(() -> send(message));
+            return;
+        }
+        MessagingException last = null;
+        for (Route route : routes) {
+            if (!route.breaker.allowRequest()) continue;
+            try {
+                route.pool.send(message);
+                route.breaker.onSuccess();
+                return;
+            } catch (SendFailedException e) {
+                route.breaker.onSuccess();
+                throw new MailSendException("Recipients rejected: " + e.getMessage(), e);
+            } catch (MessagingException e) {
+                route.breaker.onFailure();
+                logger.warn("SMTP send via {} failed: {}", route.pool.name, e.getMessage());
+                last = e;
+            }
+        }
+        if (last != null) throw new MailSendException("All SMTP routes failed", last);
+        throw new MailSendException("All SMTP routes are unavailable (circuit open)");
+    }
+
+    /**
+     * Send a batch over as few SMTP sessions as possible: messages go down one pooled
+     * connection of the first available route; if that route fails mid-batch the rest
+     * continue on the next route. {@code pace} runs before every message.
+     * @return per-message errors, null where the message was accepted
+     */
+    public MessagingException[] sendBatch(List<MimeMessage> messages, Runnable pace) {
+        int n = messages.size();
+        MessagingException[] errors = new MessagingException[n];
+        int from = 0;
+        for (Route route : routes) {
+            if (from >= n) break;
+            if (!route.breaker.allowRequest()) continue;
+            int stopped = route.pool.sendBatch(messages, from, errors, pace);
+            if (stopped >= n) {
+                route.breaker.onSuccess();
+            } else {
+                route.breaker.onFailure();
+                logger.warn("SMTP batch via {} failed after {} of {} messages: {}",
+                        route.pool.name, stopped - from, n - from, errors[stopped].getMessage());
+            }
+            from = stopped;
+        }
+        for (int i = from; i < n; i++) {
+            if (errors[i] == null) errors[i] = new MessagingException("All SMTP routes are unavailable (circuit open)");
+        }
+        return errors;
+    }
+
+    /**
+     * Session for building MimeMessages to pass to {@link #send(MimeMessage)} or {@link #sendBatch}.
+     */
+    public Session session() {
+        return routes.get(0).pool.session();
+    }
+
+    /**
+     * Pool and breaker state per route, for the mailtransport actuator endpoint.
+     */
+    public Map<String, Object> state() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        for (Route route : routes) {
+            Map<String, Object> r = new LinkedHashMap<>();
+            r.put("breaker", route.breaker.stats());
+            r.put("pool", route.pool.stats());
+            state.put(route.pool.name, r);
+        }
+        return state;
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.pool.max-idle-ms:60000}")
+    public void evictIdle() {
+        // Closing a connection sends QUIT from inside a synchronized method too
+        if (Thread.currentThread().isVirtual()) {
+            onPlatformThread(this::evictIdle);
+            return;
+        }
+        for (Route route : routes) route.pool.evictIdle();
+    }
+
+    @PreDestroy
+    void close() {
+        platformSender.shutdownNow();
+        for (Route route : routes) route.pool.close();
+    }
+
+    private void onPlatformThread(Runnable work) {
+        FutureTask<Void> task = new FutureTask<>(work, null);
+        try {
+            platformSender.execute(task);
+        } catch (RejectedExecutionException e) {
+            throw new MailSendException("Too many SMTP sends waiting; try again later", e);
+        }
+        try {
+            try {
+                // Waiting for a sender thread stands in for waiting for a pooled connection
+                task.get(SmtpConnectionPool.BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                // Only a send that never started can be given up safely
+                if (platformSender.remove(task)) {
+                    throw new MailSendException("No SMTP sender free after "
+                            + SmtpConnectionPool.BORROW_TIMEOUT_SECONDS + "s", e);
+                }
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (platformSender.remove(task)) {
+                throw new MailSendException("Interrupted while waiting for an SMTP sender", e);
+            }
+            // Left to finish on its sender thread; the message may still be delivered
+            logger.warn("Interrupted while an SMTP send was in progress; it may still be delivered");
+            throw new MailSendException("Interrupted during SMTP send; delivery unknown", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            throw new MailSendException("SMTP send failed", cause);
+        }
+    }
+
+    private static final class Route {
+        final SmtpConnectionPool pool;
+        final CircuitBreaker breaker;
+
+        Route(SmtpConnectionPool pool, CircuitBreaker breaker) {
+            this.pool = pool;
+            this.breaker = breaker;
+        }
+    }
+}
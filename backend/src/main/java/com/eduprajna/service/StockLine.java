@@ -0,0 +1,53 @@
+package com.eduprajna.service;
+
+import java.util.List;
+import java.util.TreeMap;
+
+import com.eduprajna.entity.CartItem;
+import com.eduprajna.entity.Product;
+import com.eduprajna.repository.ProductVariantRepository;
+
+/**
+ * Quantity of one variant needed by a cart, with a label for error messages.
+ */
+final class StockLine {
+    final Long productId;
+    final String label;
+    int quantity;
+
+    StockLine(Long productId, String label) {
+        this.productId = productId;
+        this.label = label;
+    }
+
+    /**
+     * Merge cart lines per variant, keyed and sorted by variant id (the lock order
+     * used for stock updates). Lines without a variant draw from the product's
+     * primary (lowest id) variant.
+     */
+    static TreeMap<Long, StockLine> resolve(List<CartItem> cart, ProductVariantRepository variantRepo) {
+        TreeMap<Long, StockLine> lines = new TreeMap<>();
+        for (CartItem ci : cart) {
+            Product product = ci.getProduct();
+            int qty = ci.getQuantity() != null ? ci.getQuantity() : 0;
+            if (qty <= 0) {
+                throw new IllegalStateException("Invalid quantity for product: " + product.getName());
+            }
+            Long variantId = ci.getVariantId();
+            boolean explicitVariant = variantId != null && variantId > 0;
+            if (!explicitVariant) {
+                variantId = variantRepo.findPrimaryVariantId(product.getId());
+                if (variantId == null) {
+                    throw new IllegalStateException("Insufficient stock for product: " + product.getName());
+                }
+            }
+            String label = explicitVariant && ci.getVariantColor() != null
+                ? "variant: " + ci.getVariantColor() + " of " + product.getName()
+                : "product: " + product.getName();
+            // The same variant can appear on several lines; take it in one statement
+            StockLine line = lines.computeIfAbsent(variantId, id -> new StockLine(product.getId(), label));
+            line.quantity += qty;
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,391 @@
+package com.eduprajna.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.entity.CartItem;
+import com.eduprajna.entity.StockReservation;
+import com.eduprajna.entity.User;
+import com.eduprajna.repository.CartItemRepository;
+import com.eduprajna.repository.ProductVariantRepository;
+import com.eduprajna.repository.StockReservationRepository;
+
+/**
+ * Holds stock for customers while they complete an online payment.
+ *
+ * Holds live in two places: the stock_reservations table (durable, survives restarts)
+ * and an in-memory index of held units per variant, which is what availability checks
+ * read. Taking a hold is a per-variant atomic compare-and-add on that index, so
+ * concurrent checkouts never lock product rows; the database only sees short inserts
+ * and updates on the reservation table.
+ *
+ * A user has at most one set of holds (their current checkout). Holds expire after
+ * app.reservations.ttl-minutes, or payment-ttl-minutes once the Razorpay order exists,
+ * and are released by a scheduled sweeper; placing the order confirms them, and the
+ * real stock decrement then happens in OrderService. Units an order needs beyond its
+ * own holds are claimed through the same index for the length of the order
+ * transaction, so a concurrent checkout cannot be handed them too. Public stock
+ * ({@link #available}) is on-hand stock minus everything in the index, and every
+ * change to it is published as a ProductChangedEvent for the catalog.
+ * The index is per application instance.
+ */
+@Service
+public class StockReservationService {
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    private final StockReservationRepository reservationRepo;
+    private final CartItemRepository cartRepo;
+    private final ProductVariantRepository variantRepo;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate tx;
+
+    @Value("${app.reservations.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    @Value("${app.reservations.payment-ttl-minutes:30}")
+    private long paymentTtlMinutes;
+
+    @Value("${app.reservations.sweep-batch-size:500}")
+    private int sweepBatchSize;
+
+    // variant id -> units currently held across all users (holds plus in-flight order claims)
+    private final ConcurrentHashMap<Long, Integer> heldByVariant = new ConcurrentHashMap<>();
+    // user id -> that user's current holds
+    private final ConcurrentHashMap<Long, Hold> holdsByUser = new ConcurrentHashMap<>();
+
+    public StockReservationService(StockReservationRepository reservationRepo, CartItemRepository cartRepo,
+                                   ProductVariantRepository variantRepo, ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager) {
+        this.reservationRepo = reservationRepo;
+        this.cartRepo = cartRepo;
+        this.variantRepo = variantRepo;
+        this.eventPublisher = eventPublisher;
+        this.tx = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Rebuild the in-memory index from unexpired HELD rows.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActiveHolds() {
+        try {
+            Map<Long, Map<Long, Integer>> byUser = new HashMap<>();
+            Map<Long, Set<Long>> products = new HashMap<>();
+            Map<Long, LocalDateTime> expiry = new HashMap<>();
+            for (StockReservation r : reservationRepo.findActiveHolds(LocalDateTime.now())) {
+                byUser.computeIfAbsent(r.getUserId(), k -> new HashMap<>())
+                      .merge(r.getVariantId(), r.getQuantity(), Integer::sum);
+                products.computeIfAbsent(r.getUserId(), k -> new LinkedHashSet<>()).add(r.getProductId());
+                expiry.merge(r.getUserId(), r.getExpiresAt(), (a, b) -> a.isAfter(b) ? a : b);
+            }
+            Set<Long> changed = new LinkedHashSet<>();
+            for (Map.Entry<Long, Map<Long, Integer>> e : byUser.entrySet()) {
+                Hold hold = new Hold(e.getValue(), products.get(e.getKey()), expiry.get(e.getKey()));
+                holdsByUser.put(e.getKey(), hold);
+                addHeld(hold.quantities);
+                changed.addAll(hold.productIds);
+            }
+            publishChanged(changed);
+            logger.info("Loaded stock holds for {} users", byUser.size());
+        } catch (RuntimeException e) {
+            logger.error("Failed to load active stock reservations", e);
+        }
+    }
+
+    /**
+     * Hold the user's cart for the configured TTL, replacing any holds they already had.
+     * @return when the holds expire, or null if the cart is empty
+     * @throws IllegalStateException if some variant does not have enough unheld stock
+     */
+    public LocalDateTime reserve(User user) {
+        List<CartItem> cart = cartRepo.findByUser(user);
+        if (cart.isEmpty()) {
+            release(user);
+            return null;
+        }
+        TreeMap<Long, StockLine> lines = StockLine.resolve(cart, variantRepo);
+
+        Map<Long, Integer> stock = new HashMap<>();
+        for (Object[] row : variantRepo.findStockByIdIn(lines.keySet())) {
+            stock.put((Long) row[0], row[1] != null ? ((Number) row[1]).intValue() : 0);
+        }
+
+        Map<Long, Integer> wanted = new LinkedHashMap<>();
+        Set<Long> productIds = new LinkedHashSet<>();
+        for (Map.Entry<Long, StockLine> e : lines.entrySet()) {
+            wanted.put(e.getKey(), e.getValue().quantity);
+            productIds.add(e.getValue().productId);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Hold hold = new Hold(wanted, productIds, now.plusMinutes(ttlMinutes));
+
+        // Swap the user's holds atomically: drop the old ones, then take each variant
+        // in id order; on any shortfall undo and keep the old holds untouched.
+        Hold[] replaced = {null};
+        holdsByUser.compute(user.getId(), (userId, previous) -> {
+            replaced[0] = previous;
+            if (previous != null) removeHeld(previous.quantities);
+            List<Long> taken = new ArrayList<>();
+            for (Map.Entry<Long, StockLine> e : lines.entrySet()) {
+                Long variantId = e.getKey();
+                int qty = e.getValue().quantity;
+                int available = stock.getOrDefault(variantId, 0);
+                boolean ok = tryHold(variantId, qty, available);
+                if (!ok) {
+                    for (Long v : taken) removeHeld(v, wanted.get(v));
+                    if (previous != null) addHeld(previous.quantities);
+                    throw new IllegalStateException("Insufficient stock for " + e.getValue().label);
+                }
+                taken.add(variantId);
+            }
+            return hold;
+        });
+
+        try {
+            // The stock read above may predate an order that has committed since. Orders
+            // keep their claim in the index until they commit, so checking the index
+            // against stock read now (after our units are in it) catches that order either way.
+            for (Object[] row : variantRepo.findStockByIdIn(lines.keySet())) {
+                Long variantId = (Long) row[0];
+                int current = row[1] != null ? ((Number) row[1]).intValue() : 0;
+                if (heldByVariant.getOrDefault(variantId, 0) > current) {
+                    throw new IllegalStateException("Insufficient stock for " + lines.get(variantId).label);
+                }
+            }
+            tx.executeWithoutResult(status -> {
+                reservationRepo.updateHeldStatusForUser(user.getId(), StockReservation.RELEASED);
+                List<StockReservation> rows = new ArrayList<>(lines.size());
+                for (Map.Entry<Long, StockLine> e : lines.entrySet()) {
+                    rows.add(new StockReservation(user.getId(), e.getValue().productId, e.getKey(),
+                            e.getValue().quantity, now, hold.expiresAt));
+                }
+                reservationRepo.saveAll(rows);
+            });
+        } catch (RuntimeException e) {
+            // Put the previous holds back (their rows were never released)
+            Hold previous = replaced[0];
+            holdsByUser.compute(user.getId(), (userId, current) -> {
+                if (current != hold) return current;
+                removeHeld(hold.quantities);
+                if (previous != null) addHeld(previous.quantities);
+                return previous;
+            });
+            throw e;
+        }
+        Set<Long> changed = new LinkedHashSet<>(hold.productIds);
+        if (replaced[0] != null) changed.addAll(replaced[0].productIds);
+        publishChanged(changed);
+        logger.debug("Held {} variants for user {} until {}", lines.size(), user.getId(), hold.expiresAt);
+        return hold.expiresAt;
+    }
+
+    /**
+     * Tag the user's current holds with the Razorpay order they were taken for, and keep
+     * them for payment-ttl-minutes from now so they do not lapse while the customer is
+     * still in the Razorpay checkout.
+     * @return when the holds now expire, or null if the user has none
+     */
+    public LocalDateTime attachRazorpayOrder(User user, String razorpayOrderId) {
+        LocalDateTime until = LocalDateTime.now().plusMinutes(paymentTtlMinutes);
+        Hold hold = holdsByUser.computeIfPresent(user.getId(),
+                (userId, current) -> current.expiresAt.isBefore(until) ? current.until(until) : current);
+        if (hold == null) return null;
+        reservationRepo.attachRazorpayOrder(user.getId(), razorpayOrderId, hold.expiresAt);
+        return hold.expiresAt;
+    }
+
+    /**
+     * Drop the user's holds (e.g. the payment order could not be created).
+     */
+    public void release(User user) {
+        Hold hold = holdsByUser.remove(user.getId());
+        if (hold != null) removeHeld(hold.quantities);
+        reservationRepo.updateHeldStatusForUser(user.getId(), StockReservation.RELEASED);
+        if (hold != null) publishChanged(hold.productIds);
+    }
+
+    /**
+     * Mark the user's holds CONFIRMED as part of the order transaction. The in-memory
+     * holds stay in place until that transaction commits, so the units are never
+     * counted as free before the real decrement is visible.
+     * @return the products the holds were on, whose public stock changes with the commit
+     */
+    public Set<Long> confirm(Long userId) {
+        if (userId == null) return Set.of();
+        reservationRepo.updateHeldStatusForUser(userId, StockReservation.CONFIRMED);
+        eventPublisher.publishEvent(new ReservationConfirmedEvent(userId));
+        Hold hold = holdsByUser.get(userId);
+        return hold != null ? hold.productIds : Set.of();
+    }
+
+    // Ahead of the catalog's own AFTER_COMMIT refresh, so it sees the holds gone
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onConfirmed(ReservationConfirmedEvent event) {
+        Hold hold = holdsByUser.remove(event.getUserId());
+        if (hold != null) removeHeld(hold.quantities);
+    }
+
+    /**
+     * Claim {@code qty} units of a variant for an order being placed in the current
+     * transaction, given its current (locked) {@code stock}. Units the user holds count
+     * towards it; the rest are taken in the index like a hold, so no concurrent reserve
+     * or order can be given them, and are let go when the transaction completes (by
+     * then the decrement is committed or rolled back).
+     * @return false if holds of other users leave less than {@code qty}; nothing is claimed then
+     */
+    public boolean claim(Long userId, Long variantId, int qty, int stock) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Stock can only be claimed inside a transaction");
+        }
+        Hold own = userId != null ? holdsByUser.get(userId) : null;
+        int covered = own != null ? Math.min(own.quantities.getOrDefault(variantId, 0), qty) : 0;
+        int needed = qty - covered;
+        if (needed == 0) return true;
+        if (!tryHold(variantId, needed, stock)) return false;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // Ahead of the catalog's AFTER_COMMIT refresh, so it sees the claim gone
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCommit() {
+                removeHeld(variantId, needed);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) removeHeld(variantId, needed);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Stock that can still be sold: on-hand stock minus active holds and claims.
+     */
+    public int available(Long variantId, int stock) {
+        return Math.max(stock - heldByVariant.getOrDefault(variantId, 0), 0);
+    }
+
+    /**
+     * True if any units are held or claimed right now.
+     */
+    public boolean hasHolds() {
+        return !heldByVariant.isEmpty();
+    }
+
+    /**
+     * Release expired holds: first from the in-memory index, then in the database
+     * in small id batches so no statement touches many rows at once.
+     */
+    @Scheduled(fixedDelayString = "${app.reservations.sweep-ms:60000}")
+    public void sweepExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int users = 0;
+        Set<Long> changed = new LinkedHashSet<>();
+        for (Map.Entry<Long, Hold> e : holdsByUser.entrySet()) {
+            Hold hold = e.getValue();
+            if (!hold.expiresAt.isAfter(now) && holdsByUser.remove(e.getKey(), hold)) {
+                removeHeld(hold.quantities);
+                changed.addAll(hold.productIds);
+                users++;
+            }
+        }
+        publishChanged(changed);
+
+        int rows = 0;
+        try {
+            while (true) {
+                List<Long> ids = reservationRepo.findExpiredHoldIds(now, PageRequest.of(0, sweepBatchSize));
+                if (ids.isEmpty()) break;
+                rows += reservationRepo.releaseByIds(ids);
+                if (ids.size() < sweepBatchSize) break;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Failed to release expired stock reservations", e);
+        }
+        if (users > 0 || rows > 0) {
+            logger.info("Released expired stock holds: {} users in memory, {} rows", users, rows);
+        }
+    }
+
+    private boolean tryHold(Long variantId, int qty, int stock) {
+        boolean[] ok = {false};
+        heldByVariant.compute(variantId, (id, held) -> {
+            int current = held != null ? held : 0;
+            if (stock - current < qty) return held;
+            ok[0] = true;
+            return current + qty;
+        });
+        return ok[0];
+    }
+
+    private void publishChanged(Collection<Long> productIds) {
+        for (Long productId : productIds) {
+            eventPublisher.publishEvent(new ProductChangedEvent(productId));
+        }
+    }
+
+    private void addHeld(Map<Long, Integer> quantities) {
+        for (Map.Entry<Long, Integer> e : quantities.entrySet()) {
+            heldByVariant.merge(e.getKey(), e.getValue(), Integer::sum);
+        }
+    }
+
+    private void removeHeld(Map<Long, Integer> quantities) {
+        for (Map.Entry<Long, Integer> e : quantities.entrySet()) {
+            removeHeld(e.getKey(), e.getValue());
+        }
+    }
+
+    private void removeHeld(Long variantId, int qty) {
+        heldByVariant.computeIfPresent(variantId, (id, held) -> held - qty > 0 ? held - qty : null);
+    }
+
+    private static final class Hold {
+        final Map<Long, Integer> quantities;
+        final Set<Long> productIds;
+        final LocalDateTime expiresAt;
+
+        Hold(Map<Long, Integer> quantities, Set<Long> productIds, LocalDateTime expiresAt) {
+            this.quantities = Collections.unmodifiableMap(quantities);
+            this.productIds = Collections.unmodifiableSet(productIds);
+            this.expiresAt = expiresAt;
+        }
+
+        Hold until(LocalDateTime expiresAt) {
+            return new Hold(quantities, productIds, expiresAt);
+        }
+    }
+}
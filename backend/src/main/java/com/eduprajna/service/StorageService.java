@@ -1,92 +1,550 @@
 package com.eduprajna.service;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StringUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.annotation.PostConstruct;
+
+import com.eduprajna.dto.MediaItemDTO;
+import com.eduprajna.dto.MediaPageDTO;
+import com.eduprajna.entity.MediaBlob;
+import com.eduprajna.repository.MediaBlobRepository;
+
+/**
+ * Uploaded files, kept in a {@link BlobStore} (the local upload directory, or an
+ * S3-compatible bucket shared by every app node; see app.storage.backend).
+ *
+ * New uploads are content-addressed: the bytes are hashed (SHA-256) while being written
+ * to a temp file in {@code <upload dir>/.incoming}, which is then put in the store as
+ * {@code <ab>/<cd>/<hash>.<ext>} (the first two byte pairs of the hash as directories).
+ * The same image uploaded twice is stored once, with a reference count in media_blobs,
+ * and a stored file never changes, so it can be cached forever. Files from before this
+ * scheme keep their flat {@code <millis>_<name>} names and are still served and deleted
+ * as before.
+ *
+ * Storing, deleting and reclaiming a content-addressed file decide under a lock on its
+ * media_blobs row (SELECT ... FOR UPDATE), which serializes them across every node
+ * sharing the store. Rows are not deleted: a row whose count drops to 0 stays as the
+ * lock for a later upload of the same bytes.
+ */
 @Service
 public class StorageService {
-    // Read upload directory from Spring property; fallback to ./uploads
+    private static final Logger logger = LoggerFactory.getLogger(StorageService.class);
+
+    // <ab>/<cd>/<64 hex>.<ext>, optionally a derivative (<hash>.w480.jpg)
+    private static final Pattern CONTENT_ADDRESSED =
+            Pattern.compile("([0-9a-f]{2})/([0-9a-f]{2})/(\\1\\2[0-9a-f]{60})(\\.w\\d+)?\\.[a-z0-9]+");
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("[a-z0-9]{1,8}");
+    private static final String INCOMING_DIR = ".incoming";
+    private static final int LIST_BATCH = 1000;
+
+    // Read upload directory from Spring property; fallback to ./uploads.
+    // With a remote store it only holds uploads being staged.
     @Value("${spring.servlet.multipart.location:./uploads}")
     private String uploadDir;
 
+    // Remote stores: lifetime of the URLs image requests are redirected to (0 = stream through the app)
+    @Value("${app.storage.presign-ttl-seconds:300}")
+    private long presignTtlSeconds;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ImageDerivatives derivatives;
+
+    @Autowired
+    private MediaBlobRepository blobRepository;
+
+    @Autowired
+    private MediaCache mediaCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Holds a media_blobs row lock for a store/delete/reclaim decision and the file operation it leads to
+    private TransactionTemplate blobTx;
+
+    // Content type by file extension; probeContentType only looks at the name on most platforms
+    private static final int MAX_CACHED_TYPES = 256;
+    private final Map<String, MediaType> mediaTypes = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        blobTx = new TransactionTemplate(transactionManager);
+        // Its own transaction even when called from a product save, so the lock is held only as long as needed
+        blobTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
     public String store(MultipartFile file) throws IOException {
-        String filename = System.currentTimeMillis() + "_" + StringUtils.cleanPath(file.getOriginalFilename());
-        Path dirPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-        Files.createDirectories(dirPath);
-        Path dest = dirPath.resolve(filename);
-        file.transferTo(dest.toFile());
-        // Return /uploads/ path to match database format and UploadController endpoint
-        return "/uploads/" + filename;
+        try (InputStream in = file.getInputStream()) {
+            return store(in, file.getOriginalFilename());
+        }
+    }
+
+    private String store(InputStream content, String originalName) throws IOException {
+        Path incoming = staging();
+        Files.createDirectories(incoming);
+        Path tmp = Files.createTempFile(incoming, "upload-", ".tmp");
+        try {
+            MessageDigest sha256 = sha256();
+            long size;
+            try (InputStream in = new DigestInputStream(content, sha256)) {
+                size = Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            String newKey = hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + "." + extensionOf(originalName);
+
+            String key = withBlobLock(hash, newKey, size, blob -> {
+                if (blob.getRefCount() > 0) {
+                    logger.debug("Upload {} is a duplicate of {}", originalName, blob.getPath());
+                }
+                blob.setRefCount(blob.getRefCount() + 1);
+                String stored = blob.getPath();
+                if (blobStore.stat(stored) != null) {
+                    // Restart the media GC grace period for a file that may have been unreferenced
+                    blobStore.touch(stored);
+                } else {
+                    put(stored, tmp);
+                }
+                return stored;
+            });
+            // Return /uploads/ path to match database format and UploadController endpoint
+            return "/uploads/" + key;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    // Puts a staged upload in the store and queues its derivatives (thumbnails and responsive
+    // sizes, made in the background from a local copy)
+    private void put(String key, Path staged) throws IOException {
+        mediaCache.invalidate(key);
+        Path local = blobStore.localPath(key);
+        if (local != null) {
+            blobStore.put(key, staged, probeMediaType(key));
+            derivatives.generateAsync(local);
+            return;
+        }
+        Path copy = Files.createTempFile(staging(), "derive-", ".tmp");
+        Files.copy(staged, copy, StandardCopyOption.REPLACE_EXISTING);
+        try {
+            blobStore.put(key, staged, probeMediaType(key));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(copy);
+            throw e;
+        }
+        derivatives.generateAsync(copy, key, blobStore);
+    }
+
+    /**
+     * Copy a flat legacy upload ({@code <millis>_<name>} at the top of the store) into the
+     * content-addressed layout with one reference. The legacy file is left in place; remove
+     * it with {@link #delete} once nothing points at it any more.
+     * @return the new /uploads/ab/cd/&lt;hash&gt;.&lt;ext&gt; url
+     */
+    public String importLegacy(String filename) throws IOException {
+        if (isContentAddressed(filename) || filename.contains("/") || filename.startsWith(".")) {
+            throw new IOException("Not a legacy upload: " + filename);
+        }
+        try (InputStream in = blobStore.get(filename)) {
+            return store(in, filename);
+        }
+    }
+
+    /**
+     * Count {@code count} more references to an already stored content-addressed file
+     */
+    public void addReferences(String relativePath, int count) {
+        Matcher m = CONTENT_ADDRESSED.matcher(relativePath);
+        if (count <= 0 || !m.matches()) return;
+        blobRepository.addReferences(m.group(3), count);
+    }
+
+    /**
+     * Up to {@code limit} flat legacy uploads still at the top of the store
+     */
+    public List<String> legacyFiles(int limit) throws IOException {
+        List<String> names = new ArrayList<>();
+        String after = null;
+        while (names.size() < limit) {
+            List<BlobInfo> batch = blobStore.list(after, LIST_BATCH);
+            for (BlobInfo blob : batch) {
+                String key = blob.getKey();
+                if (key.indexOf('/') < 0 && !ImageDerivatives.isDerivative(key)) {
+                    names.add(key);
+                    if (names.size() >= limit) break;
+                }
+            }
+            if (batch.size() < LIST_BATCH) break;
+            after = batch.get(batch.size() - 1).getKey();
+        }
+        return names;
+    }
+
+    /**
+     * Run {@code action} in a transaction holding the lock on the blob's media_blobs row,
+     * first inserting the row (count 0, at {@code path}) if there is none; the insert
+     * holds the lock just the same. The row's count as left by the action is saved on
+     * commit. When two nodes insert the same new row at once, the loser retries and
+     * waits on the winner's lock.
+     */
+    private <T> T withBlobLock(String hash, String path, long size, BlobAction<T> action) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return blobTx.execute(status -> {
+                    MediaBlob blob = blobRepository.findForUpdate(hash).orElse(null);
+                    if (blob == null) {
+                        blob = new MediaBlob(hash, path, size);
+                        blob.setRefCount(0);
+                        blob = blobRepository.saveAndFlush(blob);
+                    }
+                    try {
+                        return action.apply(blob);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= 2) throw e;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface BlobAction<T> {
+        T apply(MediaBlob lockedBlob) throws IOException;
     }
 
     public Resource loadAsResource(String filename) throws IOException {
-        Path filePath = Paths.get(uploadDir).resolve(filename).normalize();
-        if (!Files.exists(filePath)) {
+        StoredFile file = stat(filename);
+        if (file == null) {
             throw new IOException("File not found: " + filename);
         }
-        return new InputStreamResource(new FileInputStream(filePath.toFile())) {
-            @Override
-            public String getFilename() {
-                return filePath.getFileName().toString();
+        return open(file);
+    }
+
+    /**
+     * The bytes of a stored file: the file itself for the local store, otherwise a resource
+     * that streams from the remote store each time it is opened.
+     */
+    public Resource open(StoredFile file) {
+        if (file.getPath() != null) return new FileSystemResource(file.getPath());
+        return new BlobResource(blobStore, file.getKey(), file.getSize());
+    }
+
+    /**
+     * A short-lived URL the client can fetch a remotely stored file from directly, or null
+     * if the file is local or redirects are disabled (app.storage.presign-ttl-seconds=0)
+     */
+    public URI presignedUrl(StoredFile file) {
+        if (file.getPath() != null || presignTtlSeconds <= 0) return null;
+        return blobStore.presignGet(file.getKey(), Duration.ofSeconds(presignTtlSeconds));
+    }
+
+    public long getPresignTtlSeconds() {
+        return presignTtlSeconds;
+    }
+
+    /**
+     * Size, modification time, ETag and content type of an uploaded file; null if there
+     * is no such file.
+     */
+    public StoredFile stat(String filename) throws IOException {
+        return statKey(filename);
+    }
+
+    /**
+     * Like {@link #stat(String)}, but for the derivative closest to {@code width} pixels
+     * wide. Falls back to the original (null width, or no derivative available yet).
+     * A file in the {@link MediaCache} is returned from there, with its content.
+     */
+    public StoredFile stat(String filename, Integer width) throws IOException {
+        String wanted = width != null && width > 0 ? derivatives.targetKey(filename, width) : null;
+        StoredFile cached = mediaCache.get(wanted != null ? wanted : filename);
+        if (cached != null) return cached;
+        if (width != null && width > 0) {
+            String derivative = derivatives.select(filename, width, blobStore);
+            if (derivative != null) {
+                StoredFile file = statKey(derivative);
+                if (file != null) return file;
             }
+        }
+        return statKey(filename);
+    }
 
-            @Override
-            public long contentLength() throws IOException {
-                return Files.size(filePath);
+    private StoredFile statKey(String key) throws IOException {
+        BlobInfo blob = blobStore.stat(key);
+        if (blob == null) return null;
+        long size = blob.getSize();
+        long modified = blob.getLastModified();
+        Matcher m = CONTENT_ADDRESSED.matcher(key);
+        boolean immutable = m.matches();
+        // Content-addressed files never change, so the hash is the ETag
+        String etag = immutable
+                ? "\"" + m.group(3) + (m.group(4) != null ? m.group(4) : "") + "\""
+                : "\"" + Long.toHexString(size) + "-" + Long.toHexString(modified) + "\"";
+        return new StoredFile(blobStore.localPath(key), key, size, modified, etag, probeMediaType(key), immutable);
+    }
+
+    /**
+     * The whole content of a file about to be sent in full, from the {@link MediaCache}.
+     * A file small and hot enough to be cached but not cached yet is read in now. Null if
+     * the file should be served from the store as usual.
+     */
+    public ByteBuffer cachedContent(StoredFile file) throws IOException {
+        ByteBuffer content = file.getContent();
+        if (content != null) return content;
+        if (!mediaCache.admit(file.getKey(), file.getSize())) return null;
+        long generation = mediaCache.generation();
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) file.getSize());
+        try (ReadableByteChannel in = file.getPath() != null
+                ? FileChannel.open(file.getPath())
+                : Channels.newChannel(blobStore.get(file.getKey()))) {
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the file ends
             }
-        };
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        // Changed since the stat; serve it the normal way
+        if (buffer.hasRemaining()) return null;
+        buffer.flip();
+        return mediaCache.put(file, buffer, generation).getContent();
     }
 
     public MediaType probeMediaType(String filename) {
+        String ext = extension(filename);
+        MediaType cached = mediaTypes.get(ext);
+        if (cached != null) return cached;
+        MediaType type = MediaType.APPLICATION_OCTET_STREAM;
         try {
-            Path filePath = Paths.get(uploadDir).resolve(filename).normalize();
-            String type = Files.probeContentType(filePath);
-            if (type != null) return MediaType.parseMediaType(type);
+            String probed = Files.probeContentType(Paths.get(uploadDir).resolve(filename).normalize());
+            if (probed != null) type = MediaType.parseMediaType(probed);
         } catch (Exception ignored) {}
-        return MediaType.APPLICATION_OCTET_STREAM;
-    }
-
-    public List<String> listAll() {
-        List<String> files = new ArrayList<>();
-        File dir = Paths.get(uploadDir).toFile();
-        if (dir.exists() && dir.isDirectory()) {
-            File[] list = dir.listFiles();
-            if (list != null) {
-                for (File f : list) {
-                    if (f.isFile()) {
-                        files.add(f.getName());
-                    }
-                }
+        if (mediaTypes.size() < MAX_CACHED_TYPES) mediaTypes.put(ext, type);
+        return type;
+    }
+
+    /**
+     * True for paths of the form {@code ab/cd/<sha256>.<ext>} (or one of their derivatives)
+     */
+    public boolean isContentAddressed(String relativePath) {
+        return relativePath != null && CONTENT_ADDRESSED.matcher(relativePath).matches();
+    }
+
+    private Path staging() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize().resolve(INCOMING_DIR);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String extensionOf(String originalName) {
+        String ext = originalName == null ? "" : extension(originalName);
+        return SAFE_EXTENSION.matcher(ext).matches() ? ext : "bin";
+    }
+
+    private static String extension(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot < 0 ? "" : filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * One page of stored files (derivatives excluded) in path order, starting after
+     * {@code after} (the path of the last item of the previous page, or null). Each page
+     * is a cursor listing of the store, so it stays cheap however many files there are.
+     */
+    public MediaPageDTO list(String after, int limit) throws IOException {
+        MediaPageDTO page = new MediaPageDTO();
+        page.limit = limit;
+        page.items = new ArrayList<>(limit + 1);
+        String cursor = after;
+        while (page.items.size() <= limit) {
+            List<BlobInfo> batch = blobStore.list(cursor, Math.min(limit + 1, LIST_BATCH));
+            for (BlobInfo blob : batch) {
+                if (ImageDerivatives.isDerivative(blob.getKey())) continue;
+                MediaItemDTO item = new MediaItemDTO();
+                item.path = blob.getKey();
+                item.url = "/uploads/" + blob.getKey();
+                item.size = blob.getSize();
+                item.lastModified = blob.getLastModified();
+                item.contentAddressed = isContentAddressed(blob.getKey());
+                page.items.add(item);
+                if (page.items.size() > limit) break;
             }
+            if (batch.size() < Math.min(limit + 1, LIST_BATCH)) break;
+            cursor = batch.get(batch.size() - 1).getKey();
         }
-        return files;
+        page.hasMore = page.items.size() > limit;
+        if (page.hasMore) {
+            page.items.remove(limit);
+            page.nextCursor = page.items.get(limit - 1).path;
+        }
+        return page;
     }
 
-    // Delete a stored file by its filename, returns true if deleted or not present
+    /**
+     * Visit every file the media GC may collect: everything in the store (flat uploads,
+     * sharded files and derivatives) and leftover temp files in the local .incoming
+     * staging directory, as keys / paths relative to the upload directory.
+     */
+    public void walk(Consumer<String> visitor) throws IOException {
+        String after = null;
+        while (true) {
+            List<BlobInfo> batch = blobStore.list(after, LIST_BATCH);
+            for (BlobInfo blob : batch) visitor.accept(blob.getKey());
+            if (batch.size() < LIST_BATCH) break;
+            after = batch.get(batch.size() - 1).getKey();
+        }
+        Path incoming = staging();
+        if (!Files.isDirectory(incoming)) return;
+        try (DirectoryStream<Path> staged = Files.newDirectoryStream(incoming, Files::isRegularFile)) {
+            for (Path p : staged) visitor.accept(INCOMING_DIR + "/" + p.getFileName());
+        }
+    }
+
+    /**
+     * Delete one file the media GC found unreferenced, if it was last modified before
+     * {@code cutoffMillis}. For a content-addressed original the check and delete hold
+     * its media_blobs row lock, as {@link #store} does when it touches a file it reuses,
+     * so a file just handed out again (on any node) is never removed; the row's count
+     * is reset to 0.
+     * @return the bytes freed (or that would be, for a dry run); 0 if the file was kept
+     */
+    public long reclaim(String relativePath, long cutoffMillis, boolean dryRun) throws IOException {
+        if (relativePath.startsWith(INCOMING_DIR + "/")) {
+            return reclaimStaged(staging().resolve(relativePath.substring(INCOMING_DIR.length() + 1)), cutoffMillis, dryRun);
+        }
+        Matcher m = CONTENT_ADDRESSED.matcher(relativePath);
+        if (dryRun || !m.matches() || m.group(4) != null) {
+            return reclaimUnlocked(relativePath, cutoffMillis, dryRun);
+        }
+        return withBlobLock(m.group(3), relativePath, 0, blob -> {
+            long freed = reclaimUnlocked(relativePath, cutoffMillis, false);
+            if (freed > 0) blob.setRefCount(0);
+            return freed;
+        });
+    }
+
+    private long reclaimUnlocked(String relativePath, long cutoffMillis, boolean dryRun) throws IOException {
+        BlobInfo blob = blobStore.stat(relativePath);
+        if (blob == null || blob.getLastModified() >= cutoffMillis) return 0;
+        if (!dryRun) {
+            blobStore.delete(relativePath);
+            mediaCache.invalidate(relativePath);
+        }
+        return blob.getSize();
+    }
+
+    private long reclaimStaged(Path file, long cutoffMillis, boolean dryRun) throws IOException {
+        if (!file.normalize().getParent().equals(staging())) return 0;
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        if (!attrs.isRegularFile() || attrs.lastModifiedTime().toMillis() >= cutoffMillis) return 0;
+        if (!dryRun) Files.deleteIfExists(file);
+        return attrs.size();
+    }
+
+    // Delete a stored file by its path in the store, returns true if deleted or not present.
+    // Content-addressed files are only removed with their last reference.
     public boolean delete(String filename) {
         if (filename == null || filename.isEmpty()) return false;
-        File f = Paths.get(uploadDir).resolve(filename).normalize().toFile();
-        if (!f.exists()) return true; // already gone
-        return f.delete();
+        Matcher m = CONTENT_ADDRESSED.matcher(filename);
+        if (m.matches() && m.group(4) == null) {
+            try {
+                return withBlobLock(m.group(3), filename, 0, blob -> {
+                    if (blob.getRefCount() > 1) {
+                        blob.setRefCount(blob.getRefCount() - 1);
+                        return true; // still used by another upload
+                    }
+                    blob.setRefCount(0);
+                    return deleteWithDerivatives(filename);
+                });
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not delete {}: {}", filename, e.getMessage());
+                return false;
+            }
+        }
+        return deleteWithDerivatives(filename);
     }
 
-    // Extracts filename from an API url like "/api/admin/products/images/abc.jpg"
+    private boolean deleteWithDerivatives(String key) {
+        try {
+            for (String derivative : derivatives.derivativeKeysOf(key)) {
+                blobStore.delete(derivative);
+                mediaCache.invalidate(derivative);
+            }
+            boolean deleted = blobStore.delete(key);
+            mediaCache.invalidate(key);
+            return deleted;
+        } catch (IOException e) {
+            logger.warn("Could not delete {}: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    // Extracts the stored path from an url like "/uploads/ab/cd/<hash>.jpg" or
+    // "/api/admin/products/images/abc.jpg"
     public String extractFilenameFromUrl(String url) {
         if (url == null) return null;
+        int q = url.indexOf('?');
+        if (q >= 0) url = url.substring(0, q);
+        for (String prefix : new String[] {"/uploads/", "/api/admin/products/images/"}) {
+            int at = url.indexOf(prefix);
+            if (at >= 0 && at + prefix.length() < url.length()) return url.substring(at + prefix.length());
+        }
         int idx = url.lastIndexOf('/') + 1;
         if (idx <= 0 || idx >= url.length()) return null;
         return url.substring(idx);
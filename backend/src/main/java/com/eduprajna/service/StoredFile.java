@@ -0,0 +1,64 @@
+package com.eduprajna.service;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import org.springframework.http.MediaType;
+
+/**
+ * What is needed to serve an uploaded file: its key in the BlobStore (and the local
+ * file, when the store has one; null for remote stores), its size and modification
+ * time, a strong ETag and its content type. Immutable files are content-addressed: the
+ * name changes whenever the bytes do, so they can be cached without revalidation.
+ * Files served from the {@link MediaCache} also carry their content.
+ */
+public class StoredFile {
+    private final Path path;
+    private final String key;
+    private final long size;
+    private final long lastModified;
+    private final String etag;
+    private final MediaType mediaType;
+    private final boolean immutable;
+    private final ByteBuffer content;
+
+    public StoredFile(Path path, String key, long size, long lastModified, String etag, MediaType mediaType, boolean immutable) {
+        this.path = path;
+        this.key = key;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.etag = etag;
+        this.mediaType = mediaType;
+        this.immutable = immutable;
+        this.content = null;
+    }
+
+    private StoredFile(StoredFile file, ByteBuffer content) {
+        this.path = file.path;
+        this.key = file.key;
+        this.size = file.size;
+        this.lastModified = file.lastModified;
+        this.etag = file.etag;
+        this.mediaType = file.mediaType;
+        this.immutable = file.immutable;
+        this.content = content;
+    }
+
+    StoredFile withContent(ByteBuffer content) {
+        return new StoredFile(this, content);
+    }
+
+    public Path getPath() { return path; }
+    public String getKey() { return key; }
+    public long getSize() { return size; }
+    public long getLastModified() { return lastModified; }
+    public String getEtag() { return etag; }
+    public MediaType getMediaType() { return mediaType; }
+    public boolean isImmutable() { return immutable; }
+
+    /**
+     * The whole file in memory, as a buffer of its own positioned at the start; null unless
+     * the file came from the cache
+     */
+    public ByteBuffer getContent() { return content == null ? null : content.duplicate(); }
+}
@@ -0,0 +1,161 @@
+package com.eduprajna.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.eduprajna.dto.SuggestionDTO;
+
+/**
+ * Immutable radix (path-compressed prefix) trie for typeahead.
+ *
+ * Every node stores the best {@code maxResults} suggestions of its subtree, computed
+ * once at build time, so a lookup is a walk down at most |prefix| characters followed
+ * by returning a precomputed array: no sorting or allocation proportional to the catalog.
+ */
+final class SuggestTrie {
+
+    static final SuggestTrie EMPTY = new SuggestTrie(new Node(new char[0], new String[0], new Node[0], new SuggestionDTO[0]));
+
+    static final Comparator<SuggestionDTO> BY_WEIGHT = (a, b) -> {
+        int c = Long.compare(b.weight, a.weight);
+        return c != 0 ? c : a.text.compareToIgnoreCase(b.text);
+    };
+
+    private final Node root;
+
+    private SuggestTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Build from normalized keys, each mapping to the suggestions it should surface.
+     * Several keys may point at the same suggestion (e.g. each word of a product name);
+     * a suggestion is listed at most once per node.
+     */
+    static SuggestTrie build(Map<String, List<SuggestionDTO>> keys, int maxResults) {
+        if (keys.isEmpty()) return EMPTY;
+        String[] sorted = keys.keySet().toArray(new String[0]);
+        Arrays.sort(sorted);
+        return new SuggestTrie(build(sorted, keys, 0, sorted.length, 0, maxResults));
+    }
+
+    /**
+     * Best completions for an already normalized prefix, at most {@code limit}.
+     */
+    List<SuggestionDTO> complete(String prefix, int limit) {
+        Node node = root;
+        int pos = 0;
+        while (pos < prefix.length()) {
+            int idx = Arrays.binarySearch(node.firstChars, prefix.charAt(pos));
+            if (idx < 0) return List.of();
+            String label = node.labels[idx];
+            int remaining = prefix.length() - pos;
+            if (remaining < label.length()) {
+                // Prefix ends inside this edge
+                if (!label.regionMatches(0, prefix, pos, remaining)) return List.of();
+            } else if (!prefix.regionMatches(pos, label, 0, label.length())) {
+                return List.of();
+            }
+            node = node.children[idx];
+            pos += label.length();
+        }
+        SuggestionDTO[] top = node.top;
+        return Collections.unmodifiableList(Arrays.asList(top).subList(0, Math.min(limit, top.length)));
+    }
+
+    /**
+     * Lower-case, strip accents and collapse everything that is not a letter or digit
+     * into single spaces. Used for both keys and queries.
+     */
+    static String normalize(String text) {
+        if (text == null) return "";
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase();
+        StringBuilder sb = new StringBuilder(folded.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) sb.append(' ');
+                sb.append(c);
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static Node build(String[] keys, Map<String, List<SuggestionDTO>> values,
+                              int lo, int hi, int depth, int maxResults) {
+        List<SuggestionDTO> candidates = new ArrayList<>();
+        int i = lo;
+        // Sorted order puts the key that ends exactly here first
+        if (keys[i].length() == depth) {
+            candidates.addAll(values.get(keys[i]));
+            i++;
+        }
+
+        List<Character> firsts = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        List<Node> children = new ArrayList<>();
+        while (i < hi) {
+            char c = keys[i].charAt(depth);
+            int end = i + 1;
+            while (end < hi && keys[end].charAt(depth) == c) end++;
+            // First and last keys of a sorted group bound the common prefix of the whole group
+            int common = commonPrefix(keys[i], keys[end - 1], depth);
+            Node child = build(keys, values, i, end, common, maxResults);
+            firsts.add(c);
+            labels.add(keys[i].substring(depth, common));
+            children.add(child);
+            candidates.addAll(Arrays.asList(child.top));
+            i = end;
+        }
+
+        char[] firstChars = new char[firsts.size()];
+        for (int k = 0; k < firstChars.length; k++) firstChars[k] = firsts.get(k);
+        return new Node(firstChars, labels.toArray(new String[0]), children.toArray(new Node[0]),
+                topOf(candidates, maxResults));
+    }
+
+    private static int commonPrefix(String a, String b, int from) {
+        int max = Math.min(a.length(), b.length());
+        int i = from;
+        while (i < max && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+
+    private static SuggestionDTO[] topOf(List<SuggestionDTO> candidates, int maxResults) {
+        candidates.sort(BY_WEIGHT);
+        Set<SuggestionDTO> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<SuggestionDTO> top = new ArrayList<>(Math.min(candidates.size(), maxResults));
+        for (SuggestionDTO s : candidates) {
+            if (top.size() >= maxResults) break;
+            if (seen.add(s)) top.add(s);
+        }
+        return top.toArray(new SuggestionDTO[0]);
+    }
+
+    private static final class Node {
+        final char[] firstChars;
+        final String[] labels;
+        final Node[] children;
+        final SuggestionDTO[] top;
+
+        Node(char[] firstChars, String[] labels, Node[] children, SuggestionDTO[] top) {
+            this.firstChars = firstChars;
+            this.labels = labels;
+            this.children = children;
+            this.top = top;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.eduprajna.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.eduprajna.entity.User;
+
+/**
+ * Bounded, TTL-based cache of users keyed by email and by id.
+ *
+ * Emails are keyed exactly as given, with no case folding or trimming, so a hit
+ * answers the same as UserRepository.findByEmail would: a key that only matches
+ * in the cache would resolve differently once the entry expires, or on another node.
+ *
+ * Entries hold a private snapshot of the user; every hit returns a fresh detached
+ * copy, so callers can modify what they get back (and pass it to save) without
+ * affecting other requests. Lookups that find no user are not cached.
+ */
+final class UserCache {
+
+    private final long ttlNanos;
+    private final int maxSize;
+    private final Map<String, Entry> byEmail = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    UserCache(long ttlMillis, int maxSize) {
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.maxSize = maxSize;
+    }
+
+    User getByEmail(String email) {
+        return email == null ? null : read(byEmail.get(email));
+    }
+
+    User getById(Long id) {
+        return read(byId.get(id));
+    }
+
+    void put(User user) {
+        if (ttlNanos <= 0 || maxSize <= 0 || user.getId() == null || user.getEmail() == null) return;
+        if (byId.size() >= maxSize) makeRoom();
+        Entry entry = new Entry(copy(user), System.nanoTime() + ttlNanos);
+        Entry previous = byId.put(user.getId(), entry);
+        // The email may have changed since the previous entry was cached
+        if (previous != null) byEmail.remove(previous.user.getEmail(), previous);
+        byEmail.put(user.getEmail(), entry);
+    }
+
+    void evict(Long id, String email) {
+        if (id != null) {
+            Entry entry = byId.remove(id);
+            if (entry != null) byEmail.remove(entry.user.getEmail(), entry);
+        }
+        if (email != null) {
+            Entry entry = byEmail.remove(email);
+            if (entry != null) byId.remove(entry.user.getId(), entry);
+        }
+    }
+
+    void clear() {
+        byId.clear();
+        byEmail.clear();
+    }
+
+    long hits() { return hits.sum(); }
+    long misses() { return misses.sum(); }
+    int size() { return byId.size(); }
+
+    double hitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private User read(Entry entry) {
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt > 0) {
+            evict(entry.user.getId(), null);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return copy(entry.user);
+    }
+
+    // Drop expired entries first; if the cache is still full, drop arbitrary ones
+    private void makeRoom() {
+        long now = System.nanoTime();
+        for (Iterator<Entry> it = byId.values().iterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            if (now - e.expiresAt > 0) {
+                it.remove();
+                byEmail.remove(e.user.getEmail(), e);
+            }
+        }
+        // Free a tenth of the capacity at once so a full cache is not swept on every put
+        int excess = byId.size() - maxSize + Math.max(1, maxSize / 10);
+        for (Iterator<Entry> it = byId.values().iterator(); excess > 0 && it.hasNext(); excess--) {
+            Entry e = it.next();
+            it.remove();
+            byEmail.remove(e.user.getEmail(), e);
+        }
+    }
+
+    // Setters stamp updatedAt, so it is copied last
+    private static User copy(User source) {
+        User u = new User();
+        u.setId(source.getId());
+        u.setName(source.getName());
+        u.setEmail(source.getEmail());
+        u.setPasswordHash(source.getPasswordHash());
+        u.setPhone(source.getPhone());
+        u.setRole(source.getRole());
+        u.setDateOfBirth(source.getDateOfBirth());
+        u.setGender(source.getGender());
+        u.setMemberSince(source.getMemberSince());
+        u.setTotalOrders(source.getTotalOrders());
+        u.setLoyaltyPoints(source.getLoyaltyPoints());
+        u.setIsActive(source.getIsActive());
+        u.setCreatedAt(source.getCreatedAt());
+        u.setLastPasswordChange(source.getLastPasswordChange());
+        u.setUpdatedAt(source.getUpdatedAt());
+        return u;
+    }
+
+    private static final class Entry {
+        final User user;
+        final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.eduprajna.service;
+
+/**
+ * Published when a user row is written; cached copies are dropped again once the
+ * surrounding transaction has committed, so a concurrent read cannot re-cache the
+ * old row in between.
+ */
+public class UserChangedEvent {
+    private final Long userId;
+    private final String email;
+
+    public UserChangedEvent(Long userId, String email) {
+        this.userId = userId;
+        this.email = email;
+    }
+
+    public Long getUserId() { return userId; }
+    public String getEmail() { return email; }
+}
@@ -1,21 +1,90 @@
 package com.eduprajna.service;
 
+import java.time.OffsetDateTime;
 import java.util.Optional;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import com.eduprajna.entity.User;
 import com.eduprajna.repository.UserRepository;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * User lookups for the email-keyed API. Users found by email or id are cached for
+ * app.user-cache.ttl-seconds (see {@link UserCache}), so resolving the caller on
+ * each request normally costs no query. Every write goes through {@link #save} or
+ * {@link #incrementTotalOrders}, which evict the user immediately and again after
+ * commit. Hit/miss counts are published as user.cache.* meters.
+ */
 @Service
 public class UserService {
     private final UserRepository userRepository;
-    public UserService(UserRepository userRepository) { this.userRepository = userRepository; }
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserCache cache;
+
+    public UserService(UserRepository userRepository, ApplicationEventPublisher eventPublisher,
+                       ObjectProvider<MeterRegistry> meterRegistry,
+                       @Value("${app.user-cache.ttl-seconds:300}") long ttlSeconds,
+                       @Value("${app.user-cache.max-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.cache = new UserCache(ttlSeconds * 1000, maxSize);
+        meterRegistry.ifAvailable(this::registerMetrics);
+    }
+
+    public Optional<User> findByEmail(String email) {
+        if (email == null) return Optional.empty();
+        User cached = cache.getByEmail(email);
+        if (cached != null) return Optional.of(cached);
+        Optional<User> user = userRepository.findByEmail(email);
+        user.ifPresent(cache::put);
+        return user;
+    }
+
+    public Optional<User> findById(Long id) {
+        if (id == null) return Optional.empty();
+        User cached = cache.getById(id);
+        if (cached != null) return Optional.of(cached);
+        Optional<User> user = userRepository.findById(id);
+        user.ifPresent(cache::put);
+        return user;
+    }
+
+    /**
+     * The caller of the current request: the holder of a verified access token if there
+     * is one, otherwise the user with the given email (the legacy ?email= parameter).
+     */
+    public Optional<User> resolveCaller(String email) {
+        AuthenticatedUser principal = AuthenticatedUser.current();
+        if (principal != null) return findById(principal.getUserId());
+        return findByEmail(email);
+    }
+
+    public User save(User user) {
+        User saved = userRepository.save(user);
+        changed(saved.getId(), saved.getEmail());
+        return saved;
+    }
+
+    /**
+     * Add one to the user's order count with a single UPDATE, so it does not depend
+     * on the caller holding a managed (uncached) copy of the user.
+     */
+    public void incrementTotalOrders(User user) {
+        userRepository.incrementTotalOrders(user.getId(), OffsetDateTime.now());
+        changed(user.getId(), user.getEmail());
+    }
 
-    public Optional<User> findByEmail(String email) { return userRepository.findByEmail(email); }
-    public User save(User user) { return userRepository.save(user); }
     public long count() { return userRepository.count(); }
-    
+
     /**
      * Create a user if they don't exist, or return existing user
      */
@@ -32,7 +101,28 @@ public class UserService {
             }
             // Set a default password (should be changed on first login in production)
             newUser.setPasswordHash("temporary");
-            return userRepository.save(newUser);
+            return save(newUser);
         });
     }
-}
\ No newline at end of file
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        cache.evict(event.getUserId(), event.getEmail());
+    }
+
+    private void changed(Long id, String email) {
+        cache.evict(id, email);
+        eventPublisher.publishEvent(new UserChangedEvent(id, email));
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("user.cache.requests", cache, UserCache::hits)
+                .tag("result", "hit").description("User lookups served from the cache").register(registry);
+        FunctionCounter.builder("user.cache.requests", cache, UserCache::misses)
+                .tag("result", "miss").description("User lookups that went to the database").register(registry);
+        Gauge.builder("user.cache.hit.ratio", cache, UserCache::hitRatio)
+                .description("Share of user lookups served from the cache").register(registry);
+        Gauge.builder("user.cache.size", cache, UserCache::size)
+                .description("Users currently cached").register(registry);
+    }
+}
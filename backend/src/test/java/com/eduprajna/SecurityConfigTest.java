@@ -0,0 +1,120 @@
+package com.eduprajna;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.eduprajna.entity.User;
+import com.eduprajna.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Which callers SecurityConfig lets through to the admin-only endpoints, with real
+ * tokens from /api/auth/login.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:security;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.auth.token-secret=0123456789abcdef0123456789abcdef"
+})
+@AutoConfigureMockMvc
+class SecurityConfigTest {
+
+    @Autowired private MockMvc mvc;
+    @Autowired private UserRepository userRepository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void registeringWithAdminRoleStillGivesACustomer() throws Exception {
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("name", "Mallory", "email", "mallory@example.com",
+                        "password", "Secret@123", "role", "admin"))))
+            .andExpect(status().isOk());
+
+        User saved = userRepository.findByEmail("mallory@example.com").orElseThrow();
+        assertEquals("customer", saved.getRole());
+        mvc.perform(get("/actuator/metrics").header("Authorization", "Bearer " + login("mallory@example.com")))
+            .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void mediaGarbageCollectionNeedsAnAdmin() throws Exception {
+        assertRefused(mvc.perform(post("/api/admin/media/gc").param("dryRun", "false"))
+                .andReturn().getResponse().getStatus());
+        assertRefused(mvc.perform(post("/api/admin/media/gc").param("dryRun", "false")
+                .header("Authorization", "Bearer " + customerToken("gc-customer@example.com")))
+                .andReturn().getResponse().getStatus());
+
+        mvc.perform(post("/api/admin/media/gc")
+                .header("Authorization", "Bearer " + login("admin@gmail.com", "Admin@123")))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    void legacyUploadMigrationNeedsAnAdmin() throws Exception {
+        assertRefused(mvc.perform(post("/api/admin/media/migrate")).andReturn().getResponse().getStatus());
+        assertRefused(mvc.perform(post("/api/admin/media/migrate")
+                .header("Authorization", "Bearer " + customerToken("migrate-customer@example.com")))
+                .andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void bulkOrderStatusUpdateNeedsAnAdmin() throws Exception {
+        String body = "{\"orderIds\":[1],\"status\":\"delivered\"}";
+        assertRefused(mvc.perform(post("/api/orders/admin/status").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andReturn().getResponse().getStatus());
+        assertRefused(mvc.perform(post("/api/orders/admin/status").contentType(MediaType.APPLICATION_JSON).content(body)
+                .header("Authorization", "Bearer " + customerToken("orders-customer@example.com")))
+                .andReturn().getResponse().getStatus());
+        assertRefused(mvc.perform(get("/api/orders/admin")).andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    void productImagesStayPublic() throws Exception {
+        mvc.perform(get("/api/admin/products/images/missing.jpg")).andExpect(status().isNotFound());
+    }
+
+    private static void assertRefused(int status) {
+        assertTrue(status == 401 || status == 403, "expected 401 or 403, got " + status);
+    }
+
+    private String customerToken(String email) throws Exception {
+        mvc.perform(post("/api/auth/register").contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("name", "Customer", "email", email, "password", "Secret@123"))))
+            .andExpect(status().isOk());
+        return login(email);
+    }
+
+    private String login(String email) throws Exception {
+        return login(email, "Secret@123");
+    }
+
+    private String login(String email, String password) throws Exception {
+        String body = mvc.perform(post("/api/auth/login").contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("email", email, "password", password))))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("token").asText();
+    }
+
+    private String json(Map<String, String> body) throws Exception {
+        return objectMapper.writeValueAsString(body);
+    }
+}
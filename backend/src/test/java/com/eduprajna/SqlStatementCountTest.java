@@ -0,0 +1,176 @@
+package com.eduprajna;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.eduprajna.Controller.DebugController;
+import com.eduprajna.entity.CartItem;
+import com.eduprajna.entity.Product;
+import com.eduprajna.entity.ProductVariant;
+import com.eduprajna.entity.User;
+import com.eduprajna.repository.CartItemRepository;
+import com.eduprajna.repository.ProductRepository;
+import com.eduprajna.repository.UserRepository;
+import com.eduprajna.service.CatalogService;
+import com.eduprajna.service.ProductSearchIndex;
+import com.eduprajna.service.ProductService;
+import com.eduprajna.service.StockReservationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Guards against N+1 selects on the product list paths: the number of SQL
+ * statements per call must not grow with the number of products.
+ *
+ * Each call runs inside one read-only transaction and is serialized with Jackson,
+ * which mirrors a request under open-session-in-view touching every lazy association.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:sqlcount;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SqlStatementCountTest {
+
+    private static final int PRODUCTS = 12;
+    private static final int VARIANTS_PER_PRODUCT = 2;
+
+    @Configuration
+    @EntityScan("com.eduprajna.entity")
+    @EnableJpaRepositories("com.eduprajna.repository")
+    @Import({ProductService.class, CatalogService.class, ProductSearchIndex.class, StockReservationService.class,
+            DebugController.class})
+    static class Config {
+    }
+
+    @Autowired private ProductRepository productRepository;
+    @Autowired private CartItemRepository cartItemRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private ProductService productService;
+    @Autowired private CatalogService catalogService;
+    @Autowired private DebugController debugController;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private Statistics statistics;
+    private TransactionTemplate requestTx;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        requestTx = new TransactionTemplate(transactionManager);
+        requestTx.setReadOnly(true);
+
+        User user = new User();
+        user.setName("Count Test");
+        user.setEmail("count-test@example.com");
+        user.setPasswordHash("x");
+        user = userRepository.save(user);
+
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product p = new Product();
+            p.setName("Saree " + i);
+            p.setDescription("Test product " + i);
+            p.setCategory("Sarees");
+            p.setIsActive(true);
+            for (int v = 0; v < VARIANTS_PER_PRODUCT; v++) {
+                ProductVariant variant = new ProductVariant();
+                variant.setPrice(1000.0 + i * 10 + v);
+                variant.setStockQuantity(5);
+                variant.setColor(v == 0 ? "Red" : "Blue");
+                variant.setProduct(p);
+                p.getVariants().add(variant);
+            }
+            p = productRepository.save(p);
+
+            CartItem item = new CartItem();
+            item.setUser(user);
+            item.setProduct(p);
+            item.setQuantity(1);
+            item.setPriceAtAdd(p.getPrice());
+            cartItemRepository.save(item);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartItemRepository.deleteAll();
+        productRepository.deleteAll();
+        userRepository.deleteAll();
+        catalogService.reload();
+    }
+
+    @Test
+    void adminProductListLoadsVariantsWithoutPerProductQueries() {
+        long statements = countStatements(() -> productService.getAll());
+        assertTrue(statements <= 2, "ProductController.getAll issued " + statements + " statements");
+    }
+
+    @Test
+    void debugProductListLoadsVariantsWithoutPerProductQueries() {
+        long statements = countStatements(() -> debugController.listProducts());
+        assertTrue(statements <= 2, "DebugController.listProducts issued " + statements + " statements");
+    }
+
+    @Test
+    void publicCatalogIsServedFromSnapshot() {
+        catalogService.reload();
+        long statements = countStatements(() -> catalogService.list(null, null, null, null, null));
+        assertEquals(0, statements, "Public listing should not touch the database once the snapshot is loaded");
+
+        Long anyId = productRepository.findAll().get(0).getId();
+        statements = countStatements(() -> catalogService.getActive(anyId));
+        assertEquals(0, statements, "Public product detail should not touch the database");
+    }
+
+    @Test
+    void cartItemProductsAreBatchFetched() {
+        long statements = countStatements(() -> {
+            List<CartItem> items = cartItemRepository.findAll();
+            // Touch each lazy product the way CartService builds its DTOs
+            return items.stream().map(i -> i.getProduct().getName()).toList();
+        });
+        assertTrue(statements <= 3, "Cart items with products issued " + statements + " statements");
+    }
+
+    private long countStatements(Supplier<Object> call) {
+        statistics.clear();
+        requestTx.executeWithoutResult(status -> {
+            try {
+                objectMapper.writeValueAsString(call.get());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,121 @@
+package com.eduprajna.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import com.eduprajna.entity.User;
+
+/**
+ * Round trip and rejection cases for signed access tokens.
+ */
+class AccessTokenServiceTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+    private final AccessTokenService tokens = new AccessTokenService(SECRET, 60);
+
+    @Test
+    void issuedTokenVerifiesToItsUser() {
+        String token = tokens.issue(user(42L, "admin"));
+
+        AuthenticatedUser principal = tokens.verify(token);
+
+        assertNotNull(principal);
+        assertEquals(42L, principal.getUserId());
+        assertEquals(AuthenticatedUser.ADMIN, principal.getRole());
+        assertEquals("ROLE_ADMIN", principal.getAuthorities().get(0).getAuthority());
+    }
+
+    @Test
+    void missingRoleIsIssuedAsCustomer() {
+        AuthenticatedUser principal = tokens.verify(tokens.issue(user(7L, null)));
+
+        assertNotNull(principal);
+        assertEquals(AuthenticatedUser.CUSTOMER, principal.getRole());
+    }
+
+    @Test
+    void tamperedPayloadIsRejected() {
+        String token = tokens.issue(user(42L, "customer"));
+        int dot = token.indexOf('.');
+        byte[] payload = Base64.getUrlDecoder().decode(token.substring(0, dot));
+        payload[8] ^= 1; // last byte of the user id
+        String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(payload) + token.substring(dot);
+
+        assertNull(tokens.verify(forged));
+    }
+
+    @Test
+    void roleEscalationIsRejected() {
+        String token = tokens.issue(user(42L, "customer"));
+        String admin = tokens.issue(user(42L, "admin"));
+        // The admin token's payload under the customer token's signature
+        String forged = admin.substring(0, admin.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        assertNull(tokens.verify(forged));
+    }
+
+    @Test
+    void tamperedSignatureIsRejected() {
+        String token = tokens.issue(user(42L, "customer"));
+        int dot = token.indexOf('.');
+        byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+        signature[0] ^= 1;
+        String forged = token.substring(0, dot + 1) + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+
+        assertNull(tokens.verify(forged));
+    }
+
+    @Test
+    void truncatedTokensAreRejected() {
+        String token = tokens.issue(user(42L, "customer"));
+        int dot = token.indexOf('.');
+
+        assertNull(tokens.verify(token.substring(0, token.length() - 1)));
+        assertNull(tokens.verify(token.substring(0, dot)));
+        assertNull(tokens.verify(token.substring(0, dot + 1)));
+        assertNull(tokens.verify(token.substring(dot)));
+        assertNull(tokens.verify(token.substring(4)));
+    }
+
+    @Test
+    void malformedAndOversizedTokensAreRejected() {
+        String token = tokens.issue(user(42L, "customer"));
+
+        assertNull(tokens.verify(null));
+        assertNull(tokens.verify(""));
+        assertNull(tokens.verify("."));
+        assertNull(tokens.verify("not a token"));
+        assertNull(tokens.verify(token.replace('.', '!')));
+        assertNull(tokens.verify("*" + token));
+        assertNull(tokens.verify(token + "A".repeat(300)));
+        assertNull(tokens.verify(token + "." + token));
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        AccessTokenService expired = new AccessTokenService(SECRET, -1);
+
+        assertNull(expired.verify(expired.issue(user(42L, "customer"))));
+    }
+
+    @Test
+    void tokenSignedWithAnotherSecretIsRejected() {
+        AccessTokenService other = new AccessTokenService("fedcba9876543210fedcba9876543210", 60);
+
+        assertNull(tokens.verify(other.issue(user(42L, "customer"))));
+        assertNull(other.verify(tokens.issue(user(42L, "customer"))));
+    }
+
+    private static User user(Long id, String role) {
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+        return user;
+    }
+}
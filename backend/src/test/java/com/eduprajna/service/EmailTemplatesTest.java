@@ -0,0 +1,44 @@
+package com.eduprajna.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Overrides in app.email.templates-dir replacing and then giving back the
+ * classpath defaults.
+ */
+class EmailTemplatesTest {
+
+    private static final String DEFAULT_SUBJECT = "Avira Udupu - Order Confirmation #42";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void deletedOverrideFallsBackToDefault() throws Exception {
+        EmailTemplates templates = new EmailTemplates();
+        ReflectionTestUtils.setField(templates, "templatesDir", dir.toString());
+        templates.load();
+        assertEquals(DEFAULT_SUBJECT, subject(templates));
+
+        Path override = dir.resolve("order-confirmation.subject.txt");
+        Files.writeString(override, "Your order {{orderId}}");
+        templates.reloadFromDirectory();
+        assertEquals("Your order 42", subject(templates));
+
+        Files.delete(override);
+        templates.reloadFromDirectory();
+        assertEquals(DEFAULT_SUBJECT, subject(templates));
+    }
+
+    private static String subject(EmailTemplates templates) {
+        return templates.render("order-confirmation", Map.of("orderId", 42)).getSubject();
+    }
+}
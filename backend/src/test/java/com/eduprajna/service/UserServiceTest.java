@@ -0,0 +1,117 @@
+package com.eduprajna.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.eduprajna.entity.User;
+import com.eduprajna.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * How UserService.resolveCaller picks the caller: the verified token principal
+ * over the ?email= parameter. Also that the email cache answers exactly as the
+ * repository would.
+ */
+class UserServiceTest {
+
+    private UserRepository userRepository;
+    private UserService userService;
+
+    private final User tokenHolder = user(1L, "holder@example.com");
+    private final User emailUser = user(2L, "other@example.com");
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(tokenHolder));
+        when(userRepository.findByEmail("other@example.com")).thenReturn(Optional.of(emailUser));
+        ObjectProvider<MeterRegistry> noMeters = mock(ObjectProvider.class);
+        userService = new UserService(userRepository, mock(ApplicationEventPublisher.class), noMeters, 300, 100);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void tokenPrincipalWinsOverEmailParameter() {
+        authenticate(new AuthenticatedUser(1L, AuthenticatedUser.CUSTOMER, Long.MAX_VALUE));
+
+        Optional<User> caller = userService.resolveCaller("other@example.com");
+
+        assertEquals(Optional.of(tokenHolder), caller);
+        verify(userRepository, never()).findByEmail(any());
+    }
+
+    @Test
+    void unknownTokenUserIsNotReplacedByEmail() {
+        authenticate(new AuthenticatedUser(99L, AuthenticatedUser.CUSTOMER, Long.MAX_VALUE));
+
+        assertTrue(userService.resolveCaller("other@example.com").isEmpty());
+    }
+
+    @Test
+    void emailParameterIsUsedWithoutToken() {
+        assertEquals(Optional.of(emailUser), userService.resolveCaller("other@example.com"));
+    }
+
+    @Test
+    void otherAuthenticationsFallBackToEmail() {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated("someone", null, List.of()));
+
+        assertEquals(Optional.of(emailUser), userService.resolveCaller("other@example.com"));
+    }
+
+    @Test
+    void noTokenAndNoEmailResolvesToNobody() {
+        assertTrue(userService.resolveCaller(null).isEmpty());
+    }
+
+    @Test
+    void mixedCaseEmailResolvesLikeTheRepositoryWhetherCachedOrNot() {
+        // The repository matches emails exactly (as on PostgreSQL)
+        when(userRepository.findByEmail("Other@Example.com")).thenReturn(Optional.empty());
+
+        assertEquals(Optional.of(emailUser), userService.findByEmail("other@example.com"));
+        assertTrue(userService.findByEmail("Other@Example.com").isEmpty(), "warm cache");
+
+        userService.onUserChanged(new UserChangedEvent(emailUser.getId(), emailUser.getEmail()));
+        assertTrue(userService.findByEmail("Other@Example.com").isEmpty(), "after eviction");
+        assertEquals(Optional.of(emailUser), userService.findByEmail("other@example.com"));
+        verify(userRepository, times(2)).findByEmail("Other@Example.com");
+        verify(userRepository, times(2)).findByEmail("other@example.com");
+    }
+
+    private static void authenticate(AuthenticatedUser principal) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities()));
+    }
+
+    private static User user(Long id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        return user;
+    }
+}
@@ -51,6 +51,9 @@ export const AuthProvider = ({ children, setError }) => {
           name: response.data.name,
           email: response.data.email,
           role: response.data.role,
+          // Signed access token; the api client sends it as a Bearer header
+          token: response.data.token,
+          tokenExpiresAt: response.data.expiresAt,
           // Add default values for fields not returned by backend
           phone: response.data.phone || '',
           memberSince: response.data.memberSince || new Date().toISOString().split('T')[0],
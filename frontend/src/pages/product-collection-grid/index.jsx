@@ -106,7 +106,8 @@ const ProductCollectionGrid = () => {
 
   // Resolve relative image URLs returned by backend to absolute URLs using API base
   const resolveImageUrl = (p) => {
-    let candidate = p?.imageUrl || p?.image || p?.image_path || p?.thumbnailUrl;
+    // thumbnailUrl is the card-sized derivative of an uploaded image
+    let candidate = p?.thumbnailUrl || p?.imageUrl || p?.image || p?.image_path;
     if (!candidate) return '/assets/images/no_image.png';
 
     // Already absolute or data URL